@@ -0,0 +1,67 @@
+package org.cognitor.cassandra.migration.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.cognitor.cassandra.migration.MigrationException;
+import org.cognitor.cassandra.migration.MigrationRepository;
+import org.cognitor.cassandra.migration.index.MigrationIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes a {@link MigrationIndex} of the migration scripts in the output directory of the build to
+ * <code>META-INF/cassandra-migration/index</code>. A <code>MigrationRepository</code> created with
+ * <code>useIndex</code> set to true reads this index instead of scanning the classpath for scripts.
+ */
+@Mojo(name = "index", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
+public class IndexMojo extends AbstractMojo {
+
+    /**
+     * The directory containing the compiled classes and resources.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * The locations of the migration scripts on the classpath.
+     * The default is <code>cassandra/migration</code>.
+     */
+    @Parameter
+    private List<String> scriptLocations = Collections.singletonList(MigrationRepository.DEFAULT_SCRIPT_PATH);
+
+    /**
+     * Skips the creation of the index.
+     */
+    @Parameter(property = "cassandra.migration.index.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping creation of the migration index");
+            return;
+        }
+        try {
+            MigrationIndex index = new MigrationIndexBuilder(outputDirectory.toPath()).build(scriptLocations);
+            Path indexFile = outputDirectory.toPath().resolve(MigrationIndex.LOCATION);
+            Files.createDirectories(indexFile.getParent());
+            try (Writer writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+                index.write(writer);
+            }
+            getLog().info(String.format("Wrote migration index with %d scripts to %s",
+                    index.getEntries().size(), indexFile));
+        } catch (IOException | MigrationException exception) {
+            throw new MojoExecutionException("Unable to create the migration index", exception);
+        }
+    }
+}
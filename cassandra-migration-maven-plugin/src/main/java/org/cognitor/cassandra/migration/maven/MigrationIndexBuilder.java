@@ -0,0 +1,83 @@
+package org.cognitor.cassandra.migration.maven;
+
+import org.cognitor.cassandra.migration.MigrationRepository;
+import org.cognitor.cassandra.migration.index.IndexEntry;
+import org.cognitor.cassandra.migration.index.MigrationIndex;
+import org.cognitor.cassandra.migration.util.Checksum;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Creates a {@link MigrationIndex} from the migration scripts below a classpath root on the file system,
+ * usually the output directory of the build.
+ */
+class MigrationIndexBuilder {
+    private final Path classpathRoot;
+
+    /**
+     * @param classpathRoot the directory that represents the root of the classpath. Must not be null.
+     */
+    MigrationIndexBuilder(Path classpathRoot) {
+        this.classpathRoot = notNull(classpathRoot, "classpathRoot");
+    }
+
+    /**
+     * Creates an index of all migration scripts inside the given locations. Locations that do
+     * not exist are skipped.
+     *
+     * @param scriptLocations the locations on the classpath. Must not be null.
+     * @return the index containing the scripts sorted by their resource name. Never null.
+     * @throws IOException if a script cannot be read
+     */
+    MigrationIndex build(List<String> scriptLocations) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+        for (String scriptLocation : notNull(scriptLocations, "scriptLocations")) {
+            Path location = classpathRoot.resolve(trimSlashes(scriptLocation));
+            if (!Files.isDirectory(location)) {
+                continue;
+            }
+            for (Path script : findScripts(location)) {
+                entries.add(createEntry(script));
+            }
+        }
+        entries.sort(Comparator.comparing(IndexEntry::getResourceName));
+        return new MigrationIndex(entries);
+    }
+
+    private static List<Path> findScripts(Path location) throws IOException {
+        try (Stream<Path> paths = Files.walk(location)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> MigrationRepository.isMigrationScript(path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private IndexEntry createEntry(Path script) throws IOException {
+        String resourceName = classpathRoot.relativize(script).toString().replace('\\', '/');
+        byte[] content = Files.readAllBytes(script);
+        int version = MigrationRepository.extractScriptVersion(MigrationRepository.extractScriptName(resourceName));
+        return new IndexEntry(version, resourceName, content.length,
+                Checksum.of(new String(content, StandardCharsets.UTF_8)));
+    }
+
+    private static String trimSlashes(String scriptLocation) {
+        String location = scriptLocation;
+        while (location.startsWith("/")) {
+            location = location.substring(1);
+        }
+        while (location.endsWith("/")) {
+            location = location.substring(0, location.length() - 1);
+        }
+        return location;
+    }
+}
@@ -0,0 +1,64 @@
+package org.cognitor.cassandra.migration.maven;
+
+import org.cognitor.cassandra.migration.MigrationException;
+import org.cognitor.cassandra.migration.index.IndexEntry;
+import org.cognitor.cassandra.migration.index.MigrationIndex;
+import org.cognitor.cassandra.migration.util.Checksum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MigrationIndexBuilderTest {
+    private static final String SCRIPT = "CREATE TABLE PERSON (id uuid primary key);";
+
+    @TempDir
+    Path classpathRoot;
+
+    @Test
+    public void shouldIndexAllScriptsWhenScriptsInLocationAndSubfolderGiven() throws IOException {
+        write("cassandra/migration/001_init.cql", SCRIPT);
+        write("cassandra/migration/sub/002_second.cql", SCRIPT);
+        write("cassandra/migration/readme.txt", "not a script");
+
+        MigrationIndex index = new MigrationIndexBuilder(classpathRoot)
+                .build(Collections.singletonList("/cassandra/migration/"));
+
+        assertThat(index.getEntries().size(), is(equalTo(2)));
+        IndexEntry first = index.getEntries().get(0);
+        assertThat(first.getVersion(), is(equalTo(1)));
+        assertThat(first.getResourceName(), is(equalTo("cassandra/migration/001_init.cql")));
+        assertThat(first.getSize(), is(equalTo((long) SCRIPT.length())));
+        assertThat(first.getChecksum(), is(equalTo(Checksum.of(SCRIPT))));
+        assertThat(index.getEntries().get(1).getResourceName(), is(equalTo("cassandra/migration/sub/002_second.cql")));
+    }
+
+    @Test
+    public void shouldReturnEmptyIndexWhenLocationDoesNotExist() throws IOException {
+        MigrationIndex index = new MigrationIndexBuilder(classpathRoot)
+                .build(Collections.singletonList("cassandra/migration"));
+        assertThat(index.getEntries().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenScriptWithoutVersionGiven() throws IOException {
+        write("cassandra/migration/init.cql", SCRIPT);
+        assertThrows(MigrationException.class, () -> new MigrationIndexBuilder(classpathRoot)
+                .build(Collections.singletonList("cassandra/migration")));
+    }
+
+    private void write(String resourceName, String content) throws IOException {
+        Path file = classpathRoot.resolve(resourceName);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
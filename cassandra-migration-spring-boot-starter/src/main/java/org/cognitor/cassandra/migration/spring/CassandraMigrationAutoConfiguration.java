@@ -2,19 +2,24 @@ package org.cognitor.cassandra.migration.spring;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import org.cognitor.cassandra.migration.Database;
+import org.cognitor.cassandra.migration.JavaMigration;
 import org.cognitor.cassandra.migration.MigrationConfiguration;
 import org.cognitor.cassandra.migration.MigrationRepository;
+import org.cognitor.cassandra.migration.MigrationSessionFactory;
 import org.cognitor.cassandra.migration.MigrationTask;
 import org.cognitor.cassandra.migration.collector.FailOnDuplicatesCollector;
 import org.cognitor.cassandra.migration.collector.IgnoreDuplicatesCollector;
+import org.cognitor.cassandra.migration.collector.ScriptCollector;
 import org.cognitor.cassandra.migration.keyspace.Keyspace;
 import org.cognitor.cassandra.migration.keyspace.ReplicationStrategy;
 import org.cognitor.cassandra.migration.scanner.ScannerRegistry;
 import org.cognitor.cassandra.migration.spring.scanner.SpringBootLocationScanner;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.cassandra.CassandraAutoConfiguration;
+import org.springframework.boot.autoconfigure.cassandra.CassandraProperties;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -22,6 +27,13 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.net.ssl.SSLContext;
+import java.net.InetSocketAddress;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * @author Patrick Kranz
  */
@@ -42,36 +54,139 @@ public class CassandraMigrationAutoConfiguration {
     @Bean(name = MIGRATION_TASK_BEAN_NAME, initMethod = "migrate")
     @ConditionalOnBean(value = CqlSession.class)
     @ConditionalOnMissingBean(MigrationTask.class)
-    public MigrationTask migrationTask(@Qualifier(CQL_SESSION_BEAN_NAME) CqlSession cqlSession) {
+    public MigrationTask migrationTask(@Qualifier(CQL_SESSION_BEAN_NAME) ObjectProvider<CqlSession> migrationCqlSession,
+                                       ObjectProvider<CqlSession> applicationCqlSession,
+                                       ObjectProvider<CassandraProperties> cassandraProperties,
+                                       ObjectProvider<JavaMigration> javaMigrations) {
         if (!properties.hasKeyspaceName()) {
             throw new IllegalStateException("Please specify ['cassandra.migration.keyspace-name'] in" +
                     " order to migrate your database");
         }
 
         MigrationRepository migrationRepository = createRepository();
+        javaMigrations.orderedStream().forEach(migrationRepository::addJavaMigration);
         MigrationConfiguration configuration = createConfiguration();
+        CqlSession cqlSession = selectCqlSession(migrationCqlSession, applicationCqlSession,
+                () -> createCqlSession(configuration, cassandraProperties.getIfAvailable(CassandraProperties::new),
+                        javaMigrations.iterator().hasNext()));
         return new MigrationTask(new Database(cqlSession, configuration)
                 .setConsistencyLevel(properties.getConsistencyLevel()),
                 migrationRepository,
                 properties.isWithConsensus());
     }
 
+    /**
+     * Uses the primary session of the application if the session is borrowed and the session named
+     * <code>CQL_SESSION_BEAN_NAME</code> otherwise. If there is no such session, a dedicated session
+     * is created that is closed after the migration.
+     *
+     * @throws IllegalStateException if the session is borrowed but there is no unique session of the application
+     */
+    private CqlSession selectCqlSession(ObjectProvider<CqlSession> migrationCqlSession,
+                                        ObjectProvider<CqlSession> applicationCqlSession,
+                                        Supplier<CqlSession> dedicatedCqlSession) {
+        if (!properties.isBorrowSession()) {
+            return migrationCqlSession.getIfAvailable(dedicatedCqlSession);
+        }
+        CqlSession cqlSession = applicationCqlSession.getIfUnique();
+        if (cqlSession == null) {
+            throw new IllegalStateException("['cassandra.migration.borrow-session'] requires a unique or primary" +
+                    " CqlSession in the application context");
+        }
+        return cqlSession;
+    }
+
+    /**
+     * Creates a session tuned for migrations with the contact points, datacenter and credentials
+     * of the spring boot cassandra properties.
+     */
+    private CqlSession createCqlSession(MigrationConfiguration configuration, CassandraProperties cassandraProperties,
+                                        boolean hasJavaMigrations) {
+        MigrationSessionFactory sessionFactory = new MigrationSessionFactory(configuration)
+                .withContactPoints(toContactPoints(cassandraProperties))
+                .withRequestTimeout(properties.getSessionRequestTimeout())
+                .withTokenMap(hasJavaMigrations);
+        if (cassandraProperties.getLocalDatacenter() != null) {
+            sessionFactory.withLocalDatacenter(cassandraProperties.getLocalDatacenter());
+        }
+        if (cassandraProperties.getUsername() != null) {
+            sessionFactory.withAuthCredentials(cassandraProperties.getUsername(), cassandraProperties.getPassword());
+        }
+        if (!cassandraProperties.isSsl()) {
+            return sessionFactory.createSession();
+        }
+        try {
+            return sessionFactory.createSessionBuilder().withSslContext(SSLContext.getDefault()).build();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("Could not setup SSL default context for Cassandra", exception);
+        }
+    }
+
+    private static List<InetSocketAddress> toContactPoints(CassandraProperties cassandraProperties) {
+        List<InetSocketAddress> contactPoints = new ArrayList<>();
+        for (String contactPoint : cassandraProperties.getContactPoints()) {
+            int portSeparator = contactPoint.lastIndexOf(':');
+            if (portSeparator > 0 && contactPoint.indexOf(':') == portSeparator) {
+                contactPoints.add(new InetSocketAddress(contactPoint.substring(0, portSeparator),
+                        Integer.parseInt(contactPoint.substring(portSeparator + 1))));
+            } else {
+                contactPoints.add(new InetSocketAddress(contactPoint, cassandraProperties.getPort()));
+            }
+        }
+        return contactPoints;
+    }
+
     private MigrationConfiguration createConfiguration() {
         String keyspaceName = properties.getKeyspaceName();
         ReplicationStrategy replicationStrategy = properties.getReplicationStrategy();
 
-        return new MigrationConfiguration()
+        MigrationConfiguration configuration = new MigrationConfiguration()
                 .withKeyspace(new Keyspace(keyspaceName).with(replicationStrategy))
                 .withTablePrefix(properties.getTablePrefix())
-                .withExecutionProfile(properties.getExecutionProfileName());
+                .withExecutionProfile(properties.getExecutionProfileName())
+                .withStatementConcurrency(properties.getStatementConcurrency())
+                .withSchemaAgreementPolicy(properties.getSchemaAgreementPolicy())
+                .withSchemaAgreementTimeout(properties.getSchemaAgreementTimeout())
+                .withSchemaAgreementPollInterval(properties.getSchemaAgreementPollInterval())
+                .withSchemaAgreementDatacenter(properties.getSchemaAgreementDatacenter())
+                .withVersionProbeConsistencyLevel(properties.getVersionProbeConsistencyLevel())
+                .withLeadTtl(properties.getLeadTtl())
+                .withLeadWaitBackoff(properties.getLeadWaitInitialDelay(), properties.getLeadWaitMaxDelay(),
+                        properties.getLeadWaitJitter())
+                .withResumeFailedScripts(properties.isResumeFailedScripts())
+                .withWorkSharing(properties.isWorkSharing())
+                .withScriptStorage(properties.getScriptStorage())
+                .withValidateOnMigrate(properties.isValidateOnMigrate())
+                .withLegacyMigrationTable(properties.isLegacyMigrationTable())
+                .withLazyInitialization(properties.isLazyInitialization())
+                .withBorrowedSession(properties.isBorrowSession())
+                .withDeferredSchemaRefresh(properties.isDeferSchemaRefresh());
+        if (properties.getRateLimit() > 0) {
+            if (properties.getRateLimitLatencyThreshold() != null) {
+                configuration.withAdaptiveRateLimit(properties.getRateLimit(),
+                        properties.getRateLimitLatencyThreshold());
+            } else {
+                configuration.withRateLimit(properties.getRateLimit());
+            }
+        }
+        return configuration;
     }
 
     private MigrationRepository createRepository() {
         ScannerRegistry registry = new ScannerRegistry();
         registry.register(ScannerRegistry.JAR_SCHEME, new SpringBootLocationScanner());
+        if (properties.isScanPendingOnly()) {
+            Supplier<ScriptCollector> collectorFactory =
+                    properties.getStrategy() == ScriptCollectorStrategy.FAIL_ON_DUPLICATES
+                            ? FailOnDuplicatesCollector::new : IgnoreDuplicatesCollector::new;
+            return new MigrationRepository(properties.getScriptLocations(), collectorFactory, registry,
+                    properties.isUseIndex());
+        }
         if (properties.getStrategy() == ScriptCollectorStrategy.FAIL_ON_DUPLICATES) {
-            return new MigrationRepository(properties.getScriptLocations(), new FailOnDuplicatesCollector(), registry);
+            return new MigrationRepository(properties.getScriptLocations(), new FailOnDuplicatesCollector(), registry,
+                    properties.isUseIndex());
         }
-        return new MigrationRepository(properties.getScriptLocations(), new IgnoreDuplicatesCollector(), registry);
+        return new MigrationRepository(properties.getScriptLocations(), new IgnoreDuplicatesCollector(), registry,
+                properties.isUseIndex());
     }
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package org.cognitor.cassandra.migration.spring;
 
 import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import org.cognitor.cassandra.migration.MigrationConfiguration;
 import org.cognitor.cassandra.migration.MigrationRepository;
+import org.cognitor.cassandra.migration.MigrationSessionFactory;
+import org.cognitor.cassandra.migration.SchemaAgreementPolicy;
+import org.cognitor.cassandra.migration.ScriptStorage;
 import org.cognitor.cassandra.migration.keyspace.ReplicationStrategy;
 import org.cognitor.cassandra.migration.spring.keyspace.KeyspaceReplicationStrategyDefinition;
 import org.cognitor.cassandra.migration.spring.keyspace.NetworkStrategyDefinition;
 import org.cognitor.cassandra.migration.spring.keyspace.SimpleStrategyDefinition;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,6 +37,29 @@ public class CassandraMigrationConfigurationProperties {
     private String executionProfileName = null;
     private DefaultConsistencyLevel consistencyLevel = DefaultConsistencyLevel.QUORUM;
     private Boolean withConsensus = false;
+    private int statementConcurrency = 1;
+    private SchemaAgreementPolicy schemaAgreementPolicy = SchemaAgreementPolicy.AFTER_SCHEMA_CHANGE;
+    private Duration schemaAgreementTimeout = MigrationConfiguration.DEFAULT_SCHEMA_AGREEMENT_TIMEOUT;
+    private DefaultConsistencyLevel versionProbeConsistencyLevel = DefaultConsistencyLevel.QUORUM;
+    private Duration leadTtl = MigrationConfiguration.DEFAULT_LEAD_TTL;
+    private Duration leadWaitInitialDelay = MigrationConfiguration.DEFAULT_LEAD_WAIT_INITIAL_DELAY;
+    private Duration leadWaitMaxDelay = MigrationConfiguration.DEFAULT_LEAD_WAIT_MAX_DELAY;
+    private double leadWaitJitter = MigrationConfiguration.DEFAULT_LEAD_WAIT_JITTER;
+    private boolean resumeFailedScripts = false;
+    private boolean useIndex = false;
+    private boolean workSharing = false;
+    private double rateLimit = 0;
+    private Duration rateLimitLatencyThreshold;
+    private ScriptStorage scriptStorage = ScriptStorage.FULL;
+    private boolean validateOnMigrate = false;
+    private boolean legacyMigrationTable = true;
+    private boolean scanPendingOnly = false;
+    private boolean lazyInitialization = false;
+    private boolean borrowSession = false;
+    private Duration sessionRequestTimeout = MigrationSessionFactory.DEFAULT_REQUEST_TIMEOUT;
+    private boolean deferSchemaRefresh = false;
+    private Duration schemaAgreementPollInterval = MigrationConfiguration.DEFAULT_SCHEMA_AGREEMENT_POLL_INTERVAL;
+    private String schemaAgreementDatacenter;
 
     /**
      * This method is deprecated in favor of <code>getScriptLocations</code> and returns the first
@@ -209,4 +237,397 @@ public class CassandraMigrationConfigurationProperties {
         return executionProfileName;
     }
 
+    /**
+     * @return the number of data manipulation statements of a script that may be executed concurrently
+     */
+    public int getStatementConcurrency() {
+        return statementConcurrency;
+    }
+
+    /**
+     * Sets the number of data manipulation statements of a script that may be executed concurrently.
+     * Statements changing the schema are always executed on their own. Default is 1.
+     *
+     * @param statementConcurrency the maximum number of statements in flight
+     */
+    public void setStatementConcurrency(int statementConcurrency) {
+        this.statementConcurrency = statementConcurrency;
+    }
+
+    /**
+     * @return the policy defining when the migration waits for schema agreement
+     */
+    public SchemaAgreementPolicy getSchemaAgreementPolicy() {
+        return schemaAgreementPolicy;
+    }
+
+    /**
+     * Sets the policy defining when the migration waits for schema agreement.
+     * Default is <code>SchemaAgreementPolicy.AFTER_SCHEMA_CHANGE</code>
+     *
+     * @param schemaAgreementPolicy the policy to be used
+     */
+    public void setSchemaAgreementPolicy(SchemaAgreementPolicy schemaAgreementPolicy) {
+        this.schemaAgreementPolicy = schemaAgreementPolicy;
+    }
+
+    /**
+     * @return the maximum time the migration waits for schema agreement
+     */
+    public Duration getSchemaAgreementTimeout() {
+        return schemaAgreementTimeout;
+    }
+
+    /**
+     * Sets the maximum time the migration waits for schema agreement. Default is 10 seconds.
+     *
+     * @param schemaAgreementTimeout the maximum time to wait
+     */
+    public void setSchemaAgreementTimeout(Duration schemaAgreementTimeout) {
+        this.schemaAgreementTimeout = schemaAgreementTimeout;
+    }
+
+    /**
+     * @return the consistency level used to read the version summary on startup
+     */
+    public DefaultConsistencyLevel getVersionProbeConsistencyLevel() {
+        return versionProbeConsistencyLevel;
+    }
+
+    /**
+     * Sets the consistency level used to read the version summary when checking if the keyspace
+     * is up to date. Default is <code>ConsistencyLevel.QUORUM</code>
+     *
+     * @param versionProbeConsistencyLevel the consistency level to be used for the version probe
+     */
+    public void setVersionProbeConsistencyLevel(DefaultConsistencyLevel versionProbeConsistencyLevel) {
+        this.versionProbeConsistencyLevel = versionProbeConsistencyLevel;
+    }
+
+    /**
+     * @return the TTL of the lead on schema migrations when consensus is used
+     */
+    public Duration getLeadTtl() {
+        return leadTtl;
+    }
+
+    /**
+     * Sets the TTL of the lead on schema migrations when consensus is used. The lead is renewed
+     * while the migration is running. Default is 30 seconds.
+     *
+     * @param leadTtl the TTL of the lead
+     */
+    public void setLeadTtl(Duration leadTtl) {
+        this.leadTtl = leadTtl;
+    }
+
+    /**
+     * @return the wait time after the first check while another instance holds the lead
+     */
+    public Duration getLeadWaitInitialDelay() {
+        return leadWaitInitialDelay;
+    }
+
+    /**
+     * Sets the wait time after the first check while another instance holds the lead.
+     * The wait time doubles after every check. Default is 200 milliseconds.
+     *
+     * @param leadWaitInitialDelay the initial wait time
+     */
+    public void setLeadWaitInitialDelay(Duration leadWaitInitialDelay) {
+        this.leadWaitInitialDelay = leadWaitInitialDelay;
+    }
+
+    /**
+     * @return the maximum wait time between checks while another instance holds the lead
+     */
+    public Duration getLeadWaitMaxDelay() {
+        return leadWaitMaxDelay;
+    }
+
+    /**
+     * Sets the maximum wait time between checks while another instance holds the lead. Default is 5 seconds.
+     *
+     * @param leadWaitMaxDelay the maximum wait time
+     */
+    public void setLeadWaitMaxDelay(Duration leadWaitMaxDelay) {
+        this.leadWaitMaxDelay = leadWaitMaxDelay;
+    }
+
+    /**
+     * @return the fraction of the wait time between checks that is randomized
+     */
+    public double getLeadWaitJitter() {
+        return leadWaitJitter;
+    }
+
+    /**
+     * Sets the fraction of the wait time between checks that is randomized. Default is 0.5.
+     *
+     * @param leadWaitJitter a value between 0 and 1
+     */
+    public void setLeadWaitJitter(double leadWaitJitter) {
+        this.leadWaitJitter = leadWaitJitter;
+    }
+
+    /**
+     * @return true if failed scripts are continued with the failed statement
+     */
+    public boolean isResumeFailedScripts() {
+        return resumeFailedScripts;
+    }
+
+    /**
+     * Sets whether a script that failed in a previous run and did not change since then is continued
+     * with the failed statement instead of being executed from the beginning. Default is false.
+     *
+     * @param resumeFailedScripts enable/disable resuming failed scripts
+     */
+    public void setResumeFailedScripts(boolean resumeFailedScripts) {
+        this.resumeFailedScripts = resumeFailedScripts;
+    }
+
+    /**
+     * @return true if the scripts are taken from the migration index if one is available
+     */
+    public boolean isUseIndex() {
+        return useIndex;
+    }
+
+    /**
+     * Sets whether the scripts are taken from the migration index created by the
+     * <code>cassandra-migration-maven-plugin</code> instead of scanning the script locations.
+     * If no index is available the script locations are scanned. Default is false.
+     *
+     * @param useIndex enable/disable the migration index
+     */
+    public void setUseIndex(boolean useIndex) {
+        this.useIndex = useIndex;
+    }
+
+    /**
+     * @return true if token ranges of Java migrations are shared with the instances waiting for the lead
+     */
+    public boolean isWorkSharing() {
+        return workSharing;
+    }
+
+    /**
+     * Sets whether instances waiting for the lead on migrations help with the token ranges of the Java
+     * migration the leader is executing. Only has an effect together with <code>with-consensus</code>.
+     * Default is false.
+     *
+     * @param workSharing enable/disable sharing token ranges between instances
+     */
+    public void setWorkSharing(boolean workSharing) {
+        this.workSharing = workSharing;
+    }
+
+    /**
+     * @return the maximum number of statements of migration scripts executed per second or 0 if not limited
+     */
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Sets the maximum number of statements of migration scripts that are executed per second.
+     * Default is 0, which does not limit the rate.
+     *
+     * @param rateLimit the maximum number of statements per second
+     */
+    public void setRateLimit(double rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * @return the latency above which the rate limit is decreased or null if the rate limit is fixed
+     */
+    public Duration getRateLimitLatencyThreshold() {
+        return rateLimitLatencyThreshold;
+    }
+
+    /**
+     * Sets the statement latency above which the rate limit is decreased. The rate limit is increased again
+     * up to <code>rate-limit</code> as long as statements are faster. Only has an effect together with
+     * <code>rate-limit</code>. Default is null, which keeps the rate limit fixed.
+     *
+     * @param rateLimitLatencyThreshold the latency above which the rate limit is decreased
+     */
+    public void setRateLimitLatencyThreshold(Duration rateLimitLatencyThreshold) {
+        this.rateLimitLatencyThreshold = rateLimitLatencyThreshold;
+    }
+
+    /**
+     * @return how the content of the scripts is stored in the migration table
+     */
+    public ScriptStorage getScriptStorage() {
+        return scriptStorage;
+    }
+
+    /**
+     * Sets how the content of the scripts is stored in the migration table. Default is <code>FULL</code>.
+     *
+     * @param scriptStorage the storage of the script content
+     */
+    public void setScriptStorage(ScriptStorage scriptStorage) {
+        this.scriptStorage = scriptStorage;
+    }
+
+    /**
+     * @return true if the checksums of the applied scripts are validated before migrating
+     */
+    public boolean isValidateOnMigrate() {
+        return validateOnMigrate;
+    }
+
+    /**
+     * Sets whether the checksums of the scripts that were already applied are compared with the scripts
+     * on the classpath before migrating. The migration fails if an applied script was changed.
+     * Default is false.
+     *
+     * @param validateOnMigrate enable/disable the validation before migrating
+     */
+    public void setValidateOnMigrate(boolean validateOnMigrate) {
+        this.validateOnMigrate = validateOnMigrate;
+    }
+
+    /**
+     * @return true if migrations are also logged into the migration table of the old layout
+     */
+    public boolean isLegacyMigrationTable() {
+        return legacyMigrationTable;
+    }
+
+    /**
+     * Sets whether migrations are still logged into the migration table of the old layout in addition to
+     * the history table, e.g. while instances of older versions are running. Default is true.
+     *
+     * @param legacyMigrationTable enable/disable writing the migration table of the old layout
+     */
+    public void setLegacyMigrationTable(boolean legacyMigrationTable) {
+        this.legacyMigrationTable = legacyMigrationTable;
+    }
+
+    /**
+     * @return true if only the scripts newer than the version of the database are scanned
+     */
+    public boolean isScanPendingOnly() {
+        return scanPendingOnly;
+    }
+
+    /**
+     * Sets whether the scripts are scanned only after the version of the database was read, keeping only
+     * the scripts with a newer version. Duplicate versions are then only detected among these scripts.
+     * Default is false.
+     *
+     * @param scanPendingOnly enable/disable scanning only the pending scripts
+     */
+    public void setScanPendingOnly(boolean scanPendingOnly) {
+        this.scanPendingOnly = scanPendingOnly;
+    }
+
+    /**
+     * @return true if the setup of the database is deferred until a migration is required
+     */
+    public boolean isLazyInitialization() {
+        return lazyInitialization;
+    }
+
+    /**
+     * Sets whether creating the keyspace and the migration tables and preparing the statements is deferred
+     * until a migration is required, so an up to date keyspace costs a single read on startup. Default is false.
+     *
+     * @param lazyInitialization enable/disable deferring the setup of the database
+     */
+    public void setLazyInitialization(boolean lazyInitialization) {
+        this.lazyInitialization = lazyInitialization;
+    }
+
+    /**
+     * @return true if the session of the application is used for migrations without changing or closing it
+     */
+    public boolean isBorrowSession() {
+        return borrowSession;
+    }
+
+    /**
+     * Sets whether the primary session of the application is used for migrations instead of a dedicated session
+     * named <code>cassandraMigrationCqlSession</code>. The session is neither closed nor is its keyspace changed.
+     * This requires protocol version V5 or a session that is connected to the migrated keyspace and a unique or
+     * primary session in the application context. Default is false.
+     *
+     * @param borrowSession enable/disable using the session of the application
+     */
+    public void setBorrowSession(boolean borrowSession) {
+        this.borrowSession = borrowSession;
+    }
+
+    /**
+     * @return the request timeout of the session that is created if no session is provided for migrations
+     */
+    public Duration getSessionRequestTimeout() {
+        return sessionRequestTimeout;
+    }
+
+    /**
+     * Sets the request timeout of the session that is created for migrations if neither a session named
+     * <code>cassandraMigrationCqlSession</code> is provided nor the session of the application is borrowed.
+     * Default is 30 seconds.
+     *
+     * @param sessionRequestTimeout the request timeout. Must be greater than zero.
+     */
+    public void setSessionRequestTimeout(Duration sessionRequestTimeout) {
+        this.sessionRequestTimeout = sessionRequestTimeout;
+    }
+
+    /**
+     * @return true if the schema is refreshed once after the migration instead of after every schema change
+     */
+    public boolean isDeferSchemaRefresh() {
+        return deferSchemaRefresh;
+    }
+
+    /**
+     * Sets whether the schema metadata of the session is disabled while migrating and refreshed once afterwards.
+     * Default is false.
+     *
+     * @param deferSchemaRefresh enable/disable deferring the schema refresh to the end of the migration
+     */
+    public void setDeferSchemaRefresh(boolean deferSchemaRefresh) {
+        this.deferSchemaRefresh = deferSchemaRefresh;
+    }
+
+    /**
+     * @return the time between two checks of the schema versions while waiting for schema agreement
+     */
+    public Duration getSchemaAgreementPollInterval() {
+        return schemaAgreementPollInterval;
+    }
+
+    /**
+     * Sets the time between two checks of the schema versions while waiting for schema agreement.
+     * Default is 50 milliseconds.
+     *
+     * @param schemaAgreementPollInterval the poll interval. Must be greater than zero.
+     */
+    public void setSchemaAgreementPollInterval(Duration schemaAgreementPollInterval) {
+        this.schemaAgreementPollInterval = schemaAgreementPollInterval;
+    }
+
+    /**
+     * @return the datacenter whose nodes have to agree on the schema or null if all nodes have to agree
+     */
+    public String getSchemaAgreementDatacenter() {
+        return schemaAgreementDatacenter;
+    }
+
+    /**
+     * Limits the schema agreement check to the nodes of one datacenter. Default is null, all nodes have to agree.
+     *
+     * @param schemaAgreementDatacenter the name of the datacenter
+     */
+    public void setSchemaAgreementDatacenter(String schemaAgreementDatacenter) {
+        this.schemaAgreementDatacenter = schemaAgreementDatacenter;
+    }
 }
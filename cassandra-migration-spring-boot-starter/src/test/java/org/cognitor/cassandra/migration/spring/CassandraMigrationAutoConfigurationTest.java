@@ -15,6 +15,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -28,6 +29,7 @@ import static org.cognitor.cassandra.migration.spring.CassandraMigrationAutoConf
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author Patrick Kranz
@@ -217,6 +219,21 @@ public class CassandraMigrationAutoConfigurationTest {
         session.close();
     }
 
+    @Test
+    public void shouldFailWhenSessionBorrowedAndApplicationHasNoUniqueSession() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        TestPropertyValues testValues = TestPropertyValues.of("cassandra.migration.keyspace-name:" + KEYSPACE,
+                "cassandra.migration.script-location:cassandra/migration",
+                "cassandra.migration.borrow-session:true");
+        testValues.applyTo(context);
+        context.register(ClusterConfig.class, SecondSessionConfig.class, CassandraMigrationAutoConfiguration.class);
+
+        BeanCreationException exception = assertThrows(BeanCreationException.class, context::refresh);
+        assertThat(exception.getMostSpecificCause(), is(instanceOf(IllegalStateException.class)));
+        assertThat(exception.getMostSpecificCause().getMessage(), containsString("borrow-session"));
+        assertThat(session.getMetadata().getKeyspace(KEYSPACE).isPresent(), is(false));
+    }
+
     private static CqlSession createSession() {
         return new ClusterConfig().session();
     }
@@ -239,4 +256,13 @@ public class CassandraMigrationAutoConfigurationTest {
                     .build();
         }
     }
+
+    @Configuration
+    static class SecondSessionConfig {
+
+        @Bean
+        public CqlSession applicationSession() {
+            return createSession();
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package org.cognitor.cassandra.migration.spring;
 
 import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import org.cognitor.cassandra.migration.SchemaAgreementPolicy;
+import org.cognitor.cassandra.migration.ScriptStorage;
 import org.cognitor.cassandra.migration.keyspace.NetworkStrategy;
 import org.cognitor.cassandra.migration.keyspace.ReplicationStrategy;
 import org.cognitor.cassandra.migration.keyspace.SimpleStrategy;
@@ -8,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -122,4 +125,62 @@ public class CassandraMigrationConfigurationPropertiesTest {
         assertThat(properties.isWithConsensus(), is(false));
         assertThat(properties.getExecutionProfileName(), is(nullValue()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldPopulateExecutionPropertiesWhenPropertiesGiven() {
+        AnnotationConfigApplicationContext context =
+                new AnnotationConfigApplicationContext();
+        TestPropertyValues testValues = TestPropertyValues.of(
+                "cassandra.migration.statement-concurrency:16",
+                "cassandra.migration.schema-agreement-policy:AFTER_SCRIPT",
+                "cassandra.migration.schema-agreement-timeout:30s",
+                "cassandra.migration.version-probe-consistency-level:LOCAL_ONE",
+                "cassandra.migration.lead-ttl:45s",
+                "cassandra.migration.lead-wait-initial-delay:1s",
+                "cassandra.migration.lead-wait-max-delay:20s",
+                "cassandra.migration.lead-wait-jitter:0.25",
+                "cassandra.migration.resume-failed-scripts:true",
+                "cassandra.migration.use-index:true",
+                "cassandra.migration.work-sharing:true",
+                "cassandra.migration.rate-limit:250.5",
+                "cassandra.migration.rate-limit-latency-threshold:100ms",
+                "cassandra.migration.script-storage:COMPRESSED",
+                "cassandra.migration.validate-on-migrate:true",
+                "cassandra.migration.legacy-migration-table:false",
+                "cassandra.migration.scan-pending-only:true",
+                "cassandra.migration.lazy-initialization:true",
+                "cassandra.migration.borrow-session:true",
+                "cassandra.migration.session-request-timeout:1m",
+                "cassandra.migration.defer-schema-refresh:true",
+                "cassandra.migration.schema-agreement-poll-interval:20ms",
+                "cassandra.migration.schema-agreement-datacenter:dc1");
+        testValues.applyTo(context);
+        context.register(CassandraMigrationAutoConfiguration.class);
+        context.refresh();
+        CassandraMigrationConfigurationProperties properties =
+                context.getBean(CassandraMigrationConfigurationProperties.class);
+        assertThat(properties.getStatementConcurrency(), is(16));
+        assertThat(properties.getSchemaAgreementPolicy(), is(equalTo(SchemaAgreementPolicy.AFTER_SCRIPT)));
+        assertThat(properties.getSchemaAgreementTimeout(), is(equalTo(Duration.ofSeconds(30))));
+        assertThat(properties.getVersionProbeConsistencyLevel(), is(equalTo(DefaultConsistencyLevel.LOCAL_ONE)));
+        assertThat(properties.getLeadTtl(), is(equalTo(Duration.ofSeconds(45))));
+        assertThat(properties.getLeadWaitInitialDelay(), is(equalTo(Duration.ofSeconds(1))));
+        assertThat(properties.getLeadWaitMaxDelay(), is(equalTo(Duration.ofSeconds(20))));
+        assertThat(properties.getLeadWaitJitter(), is(equalTo(0.25)));
+        assertThat(properties.isResumeFailedScripts(), is(true));
+        assertThat(properties.isUseIndex(), is(true));
+        assertThat(properties.isWorkSharing(), is(true));
+        assertThat(properties.getRateLimit(), is(equalTo(250.5)));
+        assertThat(properties.getRateLimitLatencyThreshold(), is(equalTo(Duration.ofMillis(100))));
+        assertThat(properties.getScriptStorage(), is(equalTo(ScriptStorage.COMPRESSED)));
+        assertThat(properties.isValidateOnMigrate(), is(true));
+        assertThat(properties.isLegacyMigrationTable(), is(false));
+        assertThat(properties.isScanPendingOnly(), is(true));
+        assertThat(properties.isLazyInitialization(), is(true));
+        assertThat(properties.isBorrowSession(), is(true));
+        assertThat(properties.getSessionRequestTimeout(), is(equalTo(Duration.ofMinutes(1))));
+        assertThat(properties.isDeferSchemaRefresh(), is(true));
+        assertThat(properties.getSchemaAgreementPollInterval(), is(equalTo(Duration.ofMillis(20))));
+        assertThat(properties.getSchemaAgreementDatacenter(), is(equalTo("dc1")));
+    }
+}
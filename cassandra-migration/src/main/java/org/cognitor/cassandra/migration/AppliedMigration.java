@@ -0,0 +1,39 @@
+package org.cognitor.cassandra.migration;
+
+/**
+ * A migration that was applied successfully according to the migration table, without the content
+ * of the script.
+ */
+class AppliedMigration {
+    private final int version;
+    private final String scriptName;
+    private final String scriptChecksum;
+
+    AppliedMigration(int version, String scriptName, String scriptChecksum) {
+        this.version = version;
+        this.scriptName = scriptName;
+        this.scriptChecksum = scriptChecksum;
+    }
+
+    /**
+     * @return the version the migration resulted to
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the name of the script that was applied
+     */
+    String getScriptName() {
+        return scriptName;
+    }
+
+    /**
+     * @return the checksum of the script or null if the migration was applied by a version of this
+     *          library that did not record checksums
+     */
+    String getScriptChecksum() {
+        return scriptChecksum;
+    }
+}
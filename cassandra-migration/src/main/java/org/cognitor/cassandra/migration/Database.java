@@ -1,13 +1,26 @@
 package org.cognitor.cassandra.migration;
 
+import com.datastax.dse.driver.api.core.DseProtocolVersion;
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
 import com.datastax.oss.driver.api.core.DriverException;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
 import com.datastax.oss.driver.api.core.cql.*;
-import com.datastax.oss.driver.api.core.metadata.Metadata;
 import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import com.datastax.oss.driver.api.core.servererrors.OverloadedException;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
 import org.cognitor.cassandra.migration.cql.SimpleCQLLexer;
+import org.cognitor.cassandra.migration.cql.StatementType;
 import org.cognitor.cassandra.migration.keyspace.Keyspace;
+import org.cognitor.cassandra.migration.util.Checksum;
+import org.cognitor.cassandra.migration.util.ExponentialBackoff;
+import org.cognitor.cassandra.migration.util.RateLimiter;
+import org.cognitor.cassandra.migration.util.ScriptCompression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,8 +28,22 @@ import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 import static org.cognitor.cassandra.migration.util.Ensure.notNull;
@@ -35,23 +62,133 @@ public class Database implements Closeable {
      */
     private static final String SCHEMA_CF = "schema_migration";
 
+    /**
+     * The name of the table that holds every attempt to execute a migration, partitioned by buckets of versions
+     */
+    private static final String SCHEMA_HISTORY_CF = "schema_migration_history";
+
+    /**
+     * The number of consecutive versions that share a partition of the history table
+     */
+    static final int HISTORY_BUCKET_SIZE = 1000;
+
+    /**
+     * The layout of the history recorded in the version summary once the migration table was copied
+     * into the history table
+     */
+    private static final int HISTORY_LAYOUT = 2;
+
     /**
      * The name of the table that is used for leader election on migrations
      */
     private static final String SCHEMA_LEADER_CF = "schema_migration_leader";
 
+    /**
+     * The name of the table that holds a summary of the current version in a single row per keyspace
+     */
+    private static final String SCHEMA_VERSION_CF = "schema_migration_version";
+
+    /**
+     * The name of the table that records the completed token ranges of Java migrations
+     */
+    private static final String SCHEMA_PROGRESS_CF = "schema_migration_progress";
+
+    /**
+     * The name of the table that holds the compressed content of scripts
+     */
+    private static final String SCHEMA_SCRIPT_CF = "schema_migration_script";
+
+    /**
+     * The maximum size of a chunk of the compressed content of a script
+     */
+    private static final int SCRIPT_CHUNK_SIZE = 64 * 1024;
+
     /**
      * Insert statement that logs a migration into the schema_migration table.
      */
     private static final String INSERT_MIGRATION = "insert into %s"
-            + "(applied_successful, version, script_name, script, executed_at) values(?, ?, ?, ?, ?)";
+            + "(applied_successful, version, script_name, script, executed_at, last_statement_index,"
+            + " last_statement_checksum, script_checksum, duration_ms, statement_count, script_storage)"
+            + " values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Statement used to create the table that holds every attempt to execute a migration. The versions of a
+     * bucket share a partition, so the partitions stay bounded, and every attempt is a row of its own.
+     */
+    private static final String CREATE_HISTORY_CF = "CREATE TABLE IF NOT EXISTS %s"
+            + " (bucket int, version int, attempt timeuuid, applied_successful boolean, script_name varchar,"
+            + " script text, executed_at timestamp, last_statement_index int, last_statement_checksum text,"
+            + " script_checksum text, duration_ms bigint, statement_count int, script_storage text,"
+            + " PRIMARY KEY ((bucket), version, attempt)) WITH CLUSTERING ORDER BY (version DESC, attempt DESC)";
+
+    /**
+     * Insert statement that logs an attempt to execute a migration into the history table.
+     */
+    private static final String INSERT_HISTORY = "INSERT INTO %s"
+            + " (bucket, version, attempt, applied_successful, script_name, script, executed_at, last_statement_index,"
+            + " last_statement_checksum, script_checksum, duration_ms, statement_count, script_storage)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * The query that reads the attempts of a bucket without the content of the scripts, latest version first.
+     */
+    private static final String HISTORY_QUERY = "SELECT version, applied_successful, script_name, script_checksum"
+            + " FROM %s WHERE bucket = ?";
+
+    /**
+     * The query that retrieves the latest attempt to execute a script, which holds the checkpoint if it failed
+     */
+    private static final String LATEST_ATTEMPT_QUERY = "SELECT applied_successful, last_statement_index,"
+            + " last_statement_checksum, script_checksum FROM %s WHERE bucket = ? AND version = ? LIMIT 1";
+
+    /**
+     * The query that reads all entries of the migration table to copy them into the history table
+     */
+    private static final String LEGACY_MIGRATIONS_QUERY = "SELECT applied_successful, version, script_name, script,"
+            + " executed_at, last_statement_index, last_statement_checksum, script_checksum, duration_ms,"
+            + " statement_count, script_storage FROM %s";
+
+    /**
+     * The query that reads the latest successful version of the migration table
+     */
+    private static final String LEGACY_VERSION_QUERY = "SELECT version FROM %s WHERE applied_successful = True"
+            + " ORDER BY version DESC LIMIT 1";
+
+    /**
+     * The query that reads the entries of the migration table newer than a version to copy them into the
+     * history table
+     */
+    private static final String LEGACY_MIGRATIONS_SINCE_QUERY = LEGACY_MIGRATIONS_QUERY
+            + " WHERE applied_successful = ? AND version > ?";
+
+    /**
+     * The number of entries of the migration table read at once while copying them into the history table
+     */
+    private static final int LEGACY_MIGRATIONS_PAGE_SIZE = 100;
+
+    /**
+     * Statement used to add a column to the migration table if it was created by an older version
+     */
+    private static final String ADD_COLUMN = "ALTER TABLE %s ADD %s %s";
 
     /**
      * Statement used to create the table that manages the migrations.
      */
     private static final String CREATE_MIGRATION_CF = "CREATE TABLE IF NOT EXISTS %s"
             + " (applied_successful boolean, version int, script_name varchar, script text,"
-            + " executed_at timestamp, PRIMARY KEY (applied_successful, version))";
+            + " executed_at timestamp, last_statement_index int, last_statement_checksum text,"
+            + " script_checksum text, duration_ms bigint, statement_count int, script_storage text,"
+            + " PRIMARY KEY (applied_successful, version))";
+
+    /**
+     * Columns of the migration table that were added after its first release, mapped to their type.
+     */
+    private static final Map<String, String> ADDED_MIGRATION_COLUMNS = addedMigrationColumns();
+
+    /**
+     * Columns of the version table that were added after its first release, mapped to their type.
+     */
+    private static final Map<String, String> ADDED_VERSION_COLUMNS = addedVersionColumns();
 
     /**
      * Statement used to create the table that manages the leader election on migrations.
@@ -59,22 +196,136 @@ public class Database implements Closeable {
     private static final String CREATE_LEADER_CF = "CREATE TABLE IF NOT EXISTS %s"
             + " (keyspace_name text, leader uuid, took_lead_at timestamp, leader_hostname text, PRIMARY KEY (keyspace_name))";
 
+    /**
+     * Statement used to create the table that holds the summary of the current version.
+     */
+    private static final String CREATE_VERSION_CF = "CREATE TABLE IF NOT EXISTS %s"
+            + " (keyspace_name text, version int, updated_at timestamp,"
+            + " history_buckets set<int>, history_layout int, PRIMARY KEY (keyspace_name))";
+
+    /**
+     * The query that reads the summary of the current version.
+     */
+    private static final String VERSION_SUMMARY_QUERY =
+            "SELECT version, updated_at FROM %s WHERE keyspace_name = ?";
+
+    /**
+     * The query that reads the buckets of the history table that contain entries and the layout of the history.
+     */
+    private static final String HISTORY_BUCKETS_QUERY =
+            "SELECT history_buckets, history_layout FROM %s WHERE keyspace_name = ?";
+
+    /**
+     * Statement that adds a bucket of the history table to the summary.
+     */
+    private static final String REGISTER_HISTORY_BUCKET =
+            "UPDATE %s SET history_buckets = history_buckets + ? WHERE keyspace_name = ?";
+
+    /**
+     * Statement that records the layout of the history in the summary.
+     */
+    private static final String UPDATE_HISTORY_LAYOUT = "UPDATE %s SET history_layout = ? WHERE keyspace_name = ?";
+
+    /**
+     * Statement that updates the version of the summary.
+     */
+    private static final String UPDATE_VERSION_SUMMARY =
+            "UPDATE %s SET version = ?, updated_at = ? WHERE keyspace_name = ?";
+
+    /**
+     * Statement used to create the table that holds the compressed content of scripts by their checksum.
+     */
+    private static final String CREATE_SCRIPT_CF = "CREATE TABLE IF NOT EXISTS %s"
+            + " (script_checksum text, chunk int, data blob, PRIMARY KEY (script_checksum, chunk))";
+
+    /**
+     * Statement that stores a chunk of the compressed content of a script.
+     */
+    private static final String INSERT_SCRIPT_CHUNK =
+            "INSERT INTO %s (script_checksum, chunk, data) VALUES (?, ?, ?)";
+
+    /**
+     * The query that checks if a chunk of the compressed content of a script is stored.
+     */
+    private static final String SCRIPT_CHUNK_QUERY =
+            "SELECT chunk FROM %s WHERE script_checksum = ? AND chunk = ?";
+
+    /**
+     * The query that reads all chunks of the compressed content of a script.
+     */
+    private static final String SCRIPT_CHUNKS_QUERY = "SELECT data FROM %s WHERE script_checksum = ?";
+
+    /**
+     * Statement used to create the table that records the completed token ranges of Java migrations.
+     */
+    private static final String CREATE_PROGRESS_CF = "CREATE TABLE IF NOT EXISTS %s"
+            + " (version int, task text, range_start text, range_end text, processed_rows bigint,"
+            + " completed_at timestamp, owner uuid, PRIMARY KEY ((version, task), range_start, range_end))";
+
+    /**
+     * The query that reads the token ranges of a task of a Java migration.
+     */
+    private static final String RANGES_QUERY =
+            "SELECT range_start, range_end, owner, completed_at FROM %s WHERE version = ? AND task = ?";
+
+    /**
+     * Statement that publishes a token range of a task of a Java migration as work unit. It is a lightweight
+     * transaction like all other writes to published ranges, as mixing them with plain writes on the same
+     * cells is not safe.
+     */
+    private static final String PUBLISH_RANGE = "INSERT INTO %s (version, task, range_start, range_end)"
+            + " VALUES (?, ?, ?, ?) IF NOT EXISTS";
+
+    /**
+     * The query that attempts to claim a published token range
+     */
+    private static final String CLAIM_RANGE_QUERY = "UPDATE %s USING TTL ? SET owner = ? WHERE version = ?"
+            + " AND task = ? AND range_start = ? AND range_end = ? IF owner = null AND completed_at = null";
+
+    /**
+     * The query that renews the claim on a token range by extending its TTL
+     */
+    private static final String RENEW_RANGE_CLAIM_QUERY = "UPDATE %s USING TTL ? SET owner = ? WHERE version = ?"
+            + " AND task = ? AND range_start = ? AND range_end = ? IF owner = ?";
+
+    /**
+     * The number of work units published with one batch. All units of a task are in the same partition.
+     */
+    private static final int PUBLISH_BATCH_SIZE = 100;
+
+    /**
+     * Statement that records a completed token range of a task of a Java migration.
+     */
+    private static final String INSERT_COMPLETED_RANGE = "INSERT INTO %s"
+            + " (version, task, range_start, range_end, processed_rows, completed_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Statement that records a completed token range that was claimed by this instance, used with work sharing
+     */
+    private static final String COMPLETE_CLAIMED_RANGE = "UPDATE %s SET processed_rows = ?, completed_at = ?"
+            + " WHERE version = ? AND task = ? AND range_start = ? AND range_end = ? IF owner = ?";
+
     /**
      * The query that attempts to get the lead on schema migrations
      */
     private static final String TAKE_LEAD_QUERY =
-            "INSERT INTO %s (keyspace_name, leader, took_lead_at, leader_hostname) VALUES (?, ?, toTimestamp(now()), ?) IF NOT EXISTS USING TTL %s";
+            "INSERT INTO %s (keyspace_name, leader, took_lead_at, leader_hostname) VALUES (?, ?, ?, ?) IF NOT EXISTS USING TTL ?";
 
     /**
-     * The query that releases the lead on schema migrations
+     * The query that renews the lead on schema migrations by extending its TTL
      */
-    private static final String RELEASE_LEAD_QUERY = "DELETE FROM %s where keyspace_name = ? IF leader = ?";
+    private static final String RENEW_LEAD_QUERY = "UPDATE %s USING TTL ? SET leader = ?, took_lead_at = ?, "
+            + "leader_hostname = ? WHERE keyspace_name = ? IF leader = ?";
 
     /**
-     * The query that retrieves current schema version
+     * The query that checks if an instance holds the lead on schema migrations
      */
-    private static final String VERSION_QUERY = "select version from %s where applied_successful = True "
-            + "order by version desc limit 1";
+    private static final String LEADER_QUERY = "SELECT leader FROM %s WHERE keyspace_name = ?";
+
+    /**
+     * The query that releases the lead on schema migrations
+     */
+    private static final String RELEASE_LEAD_QUERY = "DELETE FROM %s where keyspace_name = ? IF leader = ?";
 
     /**
      * Error message that is thrown if there is an error during the migration
@@ -82,29 +333,79 @@ public class Database implements Closeable {
     private static final String MIGRATION_ERROR_MSG = "Error during migration of script %s while executing '%s'";
 
     /**
-     * TTL of the inserts in the schema leader table (if consensus is used for the migration), in seconds.
+     * Error message that is thrown if a Java migration fails
      */
-    private static final int LEAD_TTL = 300;
+    private static final String JAVA_MIGRATION_ERROR_MSG = "Error during Java migration %s";
 
     /**
-     * Wait time between attempts to take the lead on schema migrations (in milliseconds)
+     * Error message that is thrown if a borrowed session can neither set the keyspace per request nor is
+     * connected to the migrated keyspace.
      */
-    private static final int TAKE_LEAD_WAIT_TIME = 10000;
+    private static final String BORROWED_SESSION_ERROR_MSG = "The borrowed session does not support a keyspace "
+            + "per request and is not connected to keyspace %s. Use protocol version V5 or connect the session "
+            + "to the keyspace.";
 
     private final UUID instanceId = UUID.randomUUID();
     private final String instanceAddress;
     private final String tableName;
+    private final String historyTableName;
     private final String leaderTableName;
+    private final String versionTableName;
+    private final String progressTableName;
+    private final String scriptTableName;
     private final String keyspaceName;
     private final Keyspace keyspace;
     private final CqlSession session;
     private final ConsistencyLevel consistencyLevel = ConsistencyLevel.QUORUM;
-    private final PreparedStatement logMigrationStatement;
-    private final PreparedStatement takeMigrationLeadStatement;
-    private final PreparedStatement releaseMigrationLeadStatement;
+    private PreparedStatement logMigrationStatement;
+    private PreparedStatement insertHistoryStatement;
+    private PreparedStatement historyStatement;
+    private PreparedStatement legacyVersionStatement;
+    private PreparedStatement legacyMigrationsSinceStatement;
+    private PreparedStatement latestAttemptStatement;
+    private PreparedStatement historyBucketsStatement;
+    private PreparedStatement registerHistoryBucketStatement;
+    private PreparedStatement updateHistoryLayoutStatement;
+    private final Set<Integer> registeredHistoryBuckets = new HashSet<>();
+    private PreparedStatement takeMigrationLeadStatement;
+    private PreparedStatement releaseMigrationLeadStatement;
+    private PreparedStatement renewMigrationLeadStatement;
+    private PreparedStatement leaderStatement;
+    private PreparedStatement versionSummaryStatement;
+    private PreparedStatement updateVersionSummaryStatement;
+    private PreparedStatement rangesStatement;
+    private PreparedStatement logCompletedRangeStatement;
+    private PreparedStatement completeClaimedRangeStatement;
+    private PreparedStatement publishRangeStatement;
+    private PreparedStatement claimRangeStatement;
+    private PreparedStatement renewRangeClaimStatement;
+    private PreparedStatement insertScriptChunkStatement;
+    private PreparedStatement scriptChunkStatement;
+    private PreparedStatement scriptChunksStatement;
+    private final ConsistencyLevel versionProbeConsistencyLevel;
+    private final int statementConcurrency;
+    private final boolean resumeFailedScripts;
+    private final boolean workSharing;
+    private final boolean validateOnMigrate;
+    private final boolean legacyMigrationTable;
+    private final ScriptStorage scriptStorage;
+    private final boolean sharedSession;
+    private final boolean borrowedSession;
+    private final CqlIdentifier statementKeyspace;
     private String executionProfileName;
     private ConsistencyLevel migrationConsistencyLevel = ConsistencyLevel.QUORUM;
+    private final SchemaAgreementTracker schemaAgreementTracker;
+    private final SchemaInspector schemaInspector;
+    private final int leadTtlSeconds;
+    private final LeadHeartbeat leadHeartbeat;
+    private final ExponentialBackoff leadWaitBackoff;
+    private final RateLimiter rateLimiter;
+    private final boolean lazyInitialization;
+    private final boolean deferredSchemaRefresh;
+    private boolean schemaRefreshSuspended = false;
+    private boolean initialized = false;
     private boolean tookLead = false;
+    private Instant tookLeadAt;
 
     /**
      * Deprecated in favour of <code>Database(CqlSession, MigrationConfiguration)</code>. This constructor
@@ -151,15 +452,32 @@ public class Database implements Closeable {
      * Create a new instance of the database by using the provided <code>CqlSession</code> and
      * {@link MigrationConfiguration}. Be aware that the CqlSession might be required to change
      * the keyspace so usually you want this CqlSession to be different from the CqlSession
-     * that will be used inside the application.
+     * that will be used inside the application. If the session is borrowed according to the configuration,
+     * it is neither changed nor closed and can be the session of the application.
      *
      * The constructor will take care of creating all required tables inside the database to manage
-     * versioning inside Cassandra.
+     * versioning inside Cassandra unless lazy initialization is enabled in the configuration. In that case the
+     * tables are created right before they are needed.
      *
      * @param session the cql session that is connected to the cassandra instance. Must not be null.
      * @param configuration the configuration to be used. Must not be null and must be valid.
      */
     public Database(CqlSession session, MigrationConfiguration configuration) {
+        this(session, configuration, configuration.isBorrowedSession());
+    }
+
+    /**
+     * Create a new instance of the database that may share the given session with other instances. A shared
+     * session is never closed by this instance. If the protocol version of the session supports a keyspace per
+     * request, the migration statements are executed with the keyspace set on the statement and the session
+     * keyspace is not changed. Otherwise a <code>USE &lt;keyspace&gt;</code> is issued as usual and the
+     * caller has to make sure that no other instance uses the session at the same time.
+     *
+     * @param session the cql session that is connected to the cassandra instance. Must not be null.
+     * @param configuration the configuration to be used. Must not be null and must be valid.
+     * @param sharedSession true if the session is shared and must not be changed or closed by this instance
+     */
+    Database(CqlSession session, MigrationConfiguration configuration, boolean sharedSession) {
         this.session = notNull(session, "session");
         if (!configuration.isValid()) {
             throw new IllegalArgumentException("The provided configuration is invalid. Please check if all required values are" +
@@ -168,14 +486,42 @@ public class Database implements Closeable {
         this.keyspace = configuration.getKeyspace();
         this.keyspaceName = keyspace.getKeyspaceName();
         this.executionProfileName = configuration.getExecutionProfile();
+        this.statementConcurrency = configuration.getStatementConcurrency();
+        this.resumeFailedScripts = configuration.isResumeFailedScripts();
+        this.workSharing = configuration.isWorkSharing();
+        this.validateOnMigrate = configuration.isValidateOnMigrate();
+        this.legacyMigrationTable = configuration.isLegacyMigrationTable();
+        this.scriptStorage = configuration.getScriptStorage();
+        this.schemaAgreementTracker = new SchemaAgreementTracker(configuration.getSchemaAgreementPolicy(),
+                new SchemaAgreementProbe(session, configuration.getSchemaAgreementTimeout(),
+                        configuration.getSchemaAgreementPollInterval(), configuration.getSchemaAgreementDatacenter()));
+        this.schemaInspector = new SchemaInspector(session, keyspaceName);
         this.tableName = createTableName(configuration.getTablePrefix(), SCHEMA_CF);
+        this.historyTableName = createTableName(configuration.getTablePrefix(), SCHEMA_HISTORY_CF);
         this.leaderTableName = createTableName(configuration.getTablePrefix(), SCHEMA_LEADER_CF);
-        createKeyspaceIfRequired();
-        useKeyspace();
-        ensureSchemaTables();
-        this.logMigrationStatement = this.session.prepare(format(INSERT_MIGRATION, getTableName()));
-        this.takeMigrationLeadStatement = session.prepare(format(TAKE_LEAD_QUERY, getLeaderTableName(), LEAD_TTL));
-        this.releaseMigrationLeadStatement = session.prepare(format(RELEASE_LEAD_QUERY, getLeaderTableName()));
+        this.versionTableName = createTableName(configuration.getTablePrefix(), SCHEMA_VERSION_CF);
+        this.progressTableName = createTableName(configuration.getTablePrefix(), SCHEMA_PROGRESS_CF);
+        this.scriptTableName = createTableName(configuration.getTablePrefix(), SCHEMA_SCRIPT_CF);
+        this.versionProbeConsistencyLevel = configuration.getVersionProbeConsistencyLevel();
+        this.leadTtlSeconds = (int) configuration.getLeadTtl().getSeconds();
+        this.leadHeartbeat = new LeadHeartbeat(this::renewLeadOnMigrations, configuration.getLeadTtl());
+        this.leadWaitBackoff = new ExponentialBackoff(configuration.getLeadWaitInitialDelay(),
+                configuration.getLeadWaitMaxDelay(), configuration.getLeadWaitJitter());
+        this.rateLimiter = configuration.getRateLimit() > 0
+                ? new RateLimiter(configuration.getRateLimit(), configuration.getRateLimitLatencyThreshold()) : null;
+        this.sharedSession = sharedSession;
+        this.borrowedSession = configuration.isBorrowedSession();
+        this.statementKeyspace = sharedSession && supportsPerRequestKeyspace(session)
+                ? CqlIdentifier.fromCql(keyspaceName) : null;
+        if (borrowedSession && statementKeyspace == null && !isSessionKeyspace()) {
+            throw new IllegalArgumentException(format(BORROWED_SESSION_ERROR_MSG, keyspaceName));
+        }
+        this.lazyInitialization = configuration.isLazyInitialization();
+        this.deferredSchemaRefresh = configuration.isDeferredSchemaRefresh();
+        if (borrowedSession && deferredSchemaRefresh) {
+            LOGGER.warn("The schema refresh is deferred on a borrowed session. The schema metadata of the session"
+                    + " is disabled for the whole application until the migration is done.");
+        }
         String tmpInstanceAddress;
         try {
             tmpInstanceAddress = InetAddress.getLocalHost().getHostAddress();
@@ -184,6 +530,53 @@ public class Database implements Closeable {
             tmpInstanceAddress = "unknown";
         }
         this.instanceAddress = tmpInstanceAddress;
+        if (!lazyInitialization) {
+            ensureInitialized();
+        }
+    }
+
+    /**
+     * Creates the keyspace and the migration tables if required, changes the keyspace of the session
+     * and prepares the statements. This is done only once, either when this instance is created or, if lazy
+     * initialization is enabled, the first time a migration table is accessed with a prepared statement.
+     */
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        createKeyspaceIfRequired();
+        if (statementKeyspace == null && !borrowedSession) {
+            useKeyspace();
+        }
+        ensureSchemaTables();
+        this.logMigrationStatement = this.session.prepare(format(INSERT_MIGRATION, qualified(getTableName())));
+        this.insertHistoryStatement = session.prepare(format(INSERT_HISTORY, qualified(getHistoryTableName())));
+        this.historyStatement = session.prepare(format(HISTORY_QUERY, qualified(getHistoryTableName())));
+        this.latestAttemptStatement = session.prepare(format(LATEST_ATTEMPT_QUERY, qualified(getHistoryTableName())));
+        if (legacyMigrationTable) {
+            this.legacyVersionStatement = session.prepare(format(LEGACY_VERSION_QUERY, qualified(getTableName())));
+            this.legacyMigrationsSinceStatement =
+                    session.prepare(format(LEGACY_MIGRATIONS_SINCE_QUERY, qualified(getTableName())));
+        }
+        this.historyBucketsStatement =
+                session.prepare(format(HISTORY_BUCKETS_QUERY, qualified(getVersionTableName())));
+        this.registerHistoryBucketStatement =
+                session.prepare(format(REGISTER_HISTORY_BUCKET, qualified(getVersionTableName())));
+        this.updateHistoryLayoutStatement =
+                session.prepare(format(UPDATE_HISTORY_LAYOUT, qualified(getVersionTableName())));
+        this.takeMigrationLeadStatement = session.prepare(format(TAKE_LEAD_QUERY, qualified(getLeaderTableName())));
+        this.releaseMigrationLeadStatement = session.prepare(format(RELEASE_LEAD_QUERY, qualified(getLeaderTableName())));
+        this.renewMigrationLeadStatement = session.prepare(format(RENEW_LEAD_QUERY, qualified(getLeaderTableName())));
+        this.leaderStatement = session.prepare(format(LEADER_QUERY, qualified(getLeaderTableName())));
+        this.versionSummaryStatement = session.prepare(format(VERSION_SUMMARY_QUERY, qualified(getVersionTableName())));
+        this.updateVersionSummaryStatement =
+                session.prepare(format(UPDATE_VERSION_SUMMARY, qualified(getVersionTableName())));
+        copyMigrationTableIntoHistory();
+        initialized = true;
+    }
+
+    private boolean isSessionKeyspace() {
+        return session.getKeyspace().map(CqlIdentifier.fromCql(keyspaceName)::equals).orElse(false);
     }
 
     private void useKeyspace() {
@@ -191,6 +584,61 @@ public class Database implements Closeable {
         session.execute("USE " + keyspaceName);
     }
 
+    /**
+     * Indicates if the protocol version negotiated by the given session allows to set the keyspace
+     * on a single statement instead of changing the keyspace of the whole session.
+     *
+     * @param session the session to check. Must not be null.
+     * @return true if a keyspace can be set per request, false otherwise
+     */
+    static boolean supportsPerRequestKeyspace(CqlSession session) {
+        return supportsPerRequestKeyspace(notNull(session, "session").getContext().getProtocolVersion());
+    }
+
+    /**
+     * A keyspace per request was introduced with protocol version 5 (Cassandra 4.0) and DSE protocol version 2.
+     * Unknown protocol versions are treated as not supporting it, so the keyspace of the session is changed instead.
+     *
+     * @param protocolVersion the protocol version. Must not be null.
+     * @return true if a keyspace can be set per request, false otherwise
+     */
+    static boolean supportsPerRequestKeyspace(ProtocolVersion protocolVersion) {
+        notNull(protocolVersion, "protocolVersion");
+        if (protocolVersion instanceof DefaultProtocolVersion) {
+            return protocolVersion.getCode() >= DefaultProtocolVersion.V5.getCode();
+        }
+        return protocolVersion == DseProtocolVersion.DSE_V2;
+    }
+
+    private static Map<String, String> addedMigrationColumns() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("last_statement_index", "int");
+        columns.put("last_statement_checksum", "text");
+        columns.put("script_checksum", "text");
+        columns.put("duration_ms", "bigint");
+        columns.put("statement_count", "int");
+        columns.put("script_storage", "text");
+        return Collections.unmodifiableMap(columns);
+    }
+
+    private static Map<String, String> addedVersionColumns() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("history_buckets", "set<int>");
+        columns.put("history_layout", "int");
+        return Collections.unmodifiableMap(columns);
+    }
+
+    /**
+     * @return the bucket of the history table the given version belongs to
+     */
+    static int historyBucket(int version) {
+        return Math.floorDiv(version, HISTORY_BUCKET_SIZE);
+    }
+
+    private String qualified(String tableName) {
+        return keyspaceName + "." + tableName;
+    }
+
     private static String createTableName(String tablePrefix, String tableName) {
         if (tablePrefix == null || tablePrefix.isEmpty()) {
             return tableName;
@@ -210,31 +658,238 @@ public class Database implements Closeable {
     }
 
     private boolean keyspaceExists() {
-        return session.getMetadata().getKeyspace(keyspaceName).isPresent();
+        return schemaInspector.keyspaceExists();
     }
 
     /**
-     * Closes the underlying session object. The cluster will not be touched
-     * and will stay open. Call this after all migrations are done.
+     * Closes the underlying session object unless the session is shared with other instances.
+     * Call this after all migrations are done.
      * After calling this, this database instance can no longer be used.
      */
     public void close() {
-        this.session.close();
+        leadHeartbeat.stop();
+        resumeSchemaRefresh();
+        if (!sharedSession) {
+            this.session.close();
+        }
     }
 
     /**
      * Gets the current version of the database schema. This version is taken
-     * from the migration table and represent the latest successful entry.
+     * from the history table and represent the latest successful entry. The buckets of the history
+     * are read starting with the latest one until a successful entry is found. As long as the migration
+     * table is written, entries that instances of an older version wrote into it after it was copied are
+     * copied into the history table first.
      *
      * @return the current schema version
      */
     public int getVersion() {
-        ResultSet resultSet = executeStatement(format(VERSION_QUERY, getTableName()));
-        Row result = resultSet.one();
-        if (result == null) {
-            return 0;
+        ensureInitialized();
+        int version = getHistoryVersion();
+        if (legacyMigrationTable) {
+            return catchUpWithMigrationTable(version);
+        }
+        return version;
+    }
+
+    private int getHistoryVersion() {
+        List<Integer> buckets = readHistoryBuckets();
+        Collections.reverse(buckets);
+        for (int bucket : buckets) {
+            for (Row row : executeStatement(historyStatement.bind(bucket), this.migrationConsistencyLevel)) {
+                if (row.getBoolean("applied_successful")) {
+                    return row.getInt("version");
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Instances of an older version of this library only write the migration table, e.g. during a rolling
+     * upgrade. If the migration table contains a successful entry newer than the given version, all its entries
+     * newer than that version are copied into the history table the same way as by
+     * <code>copyMigrationTableIntoHistory()</code>.
+     *
+     * @param historyVersion the latest successful version of the history table
+     * @return the latest successful version of both tables
+     */
+    private int catchUpWithMigrationTable(int historyVersion) {
+        Row latest = executeStatement(legacyVersionStatement.bind(), this.migrationConsistencyLevel).one();
+        if (latest == null || latest.getInt("version") <= historyVersion) {
+            return historyVersion;
+        }
+        int copiedEntries = 0;
+        for (boolean appliedSuccessful : new boolean[]{true, false}) {
+            for (Row row : executeStatement(legacyMigrationsSinceStatement.bind(appliedSuccessful, historyVersion)
+                    .setPageSize(LEGACY_MIGRATIONS_PAGE_SIZE), this.consistencyLevel)) {
+                copyIntoHistory(row);
+                copiedEntries++;
+            }
+        }
+        LOGGER.info("Copied {} entries that an older version wrote into migration table {} after version {}"
+                + " into history table {}", copiedEntries, getTableName(), historyVersion, getHistoryTableName());
+        return latest.getInt("version");
+    }
+
+    /**
+     * @return the buckets of the history table that contain entries in ascending order. Never null.
+     */
+    private List<Integer> readHistoryBuckets() {
+        Row row = executeStatement(historyBucketsStatement.bind(keyspaceName), this.migrationConsistencyLevel).one();
+        if (row == null || row.isNull("history_buckets")) {
+            return new ArrayList<>();
+        }
+        List<Integer> buckets = new ArrayList<>(row.getSet("history_buckets", Integer.class));
+        Collections.sort(buckets);
+        return buckets;
+    }
+
+    /**
+     * Adds the given bucket to the buckets of the history table in the version summary before the first
+     * entry of the bucket is written, so the entry is found by <code>getVersion()</code> even if the summary
+     * itself is not updated afterwards.
+     */
+    private void registerHistoryBucket(int bucket) {
+        if (registeredHistoryBuckets.contains(bucket)) {
+            return;
+        }
+        executeStatement(registerHistoryBucketStatement.bind(Collections.singleton(bucket), keyspaceName),
+                this.migrationConsistencyLevel);
+        registeredHistoryBuckets.add(bucket);
+    }
+
+    /**
+     * Copies the entries of the migration table into the history table the first time this version of the
+     * library is used on a keyspace and records the new layout in the version summary. The attempt of a copied
+     * entry is derived from the time it was executed, so instances copying at the same time write the
+     * same rows. Entries that instances of an older version write into the migration table after the copy
+     * are copied by <code>getVersion()</code> as long as the migration table is written.
+     */
+    private void copyMigrationTableIntoHistory() {
+        Row summary = executeStatement(historyBucketsStatement.bind(keyspaceName), this.consistencyLevel).one();
+        if (summary != null && !summary.isNull("history_layout") && summary.getInt("history_layout") >= HISTORY_LAYOUT) {
+            return;
+        }
+        int copiedEntries = 0;
+        for (Row row : executeStatement(SimpleStatement.newInstance(format(LEGACY_MIGRATIONS_QUERY,
+                qualified(getTableName()))).setPageSize(LEGACY_MIGRATIONS_PAGE_SIZE), this.consistencyLevel)) {
+            copyIntoHistory(row);
+            copiedEntries++;
+        }
+        executeStatement(updateHistoryLayoutStatement.bind(HISTORY_LAYOUT, keyspaceName), this.consistencyLevel);
+        if (copiedEntries > 0) {
+            LOGGER.info("Copied {} entries of migration table {} into history table {}", copiedEntries,
+                    getTableName(), getHistoryTableName());
+        }
+    }
+
+    /**
+     * Writes the given entry of the migration table into the history table. The attempt is derived from the
+     * time the entry was executed, so copying the same entry again writes the same row.
+     */
+    private void copyIntoHistory(Row row) {
+        int version = row.getInt("version");
+        Instant executedAt = row.isNull("executed_at") ? Instant.EPOCH : row.getInstant("executed_at");
+        registerHistoryBucket(historyBucket(version));
+        executeStatement(insertHistoryStatement.bind(historyBucket(version), version,
+                Uuids.startOf(executedAt.toEpochMilli()), row.getBoolean("applied_successful"),
+                row.getString("script_name"), row.getString("script"), executedAt,
+                row.get("last_statement_index", Integer.class), row.getString("last_statement_checksum"),
+                row.getString("script_checksum"), row.get("duration_ms", Long.class),
+                row.get("statement_count", Integer.class), row.getString("script_storage")), this.consistencyLevel);
+    }
+
+    /**
+     * Gets the version of the database schema with a single read of the version summary using the configured
+     * version probe consistency level. If there is no summary yet, e.g. because the keyspace was migrated
+     * with an older version of this library, the version is taken from the migration table and the summary
+     * is created.
+     *
+     * The result might be outdated if a consistency level weaker than <code>QUORUM</code> is configured,
+     * so it should only be used to decide that nothing needs to be done. Use <code>getVersion()</code>
+     * before actually migrating.
+     *
+     * If lazy initialization is enabled and this instance was not initialized yet, the summary is read without
+     * preparing a statement. Only if there is no summary, the database is initialized.
+     *
+     * @return the current schema version according to the version summary
+     */
+    int probeVersion() {
+        VersionSummary summary = readVersionSummary(versionProbeConsistencyLevel);
+        if (summary != null) {
+            return summary.getVersion();
+        }
+        int version = getVersion();
+        LOGGER.debug("No version summary found for keyspace {}. Creating it with version {}", keyspaceName, version);
+        updateVersionSummary(version);
+        return version;
+    }
+
+    /**
+     * Reads the summary of the current version.
+     *
+     * @param consistencyLevel the consistency level used to read the summary
+     * @return the summary or null if no summary exists
+     */
+    VersionSummary readVersionSummary(ConsistencyLevel consistencyLevel) {
+        Row row = initialized ? executeStatement(versionSummaryStatement.bind(keyspaceName), consistencyLevel).one()
+                : readVersionSummaryUnprepared(consistencyLevel);
+        if (row == null || row.isNull("version")) {
+            return null;
         }
-        return result.getInt(0);
+        return new VersionSummary(row.getInt("version"), row.getInstant("updated_at"));
+    }
+
+    /**
+     * Reads the version summary with a statement that is not prepared, so nothing has to be set up before.
+     *
+     * @return the row of the summary or null if there is no summary or the keyspace or table does not exist
+     */
+    private Row readVersionSummaryUnprepared(ConsistencyLevel consistencyLevel) {
+        return readVersionSummaryUnprepared(session, keyspaceName, getVersionTableName(), executionProfileName,
+                consistencyLevel);
+    }
+
+    /**
+     * Reads the version of the summary of the configured keyspace without creating an instance. Nothing is
+     * created and the keyspace of the session is not changed, so the versions of several keyspaces can be read
+     * before any of them is migrated.
+     *
+     * @param session       the session used to read the summary. Must not be null.
+     * @param configuration the configuration of the keyspace. Must not be null.
+     * @return the version of the summary or null if there is no summary or the keyspace or table does not exist
+     */
+    static Integer readSummaryVersion(CqlSession session, MigrationConfiguration configuration) {
+        Row row = readVersionSummaryUnprepared(notNull(session, "session"),
+                configuration.getKeyspace().getKeyspaceName(),
+                createTableName(configuration.getTablePrefix(), SCHEMA_VERSION_CF),
+                configuration.getExecutionProfile(), configuration.getVersionProbeConsistencyLevel());
+        return row == null || row.isNull("version") ? null : row.getInt("version");
+    }
+
+    private static Row readVersionSummaryUnprepared(CqlSession session, String keyspaceName, String versionTableName,
+                                                    String executionProfileName, ConsistencyLevel consistencyLevel) {
+        try {
+            return session.execute(SimpleStatement.newInstance(format(VERSION_SUMMARY_QUERY,
+                    keyspaceName + "." + versionTableName), keyspaceName)
+                    .setExecutionProfileName(executionProfileName)
+                    .setConsistencyLevel(consistencyLevel)).one();
+        } catch (InvalidQueryException exception) {
+            LOGGER.debug("Unable to read version summary of keyspace {}: {}", keyspaceName, exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sets the version of the version summary.
+     *
+     * @param version the current version of the keyspace
+     */
+    void updateVersionSummary(int version) {
+        ensureInitialized();
+        executeStatement(updateVersionSummaryStatement.bind(version, Instant.now(), keyspaceName),
+                this.migrationConsistencyLevel);
     }
 
     public String getLeaderTableName() {
@@ -254,54 +909,172 @@ public class Database implements Closeable {
         return tableName;
     }
 
+    /**
+     * @return the name of the table that holds every attempt to execute a migration
+     */
+    public String getHistoryTableName() {
+        return historyTableName;
+    }
+
+    public String getVersionTableName() {
+        return versionTableName;
+    }
+
+    public String getProgressTableName() {
+        return progressTableName;
+    }
+
+    /**
+     * @return the name of the table that holds the compressed content of scripts
+     */
+    public String getScriptTableName() {
+        return scriptTableName;
+    }
+
+    CqlSession getSession() {
+        return session;
+    }
+
+    @Nullable
+    String getExecutionProfileName() {
+        return executionProfileName;
+    }
+
+    /**
+     * @return true if the checksums of the applied scripts are validated before migrating
+     */
+    boolean isValidateOnMigrate() {
+        return validateOnMigrate;
+    }
+
+    /**
+     * Reads the version, name and checksum of all successfully applied migrations ordered by their version.
+     * This is a single read per bucket of the history table that does not include the content of the scripts.
+     * If a version was applied more than once, the latest successful attempt is returned.
+     *
+     * @return the applied migrations. Never null.
+     */
+    List<AppliedMigration> readAppliedMigrations() {
+        ensureInitialized();
+        List<AppliedMigration> appliedMigrations = new ArrayList<>();
+        for (int bucket : readHistoryBuckets()) {
+            List<AppliedMigration> bucketMigrations = new ArrayList<>();
+            for (Row row : executeStatement(historyStatement.bind(bucket), this.migrationConsistencyLevel)) {
+                int version = row.getInt("version");
+                if (!row.getBoolean("applied_successful") || (!bucketMigrations.isEmpty()
+                        && bucketMigrations.get(bucketMigrations.size() - 1).getVersion() == version)) {
+                    continue;
+                }
+                bucketMigrations.add(new AppliedMigration(version, row.getString("script_name"),
+                        row.getString("script_checksum")));
+            }
+            Collections.reverse(bucketMigrations);
+            appliedMigrations.addAll(bucketMigrations);
+        }
+        return appliedMigrations;
+    }
+
+    /**
+     * @return true if token ranges of Java migrations are shared with the instances waiting for the lead
+     */
+    boolean isWorkSharing() {
+        return workSharing;
+    }
+
     /**
      * Makes sure the schema migration tables exist. If they are not available they will be created.
      */
     private void ensureSchemaTables() {
-        if (schemaTablesIsExisting()) {
-            return;
+        if (!schemaTablesIsExisting()) {
+            createSchemaTables();
         }
-        createSchemaTables();
+        ensureTableColumns(getTableName(), ADDED_MIGRATION_COLUMNS);
+        ensureTableColumns(getVersionTableName(), ADDED_VERSION_COLUMNS);
     }
 
-    private boolean schemaTablesIsExisting() {
-        Metadata metadata = session.getMetadata();
-
-        return isTableExisting(metadata, getTableName())
-                && isTableExisting(metadata, getLeaderTableName());
+    /**
+     * Adds the columns to the given table that are missing because the table was created
+     * by an older version of this library.
+     */
+    private void ensureTableColumns(String tableName, Map<String, String> addedColumns) {
+        Set<String> columnNames = schemaInspector.findColumnNames(tableName);
+        if (columnNames == null) {
+            return;
+        }
+        for (Map.Entry<String, String> column : addedColumns.entrySet()) {
+            if (columnNames.contains(column.getKey())) {
+                continue;
+            }
+            try {
+                LOGGER.info("Adding column {} to table {}", column.getKey(), tableName);
+                executeStatement(format(ADD_COLUMN, qualified(tableName), column.getKey(), column.getValue()));
+            } catch (InvalidQueryException exception) {
+                // another instance added the column at the same time
+                LOGGER.debug("Column {} already exists: {}", column.getKey(), exception.getMessage());
+            }
+        }
     }
 
-    private boolean isTableExisting(Metadata metadata, String tableName) {
-        return metadata
-                .getKeyspace(keyspaceName)
-                .map(keyspaceMetadata -> keyspaceMetadata.getTable(tableName).isPresent())
-                .orElse(false);
+    private boolean schemaTablesIsExisting() {
+        return schemaInspector.tablesExist(getTableName(), getHistoryTableName(), getLeaderTableName(),
+                getVersionTableName());
     }
 
 
     private void createSchemaTables() {
-        executeStatement(format(CREATE_MIGRATION_CF, getTableName()));
-        executeStatement(format(CREATE_LEADER_CF, getLeaderTableName()));
+        executeStatement(format(CREATE_MIGRATION_CF, qualified(getTableName())));
+        executeStatement(format(CREATE_HISTORY_CF, qualified(getHistoryTableName())));
+        executeStatement(format(CREATE_LEADER_CF, qualified(getLeaderTableName())));
+        executeStatement(format(CREATE_VERSION_CF, qualified(getVersionTableName())));
     }
 
     /**
      * Attempts to acquire the lead on a migration through a LightWeight
      * Transaction. For this statement the consistency level of <code>QUORUM</code> is used.
+     * While another instance holds the lead, only the version summary and the leader table are read
+     * with an increasing wait time between the checks. The lightweight transaction is only attempted
+     * again once the lead was released or expired.
      *
      * @param repositoryLatestVersion the latest version number in the migration repository
      * @return if taking the lead succeeded.
      */
     boolean takeLeadOnMigrations(int repositoryLatestVersion) {
-        while (repositoryLatestVersion > getVersion()) {
+        return takeLeadOnMigrations(repositoryLatestVersion, () -> { });
+    }
+
+    /**
+     * Attempts to acquire the lead on a migration like <code>takeLeadOnMigrations(int)</code> and
+     * runs the given action every time another instance was found to hold the lead, before waiting
+     * for it again.
+     *
+     * @param repositoryLatestVersion the latest version number in the migration repository
+     * @param whileLeaderPresent      the action to run while another instance holds the lead. Must not be null.
+     * @return if taking the lead succeeded.
+     */
+    boolean takeLeadOnMigrations(int repositoryLatestVersion, Runnable whileLeaderPresent) {
+        notNull(whileLeaderPresent, "whileLeaderPresent");
+        ensureInitialized();
+        leadWaitBackoff.reset();
+        while (repositoryLatestVersion > probeVersion()) {
             try {
+                if (isLeaderPresent()) {
+                    LOGGER.info("Schema migration is locked by another instance. Waiting for it to be released...");
+                    whileLeaderPresent.run();
+                    waitForTakeLead();
+                    continue;
+                }
                 LOGGER.debug("Trying to take lead on schema migrations");
+                Instant now = Instant.now();
+                long leadRequestedAt = System.nanoTime();
                 BoundStatement boundStatement = takeMigrationLeadStatement.bind(getKeyspaceName(), this.instanceId,
-                        this.instanceAddress);
+                        now, this.instanceAddress, this.leadTtlSeconds);
                 ResultSet lwtResult = executeStatement(boundStatement, this.consistencyLevel);
 
                 if (lwtResult.wasApplied()) {
                     LOGGER.debug("Took lead on schema migrations");
                     tookLead = true;
+                    tookLeadAt = now;
+                    leadHeartbeat.start(leadRequestedAt);
                     return true;
                 }
 
@@ -317,20 +1090,51 @@ public class Database implements Closeable {
         return false;
     }
 
+    private boolean isLeaderPresent() {
+        Row row = executeStatement(leaderStatement.bind(getKeyspaceName()), this.consistencyLevel).one();
+        return row != null && !row.isNull("leader");
+    }
+
     private void waitForTakeLead() {
         try {
-            Thread.sleep(TAKE_LEAD_WAIT_TIME);
+            Thread.sleep(leadWaitBackoff.nextDelayMillis());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Extends the TTL of the lead on schema migrations. This is called periodically by the
+     * <code>LeadHeartbeat</code> while the lead is held.
+     *
+     * @return true if the lead is still held by this instance, false otherwise
+     */
+    private boolean renewLeadOnMigrations() {
+        BoundStatement boundStatement = renewMigrationLeadStatement.bind(this.leadTtlSeconds, this.instanceId,
+                this.tookLeadAt, this.instanceAddress, getKeyspaceName(), this.instanceId);
+        return executeStatement(boundStatement, this.consistencyLevel).wasApplied();
+    }
+
+    /**
+     * Makes sure the lead on schema migrations is still held if it was taken by this instance.
+     *
+     * @param scriptName the name of the script that is currently executed
+     * @throws MigrationException if the lead was lost
+     */
+    void ensureLead(String scriptName) {
+        if (tookLead && leadHeartbeat.isLost()) {
+            throw new MigrationException("Lost lead on schema migrations. Another instance might be migrating "
+                    + "the keyspace, stopping the migration.", scriptName);
+        }
+    }
+
     /**
      * Attempts to release the lead on schema migrations, if it was taken by the
      * local process.
      */
     void removeLeadOnMigrations() {
+        leadHeartbeat.stop();
         if (tookLead) {
             LOGGER.debug("Trying to release lead on schema migrations");
 
@@ -352,40 +1156,449 @@ public class Database implements Closeable {
      * Executes the given migration to the database and logs the migration along with the output in the migration table.
      * In case of an error a {@link MigrationException} is thrown with the cause of the error inside.
      *
+     * If a statement concurrency greater than one is configured, data manipulation statements are executed
+     * asynchronously while statements changing the schema wait for all previous statements to complete.
+     *
      * @param migration the migration to be executed.
      * @throws MigrationException if the migration fails
      */
     public void execute(DbMigration migration) {
         notNull(migration, "migration");
+        ensureInitialized();
+        if (migration.getJavaMigration() != null) {
+            executeJavaMigration(migration);
+            return;
+        }
         LOGGER.debug(format("About to execute migration %s to version %d", migration.getScriptName(),
                 migration.getVersion()));
+        long startNanos = System.nanoTime();
         String lastStatement = null;
+        String scriptChecksum = Checksum.of(migration.getMigrationScript());
+        Checkpoint checkpoint = Checkpoint.NONE;
+        StatementPipeline pipeline = new StatementPipeline(statementConcurrency);
         try {
-            SimpleCQLLexer lexer = new SimpleCQLLexer(migration.getMigrationScript());
-            for (String statement : lexer.getCqlQueries()) {
-                statement = statement.trim();
+            checkpoint = findCheckpoint(migration, scriptChecksum);
+            Iterator<String> statements = skipCompletedStatements(migration, checkpoint);
+            if (statements == null) {
+                checkpoint = Checkpoint.NONE;
+                statements = new SimpleCQLLexer(migration.getMigrationScript()).getCqlQueryIterator();
+            }
+            while (statements.hasNext()) {
+                String statement = statements.next().trim();
                 lastStatement = statement;
-                executeMigrationStatement(statement, migration);
+                ensureLead(migration.getScriptName());
+                if (isPipelined(statement)) {
+                    pipeline.submit(statement, executeStatementAsync(statement));
+                } else {
+                    pipeline.awaitAll();
+                    executeMigrationStatement(statement, migration);
+                    pipeline.completed(statement);
+                }
             }
-            logMigration(migration, true);
+            pipeline.awaitAll();
+            ensureLead(migration.getScriptName());
+            schemaAgreementTracker.scriptExecuted(migration.getScriptName());
+            logMigration(migration, true, checkpoint.advance(pipeline), scriptChecksum, startNanos);
+            updateVersionSummary(migration.getVersion());
             LOGGER.debug(format("Successfully applied migration %s to version %d",
                     migration.getScriptName(), migration.getVersion()));
         } catch (Exception exception) {
-            logMigration(migration, false);
-            String errorMessage = format(MIGRATION_ERROR_MSG, migration.getScriptName(), lastStatement);
-            throw new MigrationException(errorMessage, exception, migration.getScriptName(), lastStatement);
+            pipeline.awaitQuietly();
+            logMigration(migration, false, checkpoint.advance(pipeline), scriptChecksum, startNanos);
+            String failedStatement = pipeline.getFailedStatement() != null ? pipeline.getFailedStatement() : lastStatement;
+            String errorMessage = format(MIGRATION_ERROR_MSG, migration.getScriptName(), failedStatement);
+            throw new MigrationException(errorMessage, exception, migration.getScriptName(), failedStatement);
         }
     }
 
-    private void executeMigrationStatement(String statement, DbMigration migration) {
-        if (!statement.isEmpty()) {
-            ResultSet resultSet = executeStatement(statement);
-            if (!resultSet.getExecutionInfo().isSchemaInAgreement()) {
-                throw new MigrationException("Schema agreement could not be reached. " +
-                        "You might consider increasing 'maxSchemaAgreementWaitSeconds'.",
-                        migration.getScriptName());
+    /**
+     * Executes a Java migration and logs it in the migration table like a script. Java migrations keep
+     * track of their progress themselves, e.g. with a {@link TokenRangeMigration}, so no checkpoint is
+     * recorded.
+     */
+    private void executeJavaMigration(DbMigration migration) {
+        long startNanos = System.nanoTime();
+        String scriptChecksum = Checksum.of(migration.getMigrationScript());
+        try {
+            ensureLead(migration.getScriptName());
+            migration.getJavaMigration().migrate(new MigrationContext(this, migration, false));
+            ensureLead(migration.getScriptName());
+            logMigration(migration, true, Checkpoint.NONE, scriptChecksum, startNanos);
+            updateVersionSummary(migration.getVersion());
+            LOGGER.debug(format("Successfully applied Java migration %s to version %d",
+                    migration.getScriptName(), migration.getVersion()));
+        } catch (Exception exception) {
+            logMigration(migration, false, Checkpoint.NONE, scriptChecksum, startNanos);
+            throw new MigrationException(format(JAVA_MIGRATION_ERROR_MSG, migration.getScriptName()),
+                    exception, migration.getScriptName());
+        }
+    }
+
+    /**
+     * Executes the Java migration the instance holding the lead is currently executing, so that this
+     * instance processes the token ranges it can claim. Nothing is recorded in the migration table and
+     * errors are only logged, as the instance holding the lead completes the migration.
+     *
+     * @param migration the migration to assist with. Must not be null.
+     */
+    void assistJavaMigration(DbMigration migration) {
+        notNull(migration, "migration");
+        ensureInitialized();
+        LOGGER.info(format("Assisting with Java migration %s to version %d", migration.getScriptName(),
+                migration.getVersion()));
+        try {
+            migration.getJavaMigration().migrate(new MigrationContext(this, migration, true));
+        } catch (Exception exception) {
+            LOGGER.warn(format("Error while assisting with Java migration %s. The instance holding the lead"
+                    + " will process the remaining token ranges.", migration.getScriptName()), exception);
+        }
+    }
+
+    /**
+     * Reads the token ranges of a task of a Java migration that were completed before.
+     *
+     * @param version the version of the Java migration
+     * @param task    the name of the task. Must not be null.
+     * @return the end of every completed range by the start of the range. Never null.
+     */
+    Map<String, String> readCompletedTokenRanges(int version, String task) {
+        Map<String, String> completedRanges = new HashMap<>();
+        for (TokenRangeWorkUnit workUnit : readTokenRangeWorkUnits(version, task)) {
+            if (workUnit.isCompleted()) {
+                completedRanges.put(workUnit.getRangeStart(), workUnit.getRangeEnd());
             }
         }
+        return completedRanges;
+    }
+
+    /**
+     * Reads all recorded token ranges of a task of a Java migration.
+     *
+     * @param version the version of the Java migration
+     * @param task    the name of the task. Must not be null.
+     * @return the recorded ranges. Never null.
+     */
+    List<TokenRangeWorkUnit> readTokenRangeWorkUnits(int version, String task) {
+        ensureProgressTable();
+        List<TokenRangeWorkUnit> workUnits = new ArrayList<>();
+        for (Row row : executeStatement(rangesStatement.bind(version, notNull(task, "task")),
+                this.migrationConsistencyLevel)) {
+            workUnits.add(new TokenRangeWorkUnit(row.getString("range_start"), row.getString("range_end"),
+                    row.getUuid("owner"), !row.isNull("completed_at")));
+        }
+        return workUnits;
+    }
+
+    /**
+     * Publishes token ranges of a task of a Java migration as work units that can be claimed by any instance.
+     * Ranges that were published before are left unchanged.
+     *
+     * @param version the version of the Java migration
+     * @param task    the name of the task. Must not be null.
+     * @param ranges  the start and the end of every range to publish. Must not be null.
+     */
+    void publishTokenRanges(int version, String task, List<String[]> ranges) {
+        ensureProgressTable();
+        notNull(task, "task");
+        for (int index = 0; index < notNull(ranges, "ranges").size(); index += PUBLISH_BATCH_SIZE) {
+            List<String[]> chunk = ranges.subList(index, Math.min(index + PUBLISH_BATCH_SIZE, ranges.size()));
+            BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.UNLOGGED);
+            for (String[] range : chunk) {
+                batch.addStatement(publishRangeStatement.bind(version, task, range[0], range[1]));
+            }
+            if (executeStatement(batch.build(), this.consistencyLevel).wasApplied()) {
+                continue;
+            }
+            // a conditional batch is applied completely or not at all, so one range that exists already
+            // prevents all others from being published
+            for (String[] range : chunk) {
+                executeStatement(publishRangeStatement.bind(version, task, range[0], range[1]), this.consistencyLevel);
+            }
+        }
+    }
+
+    /**
+     * Attempts to claim a published token range for this instance through a lightweight transaction.
+     * The claim expires after the lead TTL unless it is renewed.
+     *
+     * @return true if the range was claimed, false if it is claimed by another instance or completed
+     */
+    boolean claimTokenRange(int version, String task, String rangeStart, String rangeEnd) {
+        ensureProgressTable();
+        return executeStatement(claimRangeStatement.bind(this.leadTtlSeconds, this.instanceId, version, task,
+                rangeStart, rangeEnd), this.consistencyLevel).wasApplied();
+    }
+
+    /**
+     * Extends the TTL of the claim on a token range.
+     *
+     * @return true if the range is still claimed by this instance, false otherwise
+     */
+    boolean renewTokenRangeClaim(int version, String task, String rangeStart, String rangeEnd) {
+        ensureProgressTable();
+        return executeStatement(renewRangeClaimStatement.bind(this.leadTtlSeconds, this.instanceId, version, task,
+                rangeStart, rangeEnd, this.instanceId), this.consistencyLevel).wasApplied();
+    }
+
+    /**
+     * @return the TTL of claims on token ranges, which is the TTL of the lead on migrations
+     */
+    Duration getTokenRangeClaimTtl() {
+        return Duration.ofSeconds(leadTtlSeconds);
+    }
+
+    /**
+     * Records a completed token range of a task of a Java migration. If work sharing is enabled, the range
+     * is only recorded as completed through a lightweight transaction if it is still claimed by this instance.
+     *
+     * @param version       the version of the Java migration
+     * @param task          the name of the task. Must not be null.
+     * @param rangeStart    the start of the range, excluded from the range. Must not be null.
+     * @param rangeEnd      the end of the range, included in the range. Must not be null.
+     * @param processedRows the number of rows inside the range
+     * @return true if the range was recorded, false if the claim on the range was lost
+     */
+    boolean logCompletedTokenRange(int version, String task, String rangeStart, String rangeEnd, long processedRows) {
+        ensureProgressTable();
+        notNull(task, "task");
+        notNull(rangeStart, "rangeStart");
+        notNull(rangeEnd, "rangeEnd");
+        if (workSharing) {
+            return executeStatement(completeClaimedRangeStatement.bind(processedRows, Instant.now(), version, task,
+                    rangeStart, rangeEnd, this.instanceId), this.consistencyLevel).wasApplied();
+        }
+        executeStatement(logCompletedRangeStatement.bind(version, task, rangeStart, rangeEnd, processedRows,
+                Instant.now()), this.migrationConsistencyLevel);
+        return true;
+    }
+
+    /**
+     * Creates the progress table the first time it is used, as it is only required by Java migrations.
+     */
+    private synchronized void ensureProgressTable() {
+        if (logCompletedRangeStatement != null) {
+            return;
+        }
+        if (!schemaInspector.tablesExist(getProgressTableName())) {
+            executeStatement(format(CREATE_PROGRESS_CF, qualified(getProgressTableName())));
+        }
+        rangesStatement = session.prepare(format(RANGES_QUERY, qualified(getProgressTableName())));
+        publishRangeStatement = session.prepare(format(PUBLISH_RANGE, qualified(getProgressTableName())));
+        claimRangeStatement = session.prepare(format(CLAIM_RANGE_QUERY, qualified(getProgressTableName())));
+        renewRangeClaimStatement = session.prepare(format(RENEW_RANGE_CLAIM_QUERY, qualified(getProgressTableName())));
+        completeClaimedRangeStatement =
+                session.prepare(format(COMPLETE_CLAIMED_RANGE, qualified(getProgressTableName())));
+        logCompletedRangeStatement = session.prepare(format(INSERT_COMPLETED_RANGE, qualified(getProgressTableName())));
+    }
+
+    /**
+     * Stores the compressed content of a script unless it was stored before. The chunks are written in
+     * their order, so the content is complete if the last chunk exists.
+     */
+    private void storeCompressedScript(String scriptChecksum, String script) {
+        ensureScriptTable();
+        List<ByteBuffer> chunks = ScriptCompression.compress(script, SCRIPT_CHUNK_SIZE);
+        if (executeStatement(scriptChunkStatement.bind(scriptChecksum, chunks.size() - 1),
+                this.migrationConsistencyLevel).one() != null) {
+            return;
+        }
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            executeStatement(insertScriptChunkStatement.bind(scriptChecksum, chunk, chunks.get(chunk)),
+                    this.migrationConsistencyLevel);
+        }
+    }
+
+    /**
+     * Reads the content of a script that was stored compressed.
+     *
+     * @param scriptChecksum the checksum of the script as logged in the migration table. Must not be null.
+     * @return the content of the script or null if it was not stored compressed
+     */
+    @Nullable
+    String readCompressedScript(String scriptChecksum) {
+        ensureInitialized();
+        ensureScriptTable();
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (Row row : executeStatement(scriptChunksStatement.bind(notNull(scriptChecksum, "scriptChecksum")),
+                this.migrationConsistencyLevel)) {
+            chunks.add(row.getByteBuffer("data"));
+        }
+        return chunks.isEmpty() ? null : ScriptCompression.decompress(chunks);
+    }
+
+    /**
+     * Creates the script table the first time it is used, as it is only required if scripts are stored compressed.
+     */
+    private synchronized void ensureScriptTable() {
+        if (insertScriptChunkStatement != null) {
+            return;
+        }
+        if (!schemaInspector.tablesExist(getScriptTableName())) {
+            executeStatement(format(CREATE_SCRIPT_CF, qualified(getScriptTableName())));
+        }
+        scriptChunkStatement = session.prepare(format(SCRIPT_CHUNK_QUERY, qualified(getScriptTableName())));
+        scriptChunksStatement = session.prepare(format(SCRIPT_CHUNKS_QUERY, qualified(getScriptTableName())));
+        insertScriptChunkStatement = session.prepare(format(INSERT_SCRIPT_CHUNK, qualified(getScriptTableName())));
+    }
+
+    /**
+     * Reads the checkpoint of the last failed execution of the given script if resuming failed scripts is
+     * enabled and the script has not changed since then.
+     */
+    private Checkpoint findCheckpoint(DbMigration migration, String scriptChecksum) {
+        if (!resumeFailedScripts) {
+            return Checkpoint.NONE;
+        }
+        Row failedExecution = executeStatement(latestAttemptStatement.bind(historyBucket(migration.getVersion()),
+                migration.getVersion()), this.migrationConsistencyLevel).one();
+        if (failedExecution == null || failedExecution.getBoolean("applied_successful")
+                || failedExecution.isNull("last_statement_index")
+                || failedExecution.getInt("last_statement_index") <= 0
+                || !scriptChecksum.equals(failedExecution.getString("script_checksum"))) {
+            return Checkpoint.NONE;
+        }
+        return new Checkpoint(failedExecution.getInt("last_statement_index"),
+                failedExecution.getString("last_statement_checksum"));
+    }
+
+    /**
+     * Creates the statements of the script and skips the statements that completed according to the
+     * checkpoint. The execution of the script continues with the failed statement.
+     *
+     * @return the remaining statements or null if the statements do not match the checkpoint
+     */
+    private Iterator<String> skipCompletedStatements(DbMigration migration, Checkpoint checkpoint) {
+        Iterator<String> statements = new SimpleCQLLexer(migration.getMigrationScript()).getCqlQueryIterator();
+        String lastCompletedStatement = null;
+        for (int index = 0; index < checkpoint.completedStatements; index++) {
+            if (!statements.hasNext()) {
+                return null;
+            }
+            lastCompletedStatement = statements.next().trim();
+        }
+        if (lastCompletedStatement != null
+                && !Checksum.of(lastCompletedStatement).equals(checkpoint.lastStatementChecksum)) {
+            return null;
+        }
+        if (checkpoint.completedStatements > 0) {
+            LOGGER.info(format("Resuming migration %s after statement %d", migration.getScriptName(),
+                    checkpoint.completedStatements));
+        }
+        return statements;
+    }
+
+    private boolean isPipelined(String statement) {
+        return statementConcurrency > 1 && StatementType.of(statement) == StatementType.DATA_MANIPULATION;
+    }
+
+    private void executeMigrationStatement(String statement, DbMigration migration) {
+        if (statement.isEmpty()) {
+            return;
+        }
+        ResultSet resultSet = executeRateLimited(migrationStatement(statement));
+        // the driver only checks the schema agreement while refreshing the schema metadata
+        Boolean agreedByDriver = session.isSchemaMetadataEnabled()
+                ? resultSet.getExecutionInfo().isSchemaInAgreement() : null;
+        schemaAgreementTracker.statementExecuted(StatementType.of(statement), agreedByDriver,
+                migration.getScriptName());
+    }
+
+    /**
+     * Disables the schema refresh of the driver until <code>resumeSchemaRefresh()</code> is called,
+     * if deferring the schema refresh is configured.
+     */
+    void suspendSchemaRefresh() {
+        if (deferredSchemaRefresh && !schemaRefreshSuspended) {
+            schemaRefreshSuspended = SchemaRefreshSuspension.suspend(session);
+        }
+    }
+
+    /**
+     * Enables the schema refresh of the driver again if it was suspended and waits until the schema was refreshed.
+     */
+    void resumeSchemaRefresh() {
+        if (schemaRefreshSuspended) {
+            schemaRefreshSuspended = false;
+            SchemaRefreshSuspension.resume(session);
+        }
+    }
+
+    /**
+     * Waits for schema agreement if a statement executed before has changed the schema and
+     * the agreement was not awaited yet. This is called by the {@link MigrationTask} once all
+     * migrations are executed.
+     *
+     * @throws MigrationException if the schema agreement could not be reached in time
+     */
+    void awaitPendingSchemaAgreement() {
+        schemaAgreementTracker.awaitPending(null);
+    }
+
+    private CompletionStage<AsyncResultSet> executeStatementAsync(String statement) throws DriverException {
+        acquireRateLimit();
+        long startNanos = System.nanoTime();
+        CompletionStage<AsyncResultSet> result = session.executeAsync(migrationStatement(statement)
+                .setExecutionProfileName(executionProfileName)
+                .setConsistencyLevel(migrationConsistencyLevel));
+        if (rateLimiter != null) {
+            result.whenComplete((resultSet, error) -> recordRateLimitedExecution(startNanos, error));
+        }
+        return result;
+    }
+
+    /**
+     * Executes a statement of a migration script within the configured rate limit.
+     */
+    private ResultSet executeRateLimited(SimpleStatement statement) throws DriverException {
+        acquireRateLimit();
+        long startNanos = System.nanoTime();
+        try {
+            ResultSet resultSet = executeStatement(statement, this.migrationConsistencyLevel);
+            recordRateLimitedExecution(startNanos, null);
+            return resultSet;
+        } catch (DriverException exception) {
+            recordRateLimitedExecution(startNanos, exception);
+            throw exception;
+        }
+    }
+
+    private void acquireRateLimit() {
+        if (rateLimiter == null) {
+            return;
+        }
+        try {
+            rateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reports the latency of a statement to an adaptive rate limiter. Timeouts and overloaded coordinators
+     * decrease the rate, other errors are not related to the load of the cluster and are ignored.
+     */
+    private void recordRateLimitedExecution(long startNanos, @Nullable Throwable error) {
+        if (rateLimiter == null) {
+            return;
+        }
+        if (error == null) {
+            rateLimiter.onSuccess(System.nanoTime() - startNanos);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof DriverTimeoutException || cause instanceof ReadTimeoutException
+                || cause instanceof WriteTimeoutException || cause instanceof OverloadedException) {
+            rateLimiter.onOverload();
+        }
+    }
+
+    private SimpleStatement migrationStatement(String statement) {
+        SimpleStatement simpleStatement = SimpleStatement.newInstance(statement);
+        if (statementKeyspace != null) {
+            return simpleStatement.setKeyspace(statementKeyspace);
+        }
+        return simpleStatement;
     }
 
     private ResultSet executeStatement(String statement) throws DriverException {
@@ -399,14 +1612,38 @@ public class Database implements Closeable {
     }
 
     /**
-     * Inserts the result of the migration into the migration table
+     * Inserts the result of the migration into the history table together with a checkpoint
+     * that allows to resume a failed script. Unless disabled, the result is also written into the migration
+     * table for instances of older versions of this library. The script itself is stored according to the configured
+     * {@link ScriptStorage}.
      *
-     * @param migration     the migration that was executed
-     * @param wasSuccessful indicates if the migration was successful or not
+     * @param migration      the migration that was executed
+     * @param wasSuccessful  indicates if the migration was successful or not
+     * @param checkpoint     the statements of the script that were executed successfully
+     * @param scriptChecksum the checksum of the migration script
+     * @param startNanos     the value of <code>System.nanoTime()</code> when the execution started
      */
-    private void logMigration(DbMigration migration, boolean wasSuccessful) {
+    private void logMigration(DbMigration migration, boolean wasSuccessful, Checkpoint checkpoint,
+                              String scriptChecksum, long startNanos) {
+        if (scriptStorage == ScriptStorage.COMPRESSED) {
+            storeCompressedScript(scriptChecksum, migration.getMigrationScript());
+        }
+        String script = scriptStorage == ScriptStorage.FULL ? migration.getMigrationScript() : null;
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Instant executedAt = Instant.now();
+        int bucket = historyBucket(migration.getVersion());
+        registerHistoryBucket(bucket);
+        executeStatement(insertHistoryStatement.bind(bucket, migration.getVersion(), Uuids.timeBased(),
+                wasSuccessful, migration.getScriptName(), script, executedAt,
+                checkpoint.completedStatements, checkpoint.lastStatementChecksum, scriptChecksum,
+                durationMillis, checkpoint.completedStatements, scriptStorage.name()), this.migrationConsistencyLevel);
+        if (!legacyMigrationTable) {
+            return;
+        }
         BoundStatement boundStatement = logMigrationStatement.bind(wasSuccessful, migration.getVersion(),
-                migration.getScriptName(), migration.getMigrationScript(), Instant.now());
+                migration.getScriptName(), script, executedAt,
+                checkpoint.completedStatements, checkpoint.lastStatementChecksum, scriptChecksum,
+                durationMillis, checkpoint.completedStatements, scriptStorage.name());
         executeStatement(boundStatement, this.migrationConsistencyLevel);
     }
 
@@ -448,4 +1685,31 @@ public class Database implements Closeable {
         this.executionProfileName = executionProfileName;
         return this;
     }
+
+    /**
+     * The number of statements of a script that were executed successfully in the order of the script
+     * and the checksum of the last of these statements.
+     */
+    private static final class Checkpoint {
+        private static final Checkpoint NONE = new Checkpoint(0, null);
+
+        private final int completedStatements;
+        private final String lastStatementChecksum;
+
+        private Checkpoint(int completedStatements, String lastStatementChecksum) {
+            this.completedStatements = completedStatements;
+            this.lastStatementChecksum = lastStatementChecksum;
+        }
+
+        /**
+         * @return a checkpoint including the statements that completed in the given pipeline after this checkpoint
+         */
+        private Checkpoint advance(StatementPipeline pipeline) {
+            if (pipeline.getCompletedStatements() == 0) {
+                return this;
+            }
+            return new Checkpoint(completedStatements + pipeline.getCompletedStatements(),
+                    Checksum.of(pipeline.getLastCompletedStatement()));
+        }
+    }
 }
@@ -5,7 +5,8 @@ import static org.cognitor.cassandra.migration.util.Ensure.notNull;
 import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
 
 /**
- * An object representing a database migration. Every script corresponds to one object of this class.
+ * An object representing a database migration. Every script and every {@link JavaMigration}
+ * corresponds to one object of this class.
  *
  * @author Patrick Kranz
  */
@@ -13,6 +14,7 @@ class DbMigration {
     private final String migrationScript;
     private final String scriptName;
     private final int version;
+    private final JavaMigration javaMigration;
 
     /**
      * Creates a new instance based on the given information.
@@ -25,6 +27,20 @@ class DbMigration {
         this.migrationScript = notNull(migrationScript, "migrationScript");
         this.scriptName = notNullOrEmpty(scriptName, "scriptName");
         this.version = version;
+        this.javaMigration = null;
+    }
+
+    /**
+     * Creates a new instance for the given Java migration. The name of its class is used as migration
+     * script.
+     *
+     * @param javaMigration the Java migration. Must not be null.
+     */
+    public DbMigration(JavaMigration javaMigration) {
+        this.javaMigration = notNull(javaMigration, "javaMigration");
+        this.scriptName = notNullOrEmpty(javaMigration.getName(), "name");
+        this.version = javaMigration.getVersion();
+        this.migrationScript = javaMigration.getClass().getName();
     }
 
     public String getMigrationScript() {
@@ -38,4 +54,11 @@ class DbMigration {
     public int getVersion() {
         return version;
     }
+
+    /**
+     * @return the Java migration or null if this migration is a script
+     */
+    public JavaMigration getJavaMigration() {
+        return javaMigration;
+    }
 }
@@ -0,0 +1,37 @@
+package org.cognitor.cassandra.migration;
+
+/**
+ * A migration step that is implemented in Java instead of a cql script, e.g. to backfill data
+ * in a way that cannot be expressed in cql. Java migrations are added to the
+ * {@link MigrationRepository} and executed ordered by their version together with the scripts.
+ * A Java migration is recorded in the migration table like a script, so it is executed only once.
+ *
+ * If a Java migration fails, it is executed again by the next migration. Use a
+ * {@link TokenRangeMigration} to process a table so that only the token ranges that were not completed
+ * before are processed again.
+ */
+public interface JavaMigration {
+
+    /**
+     * @return the schema version this migration will result to. Must not be used by another migration.
+     */
+    int getVersion();
+
+    /**
+     * The name of the migration that is used as script name in the migration table.
+     * The default is the simple name of the class.
+     *
+     * @return the name of the migration. Must not be null or empty.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Executes the migration.
+     *
+     * @param context the context providing the session and the keyspace to migrate. Never null.
+     * @throws Exception if the migration fails
+     */
+    void migrate(MigrationContext context) throws Exception;
+}
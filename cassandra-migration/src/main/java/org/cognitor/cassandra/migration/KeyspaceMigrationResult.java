@@ -0,0 +1,105 @@
+package org.cognitor.cassandra.migration;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+
+/**
+ * Describes the outcome of a migration of a single keyspace, e.g. as part of a
+ * {@link MultiKeyspaceMigrationTask}.
+ */
+public class KeyspaceMigrationResult {
+    /**
+     * The possible outcomes of the migration of a keyspace.
+     */
+    public enum Status {
+        /**
+         * The keyspace was already at the latest version of the repository.
+         */
+        UP_TO_DATE,
+        /**
+         * Migrations were applied to the keyspace.
+         */
+        MIGRATED,
+        /**
+         * Another instance took the lead on the migration and migrated the keyspace.
+         */
+        MIGRATED_BY_OTHER_INSTANCE,
+        /**
+         * The migration of the keyspace failed. The cause can be retrieved with <code>getFailure()</code>.
+         */
+        FAILED
+    }
+
+    /**
+     * The version that is reported if the version of the keyspace could not be determined.
+     */
+    public static final int UNKNOWN_VERSION = -1;
+
+    private final String keyspaceName;
+    private final Status status;
+    private final int previousVersion;
+    private final int version;
+    private final Exception failure;
+
+    KeyspaceMigrationResult(String keyspaceName, Status status, int previousVersion, int version, Exception failure) {
+        this.keyspaceName = notNullOrEmpty(keyspaceName, "keyspaceName");
+        this.status = notNull(status, "status");
+        this.previousVersion = previousVersion;
+        this.version = version;
+        this.failure = failure;
+    }
+
+    static KeyspaceMigrationResult failed(String keyspaceName, Exception failure) {
+        return new KeyspaceMigrationResult(keyspaceName, Status.FAILED, UNKNOWN_VERSION, UNKNOWN_VERSION,
+                notNull(failure, "failure"));
+    }
+
+    public String getKeyspaceName() {
+        return keyspaceName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the version of the keyspace before the migration or <code>UNKNOWN_VERSION</code> if it
+     *          could not be determined
+     */
+    public int getPreviousVersion() {
+        return previousVersion;
+    }
+
+    /**
+     * @return the version of the keyspace after the migration or <code>UNKNOWN_VERSION</code> if the
+     *          migration failed
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the reason of the failure or null if the migration did not fail
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return true if the migration of the keyspace failed, false otherwise
+     */
+    public boolean isFailed() {
+        return status == Status.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyspaceMigrationResult {" +
+                " keyspaceName='" + keyspaceName + '\'' +
+                ", status=" + status +
+                ", previousVersion=" + previousVersion +
+                ", version=" + version +
+                (failure == null ? "" : ", failure='" + failure.getMessage() + '\'') +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package org.cognitor.cassandra.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Periodically renews the lead on schema migrations while a migration is running. The lead is
+ * taken with a TTL, so a crashed instance releases it after a short time, while a long running
+ * migration keeps it as long as it is alive.
+ *
+ * The lead is considered lost if a renewal is rejected, e.g. because the lead expired and was taken
+ * by another instance, or if no renewal succeeded within the lead TTL minus one renewal interval. The TTL
+ * of a renewal starts when Cassandra applies it, so the time is taken before the renewal is sent and the
+ * interval is kept as a safety margin. Once lost, the lead is never regained by this instance and the
+ * migration has to stop.
+ */
+class LeadHeartbeat {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeadHeartbeat.class);
+
+    private final BooleanSupplier renewal;
+    private final long leadTtlNanos;
+    private final long intervalNanos;
+    private final long validityNanos;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile long lastRenewal;
+    private volatile boolean lost = false;
+
+    /**
+     * @param renewal  renews the lead and returns true if the renewal was applied. Must not be null.
+     * @param leadTtl  the TTL of the lead. Renewals happen three times within this period. Must not be null.
+     */
+    LeadHeartbeat(BooleanSupplier renewal, Duration leadTtl) {
+        this.renewal = notNull(renewal, "renewal");
+        this.leadTtlNanos = notNull(leadTtl, "leadTtl").toNanos();
+        this.intervalNanos = Math.max(1, leadTtlNanos / 3);
+        this.validityNanos = leadTtlNanos - intervalNanos;
+    }
+
+    /**
+     * Starts renewing the lead. Must be called right after the lead was taken.
+     *
+     * @param leadTakenAtNanos the value of <code>System.nanoTime()</code> before the lead was requested
+     */
+    synchronized void start(long leadTakenAtNanos) {
+        if (scheduler != null) {
+            return;
+        }
+        lastRenewal = leadTakenAtNanos;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cassandra-migration-lead-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::renew, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops renewing the lead. Does nothing if the heartbeat was not started.
+     */
+    synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * @return true if the lead was lost since the heartbeat was started
+     */
+    boolean isLost() {
+        if (!lost && scheduler != null && System.nanoTime() - lastRenewal >= validityNanos) {
+            lost = true;
+        }
+        return lost;
+    }
+
+    private void renew() {
+        if (lost) {
+            return;
+        }
+        long renewalSentAt = System.nanoTime();
+        try {
+            if (renewal.getAsBoolean()) {
+                lastRenewal = renewalSentAt;
+                return;
+            }
+            LOGGER.error("Lead on schema migrations was taken by another instance or expired");
+            lost = true;
+        } catch (RuntimeException exception) {
+            LOGGER.warn("Could not renew lead on schema migrations", exception);
+            isLost();
+        }
+    }
+}
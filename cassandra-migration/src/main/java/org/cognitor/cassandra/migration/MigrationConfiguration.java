@@ -1,6 +1,12 @@
 package org.cognitor.cassandra.migration;
 
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
 import org.cognitor.cassandra.migration.keyspace.Keyspace;
+import org.cognitor.cassandra.migration.util.ExponentialBackoff;
+import org.cognitor.cassandra.migration.util.RateLimiter;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
 
 import static org.cognitor.cassandra.migration.util.Ensure.notNull;
 import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
@@ -19,9 +25,41 @@ import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
  */
 public class MigrationConfiguration {
     public final String EMPTY_TABLE_PREFIX = "";
+    /**
+     * The time to wait for schema agreement if nothing else is configured. This matches the default of the driver.
+     */
+    public static final Duration DEFAULT_SCHEMA_AGREEMENT_TIMEOUT = Duration.ofSeconds(10);
+    /**
+     * The time between two checks of the schema agreement if nothing else is configured.
+     */
+    public static final Duration DEFAULT_SCHEMA_AGREEMENT_POLL_INTERVAL = Duration.ofMillis(50);
+    public static final Duration DEFAULT_LEAD_TTL = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_LEAD_WAIT_INITIAL_DELAY = Duration.ofMillis(200);
+    public static final Duration DEFAULT_LEAD_WAIT_MAX_DELAY = Duration.ofSeconds(5);
+    public static final double DEFAULT_LEAD_WAIT_JITTER = 0.5;
     private String tablePrefix = EMPTY_TABLE_PREFIX;
     private Keyspace keyspace;
     private String executionProfile;
+    private int statementConcurrency = 1;
+    private SchemaAgreementPolicy schemaAgreementPolicy = SchemaAgreementPolicy.AFTER_SCHEMA_CHANGE;
+    private Duration schemaAgreementTimeout = DEFAULT_SCHEMA_AGREEMENT_TIMEOUT;
+    private Duration schemaAgreementPollInterval = DEFAULT_SCHEMA_AGREEMENT_POLL_INTERVAL;
+    private String schemaAgreementDatacenter;
+    private ConsistencyLevel versionProbeConsistencyLevel = ConsistencyLevel.QUORUM;
+    private Duration leadTtl = DEFAULT_LEAD_TTL;
+    private Duration leadWaitInitialDelay = DEFAULT_LEAD_WAIT_INITIAL_DELAY;
+    private Duration leadWaitMaxDelay = DEFAULT_LEAD_WAIT_MAX_DELAY;
+    private double leadWaitJitter = DEFAULT_LEAD_WAIT_JITTER;
+    private boolean resumeFailedScripts = false;
+    private boolean workSharing = false;
+    private double rateLimit = 0;
+    private Duration rateLimitLatencyThreshold;
+    private ScriptStorage scriptStorage = ScriptStorage.FULL;
+    private boolean validateOnMigrate = false;
+    private boolean legacyMigrationTable = true;
+    private boolean lazyInitialization = false;
+    private boolean borrowedSession = false;
+    private boolean deferredSchemaRefresh = false;
 
     /**
      * Set the name of the keyspace to be used. This is just a shortcut for
@@ -78,6 +116,291 @@ public class MigrationConfiguration {
         return this;
     }
 
+    /**
+     * Sets the number of data manipulation statements (e.g. <code>INSERT</code> or <code>UPDATE</code>) of a
+     * single script that may be executed concurrently. Statements that change the schema, or that can not be
+     * identified as data manipulation, act as a barrier: all statements sent before are awaited and the statement
+     * itself is executed on its own. The default of one executes every statement after the other.
+     *
+     * Increase this value for scripts that contain many inserts, e.g. to seed reference data.
+     *
+     * @param statementConcurrency the maximum number of statements in flight. Must be at least one.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withStatementConcurrency(int statementConcurrency) {
+        if (statementConcurrency < 1) {
+            throw new IllegalArgumentException("Argument statementConcurrency must be at least 1.");
+        }
+        this.statementConcurrency = statementConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the policy that defines when the migration waits for the nodes of the cluster to agree on the schema.
+     * The default is <code>SchemaAgreementPolicy.AFTER_SCHEMA_CHANGE</code>.
+     *
+     * @param schemaAgreementPolicy the policy to be used. Must not be null.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withSchemaAgreementPolicy(SchemaAgreementPolicy schemaAgreementPolicy) {
+        this.schemaAgreementPolicy = notNull(schemaAgreementPolicy, "schemaAgreementPolicy");
+        return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for schema agreement whenever the migration waits for it itself.
+     * The default is <code>DEFAULT_SCHEMA_AGREEMENT_TIMEOUT</code>.
+     *
+     * @param schemaAgreementTimeout the maximum time to wait. Must not be null or negative.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withSchemaAgreementTimeout(Duration schemaAgreementTimeout) {
+        if (notNull(schemaAgreementTimeout, "schemaAgreementTimeout").isNegative()) {
+            throw new IllegalArgumentException("Argument schemaAgreementTimeout must not be negative.");
+        }
+        this.schemaAgreementTimeout = schemaAgreementTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the time between two checks of the schema agreement whenever the migration waits for it itself.
+     * Every check reads the schema versions of <code>system.local</code> and <code>system.peers</code> of a
+     * single node concurrently. The default is <code>DEFAULT_SCHEMA_AGREEMENT_POLL_INTERVAL</code>.
+     *
+     * @param schemaAgreementPollInterval the time between two checks. Must not be null and must be greater than zero.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withSchemaAgreementPollInterval(Duration schemaAgreementPollInterval) {
+        if (notNull(schemaAgreementPollInterval, "schemaAgreementPollInterval").isNegative()
+                || schemaAgreementPollInterval.isZero()) {
+            throw new IllegalArgumentException("Argument schemaAgreementPollInterval must be greater than zero.");
+        }
+        this.schemaAgreementPollInterval = schemaAgreementPollInterval;
+        return this;
+    }
+
+    /**
+     * Limits the schema agreement the migration waits for itself to the nodes of the given datacenter, e.g. the
+     * local one, so a slow remote datacenter does not delay every schema change. The nodes of the other datacenters
+     * catch up on their own. By default all datacenters have to agree.
+     *
+     * @param schemaAgreementDatacenter the name of the datacenter or null for all datacenters
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withSchemaAgreementDatacenter(@Nullable String schemaAgreementDatacenter) {
+        this.schemaAgreementDatacenter = schemaAgreementDatacenter;
+        return this;
+    }
+
+    /**
+     * Sets the consistency level used to read the version summary when checking if the keyspace is up to date.
+     * A weak consistency level like <code>LOCAL_ONE</code> makes this check cheaper. If the summary indicates
+     * that a migration is required, the version is confirmed with <code>QUORUM</code> before anything is
+     * executed, so a stale read never leads to a migration being applied twice.
+     * The default is <code>QUORUM</code>.
+     *
+     * @param versionProbeConsistencyLevel the consistency level to be used. Must not be null.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withVersionProbeConsistencyLevel(ConsistencyLevel versionProbeConsistencyLevel) {
+        this.versionProbeConsistencyLevel = notNull(versionProbeConsistencyLevel, "versionProbeConsistencyLevel");
+        return this;
+    }
+
+    /**
+     * Sets the TTL of the lead on schema migrations when consensus is used. While a migration is running
+     * the lead is renewed three times within this period, so a long running migration keeps the lead while
+     * the lead of a crashed instance expires after this time and another instance can take over.
+     * If a renewal fails and the lead is lost, the migration stops with a <code>MigrationException</code>.
+     * The default is <code>DEFAULT_LEAD_TTL</code>.
+     *
+     * @param leadTtl the TTL of the lead. Must not be null and at least one second.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withLeadTtl(Duration leadTtl) {
+        if (notNull(leadTtl, "leadTtl").getSeconds() < 1) {
+            throw new IllegalArgumentException("Argument leadTtl must be at least one second.");
+        }
+        if (leadTtl.getSeconds() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Argument leadTtl is too large.");
+        }
+        this.leadTtl = leadTtl;
+        return this;
+    }
+
+    /**
+     * Sets how long instances wait between checks while another instance holds the lead on schema migrations.
+     * The wait time starts with the initial delay and doubles after every check up to the maximum delay.
+     * A random part of each wait time, defined by the jitter, is removed so that instances starting at the same
+     * time do not check in lockstep. While waiting, only the version summary and the leader table are read.
+     * Taking the lead is only attempted if no other instance holds it.
+     * The defaults are <code>DEFAULT_LEAD_WAIT_INITIAL_DELAY</code>, <code>DEFAULT_LEAD_WAIT_MAX_DELAY</code>
+     * and <code>DEFAULT_LEAD_WAIT_JITTER</code>.
+     *
+     * @param initialDelay the wait time after the first check. Must not be null or negative.
+     * @param maxDelay     the maximum wait time. Must not be null or smaller than the initial delay.
+     * @param jitter       the fraction of each wait time that is randomized. Must be between 0 and 1.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withLeadWaitBackoff(Duration initialDelay, Duration maxDelay, double jitter) {
+        ExponentialBackoff.validate(initialDelay, maxDelay, jitter);
+        this.leadWaitInitialDelay = initialDelay;
+        this.leadWaitMaxDelay = maxDelay;
+        this.leadWaitJitter = jitter;
+        return this;
+    }
+
+    /**
+     * Enables resuming scripts that failed in a previous run. For every executed script the number of
+     * statements that were executed successfully and checksums of the script and of the last successful
+     * statement are stored in the migration table. If this is enabled and the script did not change since it
+     * failed, the next run continues with the failed statement instead of starting with the first statement
+     * of the script. Otherwise the script is executed from the beginning. The default is false.
+     *
+     * @param resumeFailedScripts true to continue failed scripts with the failed statement
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withResumeFailedScripts(boolean resumeFailedScripts) {
+        this.resumeFailedScripts = resumeFailedScripts;
+        return this;
+    }
+
+    /**
+     * Enables sharing the token ranges of a {@link TokenRangeMigration} between instances. This only has an
+     * effect if the migration is executed with consensus. The instance holding the lead on migrations publishes
+     * the ranges as work units in the progress table, and instances waiting for the lead execute the pending
+     * Java migration as well, processing only the units they claimed. Every unit is claimed with a
+     * lightweight transaction and a TTL of the lead TTL. The leader records the migration once all units are
+     * completed. The default is false.
+     *
+     * @param workSharing true to share token ranges with the instances waiting for the lead
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withWorkSharing(boolean workSharing) {
+        this.workSharing = workSharing;
+        return this;
+    }
+
+    /**
+     * Limits the number of statements of migration scripts that are executed per second, so that
+     * scripts with many data manipulation statements do not compete with the live traffic of the cluster
+     * at full speed. The statements used to manage the migrations are not limited. By default there is no limit.
+     *
+     * @param operationsPerSecond the maximum number of statements per second. Must be greater than zero.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withRateLimit(double operationsPerSecond) {
+        RateLimiter.validate(operationsPerSecond, null);
+        this.rateLimit = operationsPerSecond;
+        this.rateLimitLatencyThreshold = null;
+        return this;
+    }
+
+    /**
+     * Limits the number of statements of migration scripts that are executed per second like
+     * <code>withRateLimit</code>, but adapts the rate to the load of the cluster. The rate is halved if a
+     * statement takes longer than the latency threshold or fails with a timeout or because the cluster is
+     * overloaded. It grows slowly back to the maximum while the statements complete within the threshold.
+     *
+     * @param maxOperationsPerSecond the maximum number of statements per second. Must be greater than zero.
+     * @param latencyThreshold       the latency above which the rate is decreased. Must not be null and must
+     *                               be greater than zero.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withAdaptiveRateLimit(double maxOperationsPerSecond, Duration latencyThreshold) {
+        RateLimiter.validate(maxOperationsPerSecond, notNull(latencyThreshold, "latencyThreshold"));
+        this.rateLimit = maxOperationsPerSecond;
+        this.rateLimitLatencyThreshold = latencyThreshold;
+        return this;
+    }
+
+    /**
+     * Sets how the content of the scripts is stored in the migration table. Storing large data scripts
+     * compressed or not at all keeps the cells of the migration table small.
+     * The default is <code>ScriptStorage.FULL</code>.
+     *
+     * @param scriptStorage the storage to be used. Must not be null.
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withScriptStorage(ScriptStorage scriptStorage) {
+        this.scriptStorage = notNull(scriptStorage, "scriptStorage");
+        return this;
+    }
+
+    /**
+     * Sets whether the checksums of the scripts that were already applied are compared with the scripts
+     * in the repository every time the migration starts, like <code>MigrationTask.validate()</code>.
+     * The migration fails without executing anything if a script was changed after it was applied.
+     * The default is false.
+     *
+     * @param validateOnMigrate enable/disable the validation before migrating
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withValidateOnMigrate(boolean validateOnMigrate) {
+        this.validateOnMigrate = validateOnMigrate;
+        return this;
+    }
+
+    /**
+     * Sets whether migrations are still logged into the migration table of the old layout in addition
+     * to the history table. The migration table is only read to copy it into the history table once, so this
+     * is only required as long as instances of older versions of this library or other tools read it, e.g. during
+     * a rolling upgrade. The default is true.
+     *
+     * @param legacyMigrationTable enable/disable writing the migration table of the old layout
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withLegacyMigrationTable(boolean legacyMigrationTable) {
+        this.legacyMigrationTable = legacyMigrationTable;
+        return this;
+    }
+
+    /**
+     * Sets whether the database defers creating the keyspace and the migration tables and preparing
+     * its statements until a migration is actually required. If enabled, a keyspace that is already up to date
+     * costs a single read of the version summary. The default is false, so everything is set up when the
+     * database is created.
+     *
+     * @param lazyInitialization enable/disable deferring the setup of the database
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withLazyInitialization(boolean lazyInitialization) {
+        this.lazyInitialization = lazyInitialization;
+        return this;
+    }
+
+    /**
+     * Sets whether the session passed to the {@link Database} is borrowed from the application. A borrowed
+     * session is never closed and its keyspace is never changed with <code>USE</code>, so the session of the
+     * application can be used for migrations instead of a dedicated one. The statements of the scripts are
+     * executed with the keyspace set per request, which requires protocol version V5 (Cassandra 4.0 and later).
+     * With older protocol versions the session has to be connected to the migrated keyspace already.
+     * The default is false.
+     *
+     * @param borrowedSession enable/disable using the session without changing or closing it
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withBorrowedSession(boolean borrowedSession) {
+        this.borrowedSession = borrowedSession;
+        return this;
+    }
+
+    /**
+     * Sets whether the schema metadata of the session is disabled while migrations are executed, so the driver
+     * does not download the schema after every schema change. The schema is refreshed once after the migration.
+     * Schema agreement is then checked by the library as configured by the {@link SchemaAgreementPolicy}, as the
+     * driver only checks it while refreshing the schema. If schema metadata is disabled on the session anyway,
+     * nothing is changed. The schema metadata is a setting of the whole session, so with a borrowed session
+     * the schema metadata of the application is disabled as well until the migration is done. The default is false.
+     *
+     * @param deferredSchemaRefresh enable/disable deferring the schema refresh to the end of the migration
+     * @return this instance of the <code>MigrationConfiguration</code>. Never null.
+     */
+    public MigrationConfiguration withDeferredSchemaRefresh(boolean deferredSchemaRefresh) {
+        this.deferredSchemaRefresh = deferredSchemaRefresh;
+        return this;
+    }
+
     /**
      * Returns the table prefix to be used for migration management tables.
      *
@@ -106,6 +429,150 @@ public class MigrationConfiguration {
         return this.executionProfile;
     }
 
+    /**
+     * Return the number of data manipulation statements that may be executed concurrently.
+     *
+     * @return the maximum number of statements in flight. One if statements are executed one by one (default).
+     */
+    public int getStatementConcurrency() {
+        return statementConcurrency;
+    }
+
+    /**
+     * @return the policy defining when to wait for schema agreement. Never null.
+     */
+    public SchemaAgreementPolicy getSchemaAgreementPolicy() {
+        return schemaAgreementPolicy;
+    }
+
+    /**
+     * @return the maximum time to wait for schema agreement. Never null.
+     */
+    public Duration getSchemaAgreementTimeout() {
+        return schemaAgreementTimeout;
+    }
+
+    /**
+     * @return the time between two checks of the schema agreement. Never null.
+     */
+    public Duration getSchemaAgreementPollInterval() {
+        return schemaAgreementPollInterval;
+    }
+
+    /**
+     * @return the datacenter the schema agreement is limited to or null if all datacenters have to agree
+     */
+    @Nullable
+    public String getSchemaAgreementDatacenter() {
+        return schemaAgreementDatacenter;
+    }
+
+    /**
+     * @return the consistency level used to read the version summary. Never null.
+     */
+    public ConsistencyLevel getVersionProbeConsistencyLevel() {
+        return versionProbeConsistencyLevel;
+    }
+
+    /**
+     * @return the TTL of the lead on schema migrations. Never null.
+     */
+    public Duration getLeadTtl() {
+        return leadTtl;
+    }
+
+    /**
+     * @return the wait time after the first check while another instance holds the lead. Never null.
+     */
+    public Duration getLeadWaitInitialDelay() {
+        return leadWaitInitialDelay;
+    }
+
+    /**
+     * @return the maximum wait time between checks while another instance holds the lead. Never null.
+     */
+    public Duration getLeadWaitMaxDelay() {
+        return leadWaitMaxDelay;
+    }
+
+    /**
+     * @return the fraction of the wait time between checks that is randomized
+     */
+    public double getLeadWaitJitter() {
+        return leadWaitJitter;
+    }
+
+    /**
+     * @return true if failed scripts are continued with the failed statement, false otherwise
+     */
+    public boolean isResumeFailedScripts() {
+        return resumeFailedScripts;
+    }
+
+    /**
+     * @return true if token ranges are shared with the instances waiting for the lead, false otherwise
+     */
+    public boolean isWorkSharing() {
+        return workSharing;
+    }
+
+    /**
+     * @return the maximum number of statements of migration scripts per second or zero if there is no limit
+     */
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * @return the latency above which the rate limit is decreased or null if the rate limit is not adaptive
+     */
+    @Nullable
+    public Duration getRateLimitLatencyThreshold() {
+        return rateLimitLatencyThreshold;
+    }
+
+    /**
+     * @return how the content of the scripts is stored in the migration table. Never null.
+     */
+    public ScriptStorage getScriptStorage() {
+        return scriptStorage;
+    }
+
+    /**
+     * @return true if the checksums of the applied scripts are validated before migrating
+     */
+    public boolean isValidateOnMigrate() {
+        return validateOnMigrate;
+    }
+
+    /**
+     * @return true if migrations are also logged into the migration table of the old layout
+     */
+    public boolean isLegacyMigrationTable() {
+        return legacyMigrationTable;
+    }
+
+    /**
+     * @return true if the setup of the database is deferred until a migration is required
+     */
+    public boolean isLazyInitialization() {
+        return lazyInitialization;
+    }
+
+    /**
+     * @return true if the session is owned by the application and must not be changed or closed
+     */
+    public boolean isBorrowedSession() {
+        return borrowedSession;
+    }
+
+    /**
+     * @return true if the schema is refreshed once after the migration instead of after every schema change
+     */
+    public boolean isDeferredSchemaRefresh() {
+        return deferredSchemaRefresh;
+    }
+
     /**
      * Indicates if the underlying configuration is valid. Currently, a configuration is considered
      * valid if a keyspace name or an instance of keyspace is provided.
@@ -122,6 +589,26 @@ public class MigrationConfiguration {
                 " [REQUIRED] keyspace=" + keyspace +
                 ",[OPTIONAL] tablePrefix='" + tablePrefix + '\'' +
                 ",[OPTIONAL] executionProfile='" + executionProfile + '\'' +
+                ",[OPTIONAL] statementConcurrency=" + statementConcurrency +
+                ",[OPTIONAL] schemaAgreementPolicy=" + schemaAgreementPolicy +
+                ",[OPTIONAL] schemaAgreementTimeout=" + schemaAgreementTimeout +
+                ",[OPTIONAL] schemaAgreementPollInterval=" + schemaAgreementPollInterval +
+                ",[OPTIONAL] schemaAgreementDatacenter='" + schemaAgreementDatacenter + '\'' +
+                ",[OPTIONAL] versionProbeConsistencyLevel=" + versionProbeConsistencyLevel +
+                ",[OPTIONAL] leadTtl=" + leadTtl +
+                ",[OPTIONAL] leadWaitInitialDelay=" + leadWaitInitialDelay +
+                ",[OPTIONAL] leadWaitMaxDelay=" + leadWaitMaxDelay +
+                ",[OPTIONAL] leadWaitJitter=" + leadWaitJitter +
+                ",[OPTIONAL] resumeFailedScripts=" + resumeFailedScripts +
+                ",[OPTIONAL] workSharing=" + workSharing +
+                ",[OPTIONAL] rateLimit=" + rateLimit +
+                ",[OPTIONAL] rateLimitLatencyThreshold=" + rateLimitLatencyThreshold +
+                ",[OPTIONAL] scriptStorage=" + scriptStorage +
+                ",[OPTIONAL] validateOnMigrate=" + validateOnMigrate +
+                ",[OPTIONAL] legacyMigrationTable=" + legacyMigrationTable +
+                ",[OPTIONAL] lazyInitialization=" + lazyInitialization +
+                ",[OPTIONAL] borrowedSession=" + borrowedSession +
+                ",[OPTIONAL] deferredSchemaRefresh=" + deferredSchemaRefresh +
                 '}';
     }
 }
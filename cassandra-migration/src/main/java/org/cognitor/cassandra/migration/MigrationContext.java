@@ -0,0 +1,135 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlSession;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+
+/**
+ * The context a {@link JavaMigration} is executed in. It provides the session and the settings used
+ * for the migration. The keyspace of the session might not be the migrated keyspace, so statements
+ * should use table names qualified with <code>getKeyspaceName()</code>.
+ */
+public final class MigrationContext {
+    private final Database database;
+    private final DbMigration migration;
+    private final boolean assisting;
+
+    MigrationContext(Database database, DbMigration migration, boolean assisting) {
+        this.database = notNull(database, "database");
+        this.migration = notNull(migration, "migration");
+        this.assisting = assisting;
+    }
+
+    /**
+     * @return the session connected to the cluster. Must not be closed by the migration.
+     */
+    public CqlSession getSession() {
+        return database.getSession();
+    }
+
+    /**
+     * @return the name of the keyspace that is migrated
+     */
+    public String getKeyspaceName() {
+        return database.getKeyspaceName();
+    }
+
+    /**
+     * @return the version the executed migration results to
+     */
+    public int getVersion() {
+        return migration.getVersion();
+    }
+
+    /**
+     * @return the name of the executed migration
+     */
+    public String getMigrationName() {
+        return migration.getScriptName();
+    }
+
+    /**
+     * Indicates if this instance only assists the instance holding the lead on migrations by processing
+     * shared token ranges. An assisting instance executes the whole migration, so everything else the
+     * migration does must be idempotent or skipped if this returns true.
+     *
+     * @return true if this instance assists the instance holding the lead, false if it executes the migration
+     */
+    public boolean isAssisting() {
+        return assisting;
+    }
+
+    /**
+     * @return the consistency level that is used for migrations
+     */
+    public ConsistencyLevel getConsistencyLevel() {
+        return database.getConsistencyLevel();
+    }
+
+    /**
+     * @return the execution profile that is used for migrations or null if the default profile is used
+     */
+    @Nullable
+    public String getExecutionProfileName() {
+        return database.getExecutionProfileName();
+    }
+
+    /**
+     * Creates a {@link TokenRangeMigration} that processes all rows of the given table.
+     *
+     * @param tableName           the name of the table inside the migrated keyspace. Must not be null or empty.
+     * @param partitionKeyColumns the columns of the partition key of the table in their order. Must not be empty.
+     * @return the token range migration. Never null.
+     */
+    public TokenRangeMigration tokenRangeMigration(String tableName, String... partitionKeyColumns) {
+        return new TokenRangeMigration(this, notNullOrEmpty(tableName, "tableName"),
+                Arrays.asList(notNull(partitionKeyColumns, "partitionKeyColumns")));
+    }
+
+    /**
+     * @throws MigrationException if the lead on migrations was lost while the migration was running
+     */
+    void ensureLead() {
+        database.ensureLead(migration.getScriptName());
+    }
+
+    boolean isWorkSharing() {
+        return database.isWorkSharing();
+    }
+
+    Duration getTokenRangeClaimTtl() {
+        return database.getTokenRangeClaimTtl();
+    }
+
+    Map<String, String> readCompletedTokenRanges(String task) {
+        return database.readCompletedTokenRanges(migration.getVersion(), task);
+    }
+
+    List<TokenRangeWorkUnit> readTokenRangeWorkUnits(String task) {
+        return database.readTokenRangeWorkUnits(migration.getVersion(), task);
+    }
+
+    void publishTokenRanges(String task, List<String[]> ranges) {
+        database.publishTokenRanges(migration.getVersion(), task, ranges);
+    }
+
+    boolean claimTokenRange(String task, String rangeStart, String rangeEnd) {
+        return database.claimTokenRange(migration.getVersion(), task, rangeStart, rangeEnd);
+    }
+
+    boolean renewTokenRangeClaim(String task, String rangeStart, String rangeEnd) {
+        return database.renewTokenRangeClaim(migration.getVersion(), task, rangeStart, rangeEnd);
+    }
+
+    boolean logCompletedTokenRange(String task, String rangeStart, String rangeEnd, long processedRows) {
+        return database.logCompletedTokenRange(migration.getVersion(), task, rangeStart, rangeEnd, processedRows);
+    }
+}
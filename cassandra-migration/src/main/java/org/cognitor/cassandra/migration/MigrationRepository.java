@@ -1,33 +1,44 @@
 package org.cognitor.cassandra.migration;
 
 import org.cognitor.cassandra.migration.collector.FailOnDuplicatesCollector;
+import org.cognitor.cassandra.migration.collector.PendingVersionsCollector;
 import org.cognitor.cassandra.migration.collector.ScriptCollector;
 import org.cognitor.cassandra.migration.collector.ScriptFile;
 import org.cognitor.cassandra.migration.filter.NoOpFilter;
 import org.cognitor.cassandra.migration.filter.ScriptFilter;
+import org.cognitor.cassandra.migration.index.IndexEntry;
+import org.cognitor.cassandra.migration.index.MigrationIndex;
 import org.cognitor.cassandra.migration.scanner.LocationScanner;
 import org.cognitor.cassandra.migration.scanner.ScannerRegistry;
+import org.cognitor.cassandra.migration.util.Checksum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.lang.Integer.parseInt;
 import static java.lang.String.format;
 import static java.util.Collections.sort;
-import static java.util.regex.Pattern.compile;
 import static org.cognitor.cassandra.migration.util.Ensure.notNull;
 import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
 
@@ -40,7 +51,12 @@ import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
  * Only scripts that end with <code>SCRIPT_EXTENSION</code> will be considered.
  * </p>
  * <p>
- * Within a script every line starting with <code>COMMENT_PREFIX</code> will be ignored.
+ * Comments within a script are removed by the {@link org.cognitor.cassandra.migration.cql.SimpleCQLLexer}
+ * when the script is executed.
+ * </p>
+ * <p>
+ * Besides scripts the repository can contain {@link JavaMigration}s that are executed ordered by their
+ * version together with the scripts.
  * </p>
  *
  * @author Patrick Kranz
@@ -67,20 +83,27 @@ public class MigrationRepository {
 
     /**
      * Pattern matching the prefixes that can be put in the beginning of a line to indicate a single line comment.
-     * Any line matching this pattern will be ignored.
+     * Any line matching this pattern is removed before a script is passed to a {@link ScriptFilter}.
      */
     public static final String SINGLE_LINE_COMMENT_PATTERN = "(^\\s*--.*)|(^\\s*//.*)";
+    private static final Pattern COMMENT_PATTERN = Pattern.compile(SINGLE_LINE_COMMENT_PATTERN);
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MigrationRepository.class);
     private static final String EXTRACT_VERSION_ERROR_MSG = "Error for script %s. Unable to extract version.";
     private static final String SCANNING_SCRIPT_FOLDER_ERROR_MSG = "Error while scanning script folder for new scripts.";
     private static final String READING_SCRIPT_ERROR_MSG = "Error while reading script %s";
+    private static final String DUPLICATE_VERSION_ERROR_MSG = "Java migration %s uses version %d that is already used by %s";
     private static final String PATH_SEPARATOR_CHAR = "/";
+    private static final int READ_BUFFER_SIZE = 8192;
 
-    private final Pattern commentPattern;
     private final ScannerRegistry scannerRegistry;
-    private final List<ScriptFile> migrationScripts;
-    private final ScriptCollector scriptCollector;
+    private final List<String> scriptPaths;
+    private final boolean useIndex;
+    private final Supplier<ScriptCollector> scriptCollectorFactory;
+    private List<ScriptFile> migrationScripts;
+    private int scannedAboveVersion = Integer.MIN_VALUE;
+    private final List<JavaMigration> javaMigrations = new ArrayList<>();
+    private final Map<String, String> indexedChecksums = new HashMap<>();
     private ScriptFilter scriptFilter = new NoOpFilter();
 
     /**
@@ -168,20 +191,127 @@ public class MigrationRepository {
      * @throws MigrationException in case there is a problem reading the scripts in the path.
      */
     public MigrationRepository(List<String> scriptPaths, ScriptCollector scriptCollector, ScannerRegistry scannerRegistry) {
-        this.scriptCollector = notNull(scriptCollector, "scriptCollector");
+        this(scriptPaths, scriptCollector, scannerRegistry, false);
+    }
+
+    /**
+     * Creates a new repository with the given scriptPaths and the given
+     * {@link ScriptCollector}. If <code>useIndex</code> is true and a {@link MigrationIndex} is available
+     * on the classpath, the scripts are taken from the index instead of scanning the script paths.
+     * If no index is available the script paths are scanned.
+     *
+     * @param scriptPaths the paths on the classpath to the migration scripts. Must not be null.
+     * @param scriptCollector the collection strategy used to collect the scripts. Must not be null.
+     * @param scannerRegistry A ScannerRegistry to create LocationScanner instances. Must not be null.
+     * @param useIndex true to take the scripts from the migration index if one is available
+     * @throws MigrationException in case there is a problem reading the scripts in the path or the index.
+     */
+    public MigrationRepository(List<String> scriptPaths, ScriptCollector scriptCollector, ScannerRegistry scannerRegistry,
+                               boolean useIndex) {
+        this.scriptPaths = notNullOrEmpty(scriptPaths, "scriptPaths");
         this.scannerRegistry = notNull(scannerRegistry, "scannerRegistry");
-        this.commentPattern = compile(SINGLE_LINE_COMMENT_PATTERN);
-        try {
-            migrationScripts = scanForScripts(notNullOrEmpty(scriptPaths, "scriptPaths"));
-        } catch (IOException | URISyntaxException exception) {
-            throw new MigrationException(SCANNING_SCRIPT_FOLDER_ERROR_MSG, exception);
+        this.useIndex = useIndex;
+        this.scriptCollectorFactory = null;
+        this.migrationScripts = scanForScripts(notNull(scriptCollector, "scriptCollector"));
+    }
+
+    /**
+     * Creates a new repository that scans for scripts only once the current version of the database
+     * is known and keeps only the scripts with a newer version. A {@link MigrationTask} passes the version to
+     * <code>scanAboveVersion</code> before anything else is done with the repository. The scripts are passed
+     * through a {@link PendingVersionsCollector} to a collector created by the given factory, so for example
+     * duplicate versions are only detected among the pending scripts. This way the startup cost depends on the
+     * number of pending scripts instead of all scripts ever written.
+     *
+     * If the repository is used with an older version afterwards, e.g. by another keyspace, the script paths are
+     * scanned again with a new collector.
+     *
+     * @param scriptPaths the paths on the classpath to the migration scripts. Must not be null.
+     * @param scriptCollectorFactory creates the collection strategy for every scan. Must not be null.
+     * @param scannerRegistry A ScannerRegistry to create LocationScanner instances. Must not be null.
+     * @param useIndex true to take the scripts from the migration index if one is available
+     */
+    public MigrationRepository(List<String> scriptPaths, Supplier<ScriptCollector> scriptCollectorFactory,
+                               ScannerRegistry scannerRegistry, boolean useIndex) {
+        this.scriptPaths = notNullOrEmpty(scriptPaths, "scriptPaths");
+        this.scannerRegistry = notNull(scannerRegistry, "scannerRegistry");
+        this.useIndex = useIndex;
+        this.scriptCollectorFactory = notNull(scriptCollectorFactory, "scriptCollectorFactory");
+    }
+
+    /**
+     * Makes sure the repository contains all scripts with a version newer than the given version.
+     * Repositories that scan all scripts when they are created already do. Repositories that scan only the
+     * pending scripts do it now, unless the scripts were already scanned for the same or an older version.
+     *
+     * @param version the current version of the database
+     * @throws MigrationException in case there is a problem reading the scripts in the path or the index
+     */
+    public synchronized void scanAboveVersion(int version) {
+        if (migrationScripts != null && version >= scannedAboveVersion) {
+            return;
+        }
+        ScriptCollector scriptCollector = scriptCollectorFactory.get();
+        migrationScripts = scanForScripts(version == Integer.MIN_VALUE
+                ? scriptCollector : new PendingVersionsCollector(scriptCollector, version));
+        scannedAboveVersion = version;
+        for (JavaMigration javaMigration : javaMigrations) {
+            ensureVersionNotScripted(javaMigration);
         }
     }
 
+    /**
+     * Scans all scripts if the repository has not scanned for scripts yet.
+     */
+    private void ensureScanned() {
+        if (migrationScripts == null) {
+            scanAboveVersion(Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Sets a filter that can change the content of every script before it is executed. Like in earlier versions,
+     * lines that only contain a comment are removed before the content is passed to the filter. Without a filter
+     * the content keeps its comments, which are removed when the script is split into statements.
+     *
+     * @param scriptFilter the filter applied to every script
+     */
     public void setScriptFilter(ScriptFilter scriptFilter) {
         this.scriptFilter = scriptFilter;
     }
 
+    /**
+     * Adds a migration implemented in Java to the repository. It is executed ordered by its version
+     * together with the scripts.
+     *
+     * @param javaMigration the migration to add. Must not be null.
+     * @throws MigrationException if a script or another Java migration uses the same version
+     */
+    public synchronized void addJavaMigration(JavaMigration javaMigration) {
+        notNull(javaMigration, "javaMigration");
+        ensureVersionNotScripted(javaMigration);
+        for (JavaMigration existingMigration : javaMigrations) {
+            if (existingMigration.getVersion() == javaMigration.getVersion()) {
+                throw new MigrationException(format(DUPLICATE_VERSION_ERROR_MSG, javaMigration.getName(),
+                        javaMigration.getVersion(), existingMigration.getName()), javaMigration.getName());
+            }
+        }
+        javaMigrations.add(javaMigration);
+        javaMigrations.sort(Comparator.comparingInt(JavaMigration::getVersion));
+    }
+
+    private void ensureVersionNotScripted(JavaMigration javaMigration) {
+        if (migrationScripts == null) {
+            return;
+        }
+        for (ScriptFile script : migrationScripts) {
+            if (script.getVersion() == javaMigration.getVersion()) {
+                throw new MigrationException(format(DUPLICATE_VERSION_ERROR_MSG, javaMigration.getName(),
+                        javaMigration.getVersion(), script.getResourceName()), javaMigration.getName());
+            }
+        }
+    }
+
     /**
      * Ensures that every path starts and ends with a slash character.
      *
@@ -205,18 +335,38 @@ public class MigrationRepository {
      * Gets the version of the scripts. This version represents the highest version that can be found in the scripts,
      * meaning the script with the highest version will be the one defining the version that is returned here.
      * In case the directory is empty zero will be returned as a version number.
+     * If only the pending scripts were scanned and there are none, zero is returned as well.
      *
      * @return the latest version of the migrations, or zero if the directory contains no scripts.
      */
-    public int getLatestVersion() {
-        if (migrationScripts.isEmpty()) {
-            return 0;
+    public synchronized int getLatestVersion() {
+        ensureScanned();
+        int latestVersion = 0;
+        if (!migrationScripts.isEmpty()) {
+            latestVersion = migrationScripts.get(migrationScripts.size() - 1).getVersion();
+        }
+        if (!javaMigrations.isEmpty()) {
+            latestVersion = Math.max(latestVersion, javaMigrations.get(javaMigrations.size() - 1).getVersion());
+        }
+        return latestVersion;
+    }
+
+    private List<ScriptFile> scanForScripts(ScriptCollector scriptCollector) {
+        try {
+            return scanForScripts(scriptCollector, scriptPaths, useIndex);
+        } catch (IOException | URISyntaxException exception) {
+            throw new MigrationException(SCANNING_SCRIPT_FOLDER_ERROR_MSG, exception);
         }
-        return migrationScripts.get(migrationScripts.size() - 1).getVersion();
     }
 
-    private List<ScriptFile> scanForScripts(List<String> scriptPaths) throws IOException, URISyntaxException {
+    private List<ScriptFile> scanForScripts(ScriptCollector scriptCollector, List<String> scriptPaths, boolean useIndex)
+            throws IOException, URISyntaxException {
+        MigrationIndex index = useIndex ? loadIndex(scriptPaths) : null;
         for (String scriptPath : scriptPaths) {
+            if (index != null) {
+                collectFromIndex(index, normalizePath(notNullOrEmpty(scriptPath, "scriptPath")), scriptCollector);
+                continue;
+            }
             String normalizedPath = normalizePath(notNullOrEmpty(scriptPath, "scriptPath"));
 
             LOGGER.debug("Scanning for cql migration scripts in " + normalizedPath);
@@ -247,7 +397,51 @@ public class MigrationRepository {
         return scripts;
     }
 
-    private static int extractScriptVersion(String scriptName) {
+    /**
+     * Loads the migration index and checks that its entries below the script paths match the scripts on the
+     * classpath.
+     *
+     * @return the index or null if there is no index or it does not match the scripts
+     */
+    private MigrationIndex loadIndex(List<String> scriptPaths) throws IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        MigrationIndex index = MigrationIndex.load(classLoader);
+        if (index == null) {
+            LOGGER.info("No migration index found at {}. Scanning for scripts instead.", MigrationIndex.LOCATION);
+            return null;
+        }
+        List<String> normalizedPaths = new ArrayList<>();
+        for (String scriptPath : scriptPaths) {
+            normalizedPaths.add(normalizePath(notNullOrEmpty(scriptPath, "scriptPath")));
+        }
+        String mismatch = index.findMismatch(classLoader, normalizedPaths);
+        if (mismatch != null) {
+            LOGGER.warn("The migration index at {} is out of date: {}. Scanning for scripts instead.",
+                    MigrationIndex.LOCATION, mismatch);
+            return null;
+        }
+        return index;
+    }
+
+    private void collectFromIndex(MigrationIndex index, String normalizedPath, ScriptCollector scriptCollector) {
+        LOGGER.debug("Taking cql migration scripts in {} from the migration index", normalizedPath);
+        for (IndexEntry entry : index.getEntries()) {
+            String resource = entry.getResourceName();
+            if (resource.startsWith(normalizedPath) && isMigrationScript(resource)) {
+                scriptCollector.collect(new ScriptFile(entry.getVersion(), resource, extractScriptName(resource)));
+                indexedChecksums.put(resource, entry.getChecksum());
+            }
+        }
+    }
+
+    /**
+     * Extracts the version from the name of a script, e.g. <code>1</code> from <code>001_init.cql</code>.
+     *
+     * @param scriptName the name of the script without the path
+     * @return the version of the script
+     * @throws MigrationException if the script name does not start with a version
+     */
+    public static int extractScriptVersion(String scriptName) {
         String[] splittedName = scriptName.split(VERSION_NAME_DELIMITER);
         int folderSeperatorPos = splittedName[0].lastIndexOf(PATH_SEPARATOR_CHAR);
         String versionString;
@@ -264,11 +458,21 @@ public class MigrationRepository {
         }
     }
 
-    private static boolean isMigrationScript(String resource) {
+    /**
+     * @param resource the name of a resource on the classpath
+     * @return true if the resource is considered a migration script, false otherwise
+     */
+    public static boolean isMigrationScript(String resource) {
         return resource.endsWith(SCRIPT_EXTENSION);
     }
 
-    private String extractScriptName(String resourceName) {
+    /**
+     * Extracts the name of the script from the name of the resource by removing the path.
+     *
+     * @param resourceName the name of the resource on the classpath
+     * @return the name of the script
+     */
+    public static String extractScriptName(String resourceName) {
         int slashIndex = resourceName.lastIndexOf(PATH_SEPARATOR_CHAR);
         if (slashIndex > -1) {
             return resourceName.substring(slashIndex + 1);
@@ -287,14 +491,110 @@ public class MigrationRepository {
      */
     public List<DbMigration> getMigrationsSinceVersion(int version) {
         List<DbMigration> dbMigrations = new ArrayList<>();
-        migrationScripts.stream().filter(script -> script.getVersion() > version).forEach(script -> {
-            String content = loadScriptContent(script);
-            String updatedContent = scriptFilter.filter(content);
-            dbMigrations.add(new DbMigration(script.getScriptName(), script.getVersion(), updatedContent));
-        });
+        getPendingMigrations(version).forEachRemaining(dbMigrations::add);
         return dbMigrations;
     }
 
+    /**
+     * Returns all migrations starting from and excluding the given version like
+     * <code>getMigrationsSinceVersion</code>, but loads the content of a script only when the iterator
+     * reaches it. The iterator does not keep a reference to the migrations it returned, so only the script
+     * that is currently executed needs to be kept in memory.
+     *
+     * @param version the version that is currently in the database
+     * @return an iterator over all versions since the given version. Never null.
+     * @throws MigrationException from <code>next()</code> in case the script cannot be read
+     */
+    public synchronized Iterator<DbMigration> getPendingMigrations(int version) {
+        scanAboveVersion(version);
+        Iterator<ScriptFile> pendingScripts = migrationScripts.stream()
+                .filter(script -> script.getVersion() > version)
+                .iterator();
+        Iterator<JavaMigration> pendingJavaMigrations = javaMigrations.stream()
+                .filter(javaMigration -> javaMigration.getVersion() > version)
+                .collect(Collectors.toList())
+                .iterator();
+        return new Iterator<DbMigration>() {
+            private ScriptFile nextScript = nextOrNull(pendingScripts);
+            private JavaMigration nextJavaMigration = nextOrNull(pendingJavaMigrations);
+
+            @Override
+            public boolean hasNext() {
+                return nextScript != null || nextJavaMigration != null;
+            }
+
+            @Override
+            public DbMigration next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (nextJavaMigration == null
+                        || (nextScript != null && nextScript.getVersion() < nextJavaMigration.getVersion())) {
+                    ScriptFile script = nextScript;
+                    nextScript = nextOrNull(pendingScripts);
+                    String content = loadFilteredScriptContent(script);
+                    return new DbMigration(script.getScriptName(), script.getVersion(), content);
+                }
+                JavaMigration javaMigration = nextJavaMigration;
+                nextJavaMigration = nextOrNull(pendingJavaMigrations);
+                return new DbMigration(javaMigration);
+            }
+        };
+    }
+
+    /**
+     * Returns the checksum of the migration with the given version the way it is recorded in the migration
+     * table. The checksum of a script that was taken from the migration index is taken from the index as long
+     * as no script filter is set, so the script does not need to be read. Otherwise the script is loaded.
+     *
+     * @param version the version of the migration
+     * @return the checksum of the migration or null if the repository does not contain the version
+     * @throws MigrationException in case the script cannot be read
+     */
+    public synchronized String getChecksum(int version) {
+        scanAboveVersion(version - 1);
+        for (ScriptFile script : migrationScripts) {
+            if (script.getVersion() != version) {
+                continue;
+            }
+            String indexedChecksum = indexedChecksums.get(script.getResourceName());
+            if (indexedChecksum != null && scriptFilter instanceof NoOpFilter) {
+                return indexedChecksum;
+            }
+            return Checksum.of(loadFilteredScriptContent(script));
+        }
+        for (JavaMigration javaMigration : javaMigrations) {
+            if (javaMigration.getVersion() == version) {
+                return Checksum.of(new DbMigration(javaMigration).getMigrationScript());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the migration following the given version if it is a Java migration.
+     *
+     * @param version the version that is currently in the database
+     * @return the Java migration following the given version or null if the next migration is a script
+     *         or there is no newer migration
+     */
+    synchronized DbMigration getNextJavaMigration(int version) {
+        scanAboveVersion(version);
+        JavaMigration nextJavaMigration = javaMigrations.stream()
+                .filter(javaMigration -> javaMigration.getVersion() > version)
+                .findFirst().orElse(null);
+        if (nextJavaMigration == null || migrationScripts.stream()
+                .anyMatch(script -> script.getVersion() > version
+                        && script.getVersion() < nextJavaMigration.getVersion())) {
+            return null;
+        }
+        return new DbMigration(nextJavaMigration);
+    }
+
+    private static <T> T nextOrNull(Iterator<T> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
     private String loadScriptContent(ScriptFile script) {
         try {
             return readResourceFileAsString(script.getResourceName(), getClass().getClassLoader());
@@ -304,16 +604,34 @@ public class MigrationRepository {
         }
     }
 
-    private String readResourceFileAsString(String resourceName, ClassLoader classLoader) throws IOException {
-        return new BufferedReader(new InputStreamReader(
-                Objects.requireNonNull(classLoader.getResourceAsStream(resourceName)),
-                SCRIPT_ENCODING
-        )).lines()
-                .filter(line -> !isLineComment(line))
+    /**
+     * Loads the script and applies the script filter. Filters have always been given the script without
+     * comment lines, so these are only removed if a filter is set.
+     */
+    private String loadFilteredScriptContent(ScriptFile script) {
+        String content = loadScriptContent(script);
+        if (scriptFilter instanceof NoOpFilter) {
+            return content;
+        }
+        return scriptFilter.filter(removeLineComments(content));
+    }
+
+    private static String removeLineComments(String content) {
+        return new BufferedReader(new StringReader(content)).lines()
+                .filter(line -> !COMMENT_PATTERN.matcher(line).matches())
                 .collect(Collectors.joining(System.lineSeparator()));
     }
 
-    private boolean isLineComment(String line) {
-        return commentPattern.matcher(line).matches();
+    private String readResourceFileAsString(String resourceName, ClassLoader classLoader) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                Objects.requireNonNull(classLoader.getResourceAsStream(resourceName)), SCRIPT_ENCODING)) {
+            StringBuilder content = new StringBuilder(READ_BUFFER_SIZE);
+            char[] buffer = new char[READ_BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+            return content.toString();
+        }
     }
 }
@@ -0,0 +1,161 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+
+/**
+ * Creates a <code>CqlSession</code> that is tuned for migrations, so a dedicated migration session does not cost
+ * as much as the session of the application on every start. Compared to the defaults of the driver the session
+ * <ul>
+ *     <li>opens a single connection per node</li>
+ *     <li>refreshes the schema metadata of the migrated keyspace only</li>
+ *     <li>does not compute the token map unless enabled, which is only required by {@link TokenRangeMigration}</li>
+ *     <li>uses a request timeout that is long enough for schema changes (default 30 seconds)</li>
+ *     <li>does not wait for schema agreement itself but leaves it to the migration, which polls the schema versions
+ *     more often than the driver, unless the {@link SchemaAgreementPolicy} is <code>AFTER_EVERY_STATEMENT</code>,
+ *     which relies on the driver waiting as long as the {@link MigrationConfiguration} says</li>
+ * </ul>
+ * All other settings are taken from the driver configuration on the classpath (<code>application.conf</code>)
+ * as usual. Settings that this factory does not cover, e.g. SSL, can be added to the builder returned by
+ * <code>createSessionBuilder()</code>.
+ */
+public class MigrationSessionFactory {
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int CONNECTIONS_PER_NODE = 1;
+
+    private final MigrationConfiguration configuration;
+    private final List<InetSocketAddress> contactPoints = new ArrayList<>();
+    private String localDatacenter;
+    private String username;
+    private String password;
+    private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private boolean tokenMap = false;
+
+    /**
+     * @param configuration the configuration of the migration the session is used for. Must not be null
+     *                      and must be valid.
+     */
+    public MigrationSessionFactory(MigrationConfiguration configuration) {
+        this.configuration = notNull(configuration, "configuration");
+        if (!configuration.isValid()) {
+            throw new IllegalArgumentException("The provided configuration is invalid. Please check if all required values are" +
+                    " available. Current configuration is: " + System.lineSeparator() + configuration);
+        }
+    }
+
+    /**
+     * Adds contact points the session connects to. If no contact point is added, the contact points of the
+     * driver configuration are used.
+     *
+     * @param contactPoints the addresses of cassandra nodes. Must not be null.
+     * @return this instance of the <code>MigrationSessionFactory</code>. Never null.
+     */
+    public MigrationSessionFactory withContactPoints(Collection<InetSocketAddress> contactPoints) {
+        this.contactPoints.addAll(notNull(contactPoints, "contactPoints"));
+        return this;
+    }
+
+    /**
+     * @param localDatacenter the name of the datacenter the session connects to. Must not be null or empty.
+     * @return this instance of the <code>MigrationSessionFactory</code>. Never null.
+     */
+    public MigrationSessionFactory withLocalDatacenter(String localDatacenter) {
+        this.localDatacenter = notNullOrEmpty(localDatacenter, "localDatacenter");
+        return this;
+    }
+
+    /**
+     * @param username the name of the user the session authenticates with. Must not be null or empty.
+     * @param password the password of the user. Must not be null.
+     * @return this instance of the <code>MigrationSessionFactory</code>. Never null.
+     */
+    public MigrationSessionFactory withAuthCredentials(String username, String password) {
+        this.username = notNullOrEmpty(username, "username");
+        this.password = notNull(password, "password");
+        return this;
+    }
+
+    /**
+     * @param requestTimeout the time after which a request fails. Must be greater than zero.
+     * @return this instance of the <code>MigrationSessionFactory</code>. Never null.
+     */
+    public MigrationSessionFactory withRequestTimeout(Duration requestTimeout) {
+        if (notNull(requestTimeout, "requestTimeout").isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("Argument requestTimeout must be greater than zero.");
+        }
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    /**
+     * Sets whether the driver computes the token map. The token map is required to process tables with a
+     * {@link TokenRangeMigration}. The default is false.
+     *
+     * @param tokenMap enable/disable the token map
+     * @return this instance of the <code>MigrationSessionFactory</code>. Never null.
+     */
+    public MigrationSessionFactory withTokenMap(boolean tokenMap) {
+        this.tokenMap = tokenMap;
+        return this;
+    }
+
+    /**
+     * Creates the configuration of the driver for the migration session.
+     *
+     * @return the config loader. Never null.
+     */
+    public DriverConfigLoader createConfigLoader() {
+        boolean driverSchemaAgreement =
+                configuration.getSchemaAgreementPolicy() == SchemaAgreementPolicy.AFTER_EVERY_STATEMENT;
+        return DriverConfigLoader.programmaticBuilder()
+                .withInt(DefaultDriverOption.CONNECTION_POOL_LOCAL_SIZE, CONNECTIONS_PER_NODE)
+                .withInt(DefaultDriverOption.CONNECTION_POOL_REMOTE_SIZE, CONNECTIONS_PER_NODE)
+                .withStringList(DefaultDriverOption.METADATA_SCHEMA_REFRESHED_KEYSPACES,
+                        Collections.singletonList(configuration.getKeyspace().getKeyspaceName()))
+                .withBoolean(DefaultDriverOption.METADATA_TOKEN_MAP_ENABLED, tokenMap)
+                .withDuration(DefaultDriverOption.REQUEST_TIMEOUT, requestTimeout)
+                .withDuration(DefaultDriverOption.CONTROL_CONNECTION_AGREEMENT_TIMEOUT,
+                        driverSchemaAgreement ? configuration.getSchemaAgreementTimeout() : Duration.ZERO)
+                .build();
+    }
+
+    /**
+     * Creates a builder with the configuration of this factory that can be customized further.
+     *
+     * @return the session builder. Never null.
+     */
+    public CqlSessionBuilder createSessionBuilder() {
+        CqlSessionBuilder builder = CqlSession.builder()
+                .withConfigLoader(createConfigLoader())
+                .addContactPoints(contactPoints);
+        if (localDatacenter != null) {
+            builder.withLocalDatacenter(localDatacenter);
+        }
+        if (username != null) {
+            builder.withAuthCredentials(username, password);
+        }
+        return builder;
+    }
+
+    /**
+     * Creates and connects the session. The session is owned by the caller, usually it is passed to the
+     * {@link Database} which closes it after the migration.
+     *
+     * @return the connected session. Never null.
+     */
+    public CqlSession createSession() {
+        return createSessionBuilder().build();
+    }
+}
@@ -2,9 +2,12 @@ package org.cognitor.cassandra.migration;
 
 import org.slf4j.Logger;
 
-import java.util.List;
+import java.util.Iterator;
 
 import static java.lang.String.format;
+import static org.cognitor.cassandra.migration.KeyspaceMigrationResult.Status.MIGRATED;
+import static org.cognitor.cassandra.migration.KeyspaceMigrationResult.Status.MIGRATED_BY_OTHER_INSTANCE;
+import static org.cognitor.cassandra.migration.KeyspaceMigrationResult.Status.UP_TO_DATE;
 import static org.cognitor.cassandra.migration.util.Ensure.notNull;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -18,6 +21,8 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public class MigrationTask {
     private static final Logger LOGGER = getLogger(MigrationTask.class);
+    private static final String CHECKSUM_MISMATCH_ERROR_MSG =
+            "Script %s of version %d was changed after it was applied to keyspace %s";
 
     private final Database database;
     private final MigrationRepository repository;
@@ -56,24 +61,103 @@ public class MigrationTask {
      * @throws MigrationException if a migration fails
      */
     public void migrate() {
-        if (databaseIsUpToDate()) {
+        migrateKeyspace();
+    }
+
+    /**
+     * Compares the checksums of all scripts that were applied successfully with the scripts in the
+     * repository. The migration history is read with a single query that does not include the content of
+     * the scripts. Applied versions that are no longer in the repository, e.g. because old scripts were
+     * removed, and entries written before checksums were recorded are skipped.
+     * <p>
+     * Unlike <code>migrate()</code> the underlying database instance is not closed.
+     *
+     * @throws MigrationException for the first applied script that was changed afterwards
+     */
+    public void validate() {
+        for (AppliedMigration appliedMigration : database.readAppliedMigrations()) {
+            if (appliedMigration.getScriptChecksum() == null) {
+                continue;
+            }
+            String checksum = repository.getChecksum(appliedMigration.getVersion());
+            if (checksum == null) {
+                LOGGER.debug(format("Applied version %d of keyspace %s is not in the repository. Skipping it.",
+                        appliedMigration.getVersion(), database.getKeyspaceName()));
+                continue;
+            }
+            if (!checksum.equals(appliedMigration.getScriptChecksum())) {
+                throw new MigrationException(format(CHECKSUM_MISMATCH_ERROR_MSG, appliedMigration.getScriptName(),
+                        appliedMigration.getVersion(), database.getKeyspaceName()),
+                        appliedMigration.getScriptName());
+            }
+        }
+        LOGGER.debug(format("Validated the applied scripts of keyspace %s", database.getKeyspaceName()));
+    }
+
+    /**
+     * The version summary might have been read with a weak consistency level or might lag behind the
+     * migration table if an instance stopped right after applying a script. Therefore the version
+     * is read from the migration table before a migration starts and the summary is repaired if necessary.
+     */
+    private int confirmVersion(int probedVersion) {
+        int version = database.getVersion();
+        if (version != probedVersion) {
+            LOGGER.debug(format("Version summary of keyspace %s is outdated (%d instead of %d). Repairing it.",
+                    database.getKeyspaceName(), probedVersion, version));
+            database.updateVersionSummary(version);
+        }
+        return version;
+    }
+
+    /**
+     * Executes the migration like <code>migrate()</code> and reports the outcome.
+     *
+     * @return the result of the migration. Never null.
+     * @throws MigrationException if a migration fails
+     */
+    KeyspaceMigrationResult migrateKeyspace() {
+        if (database.isValidateOnMigrate()) {
+            try {
+                validate();
+            } catch (MigrationException exception) {
+                database.close();
+                throw exception;
+            }
+        }
+        int previousVersion = database.probeVersion();
+        repository.scanAboveVersion(previousVersion);
+        if (previousVersion < repository.getLatestVersion()) {
+            previousVersion = confirmVersion(previousVersion);
+        }
+        if (previousVersion >= repository.getLatestVersion()) {
             LOGGER.info(format("Keyspace %s is already up to date at version %d", database.getKeyspaceName(),
-                    database.getVersion()));
+                    previousVersion));
             database.close();
-            return;
+            return new KeyspaceMigrationResult(database.getKeyspaceName(), UP_TO_DATE,
+                    previousVersion, previousVersion, null);
         }
 
         try {
             if (!instanceHasLead()) {
-                return;
+                return new KeyspaceMigrationResult(database.getKeyspaceName(), MIGRATED_BY_OTHER_INSTANCE,
+                        previousVersion, database.getVersion(), null);
             }
-            if (!databaseIsUpToDate()) {
-                List<DbMigration> migrations = repository.getMigrationsSinceVersion(database.getVersion());
-                migrations.forEach(database::execute);
-                LOGGER.info(format("Migrated keyspace %s to version %d", database.getKeyspaceName(),
-                        database.getVersion()));
+            int currentVersion = database.getVersion();
+            if (currentVersion >= repository.getLatestVersion()) {
+                return new KeyspaceMigrationResult(database.getKeyspaceName(), MIGRATED_BY_OTHER_INSTANCE,
+                        previousVersion, currentVersion, null);
             }
+            Iterator<DbMigration> migrations = repository.getPendingMigrations(currentVersion);
+            database.suspendSchemaRefresh();
+            migrations.forEachRemaining(database::execute);
+            database.awaitPendingSchemaAgreement();
+            currentVersion = database.getVersion();
+            database.updateVersionSummary(currentVersion);
+            LOGGER.info(format("Migrated keyspace %s to version %d", database.getKeyspaceName(), currentVersion));
+            return new KeyspaceMigrationResult(database.getKeyspaceName(), MIGRATED, previousVersion,
+                    currentVersion, null);
         } finally {
+            database.resumeSchemaRefresh();
             if (withConsensus) {
                 database.removeLeadOnMigrations();
             }
@@ -82,10 +166,20 @@ public class MigrationTask {
     }
 
     private boolean instanceHasLead() {
-        return !withConsensus || database.takeLeadOnMigrations(repository.getLatestVersion());
+        return !withConsensus || database.takeLeadOnMigrations(repository.getLatestVersion(), this::assistLeader);
     }
 
-    private boolean databaseIsUpToDate() {
-        return database.getVersion() >= repository.getLatestVersion();
+    /**
+     * Executes the Java migration the instance holding the lead is working on, if work sharing is enabled,
+     * so this instance processes token ranges instead of only waiting for the lead.
+     */
+    private void assistLeader() {
+        if (!database.isWorkSharing()) {
+            return;
+        }
+        DbMigration migration = repository.getNextJavaMigration(database.probeVersion());
+        if (migration != null) {
+            database.assistJavaMigration(migration);
+        }
     }
 }
@@ -0,0 +1,239 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DriverException;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Migrates several keyspaces with the scripts of one repository, e.g. when every tenant of an
+ * application has its own keyspace. All keyspaces are migrated on the same session and the
+ * repository is only scanned once. If the repository scans only pending scripts, the version summaries of
+ * all keyspaces are read first and the scripts above the lowest version are scanned before any keyspace is
+ * migrated. A keyspace without a summary counts as version 0.
+ *
+ * Keyspaces are migrated concurrently with the configured parallelism if the protocol version of the
+ * session supports setting the keyspace per request (protocol v5, Cassandra 4.0 and later). With older
+ * protocol versions the session keyspace has to be changed for every keyspace and the keyspaces are
+ * migrated one after the other.
+ *
+ * A failing keyspace does not stop the migration of the other keyspaces. The outcome for every
+ * keyspace is reported in the list of results returned by <code>migrate()</code>.
+ *
+ * The session is not closed by this task as it is owned by the caller.
+ */
+public class MultiKeyspaceMigrationTask {
+    private static final Logger LOGGER = getLogger(MultiKeyspaceMigrationTask.class);
+
+    /**
+     * The number of keyspaces migrated at the same time if nothing else is configured.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final CqlSession session;
+    private final List<MigrationConfiguration> configurations;
+    private final MigrationRepository repository;
+    private final int parallelism;
+    private final boolean withConsensus;
+    private ConsistencyLevel consistencyLevel = ConsistencyLevel.QUORUM;
+
+    /**
+     * Creates a task that migrates the given keyspaces with the <code>DEFAULT_PARALLELISM</code> and
+     * no consensus protocol enabled.
+     *
+     * @param session        the session used for all keyspaces. Must not be null.
+     * @param configurations one configuration for every keyspace to be migrated. Must not be null or empty.
+     * @param repository     the repository that contains the migration scripts. Must not be null.
+     */
+    public MultiKeyspaceMigrationTask(CqlSession session, List<MigrationConfiguration> configurations,
+                                      MigrationRepository repository) {
+        this(session, configurations, repository, DEFAULT_PARALLELISM, false);
+    }
+
+    /**
+     * Creates a task that migrates the given keyspaces.
+     *
+     * @param session        the session used for all keyspaces. Must not be null.
+     * @param configurations one configuration for every keyspace to be migrated. Must not be null or empty
+     *                       and every configuration must be valid.
+     * @param repository     the repository that contains the migration scripts. Must not be null.
+     * @param parallelism    the maximum number of keyspaces that are migrated at the same time. Must be at least one.
+     * @param withConsensus  if the migration of a keyspace should be handled by a single process at once,
+     *                       using LWT based leader election
+     */
+    public MultiKeyspaceMigrationTask(CqlSession session, List<MigrationConfiguration> configurations,
+                                      MigrationRepository repository, int parallelism, boolean withConsensus) {
+        this.session = notNull(session, "session");
+        this.configurations = new ArrayList<>(notNullOrEmpty(configurations, "configurations"));
+        this.repository = notNull(repository, "repository");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Argument parallelism must be at least 1.");
+        }
+        for (MigrationConfiguration configuration : this.configurations) {
+            if (configuration == null || !configuration.isValid()) {
+                throw new IllegalArgumentException("The provided configuration is invalid. Please check if all" +
+                        " required values are available. Current configuration is: " + System.lineSeparator()
+                        + configuration);
+            }
+        }
+        this.parallelism = parallelism;
+        this.withConsensus = withConsensus;
+    }
+
+    /**
+     * Set the consistency level that should be used for the migration of every keyspace.
+     * Default is <code>ConsistencyLevel.QUORUM</code>.
+     *
+     * @param consistencyLevel the consistency level to be used. Must not be null.
+     * @return the current task instance
+     * @see Database#setConsistencyLevel(ConsistencyLevel)
+     */
+    public MultiKeyspaceMigrationTask setConsistencyLevel(ConsistencyLevel consistencyLevel) {
+        this.consistencyLevel = notNull(consistencyLevel, "consistencyLevel");
+        return this;
+    }
+
+    /**
+     * Migrates all keyspaces and waits until every keyspace is either migrated or failed.
+     *
+     * @return one result per configured keyspace in the order of the configurations. Never null.
+     */
+    public List<KeyspaceMigrationResult> migrate() {
+        int threads = Math.min(parallelism, configurations.size());
+        if (threads > 1 && !Database.supportsPerRequestKeyspace(session)) {
+            LOGGER.warn("The protocol version of the session does not support a keyspace per request. " +
+                    "Keyspaces will be migrated one after the other.");
+            threads = 1;
+        }
+        LOGGER.info(format("Migrating %d keyspaces with a parallelism of %d", configurations.size(), threads));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new MigrationThreadFactory());
+        try {
+            scanAboveLowestVersion(executor);
+            List<Future<KeyspaceMigrationResult>> futures = new ArrayList<>(configurations.size());
+            for (MigrationConfiguration configuration : configurations) {
+                futures.add(executor.submit(() -> migrate(configuration)));
+            }
+            List<KeyspaceMigrationResult> results = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(awaitResult(futures.get(i), configurations.get(i)));
+            }
+            logSummary(results);
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Scans the repository for the scripts above the lowest version of all keyspaces. Otherwise every keyspace
+     * with an older version than the keyspaces before would scan the repository again while the other keyspaces
+     * wait for it. Keyspaces whose version can not be read are left out and problems with the scripts are
+     * reported by the migration of every keyspace, as without this scan.
+     */
+    private void scanAboveLowestVersion(ExecutorService executor) {
+        List<Future<Integer>> futures = new ArrayList<>(configurations.size());
+        for (MigrationConfiguration configuration : configurations) {
+            futures.add(executor.submit(() -> readVersion(configuration)));
+        }
+        int lowestVersion = Integer.MAX_VALUE;
+        for (int i = 0; i < futures.size(); i++) {
+            Integer version = awaitVersion(futures.get(i), configurations.get(i));
+            if (version != null) {
+                lowestVersion = Math.min(lowestVersion, version);
+            }
+        }
+        if (lowestVersion == Integer.MAX_VALUE) {
+            return;
+        }
+        try {
+            repository.scanAboveVersion(lowestVersion);
+        } catch (MigrationException exception) {
+            LOGGER.debug("Unable to scan for scripts above version {}: {}", lowestVersion, exception.getMessage());
+        }
+    }
+
+    private Integer readVersion(MigrationConfiguration configuration) {
+        try {
+            Integer version = Database.readSummaryVersion(session, configuration);
+            return version == null ? 0 : version;
+        } catch (DriverException exception) {
+            LOGGER.debug("Unable to read the version of keyspace {}: {}",
+                    configuration.getKeyspace().getKeyspaceName(), exception.getMessage());
+            return null;
+        }
+    }
+
+    private static Integer awaitVersion(Future<Integer> future, MigrationConfiguration configuration) {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while reading the version of keyspace "
+                    + configuration.getKeyspace().getKeyspaceName(), exception);
+        } catch (ExecutionException exception) {
+            return null;
+        }
+    }
+
+    private KeyspaceMigrationResult migrate(MigrationConfiguration configuration) {
+        String keyspaceName = configuration.getKeyspace().getKeyspaceName();
+        try {
+            Database database = new Database(session, configuration, true).setConsistencyLevel(consistencyLevel);
+            return new MigrationTask(database, repository, withConsensus).migrateKeyspace();
+        } catch (Exception exception) {
+            LOGGER.error(format("Migration of keyspace %s failed", keyspaceName), exception);
+            return KeyspaceMigrationResult.failed(keyspaceName, exception);
+        }
+    }
+
+    private static KeyspaceMigrationResult awaitResult(Future<KeyspaceMigrationResult> future,
+                                                       MigrationConfiguration configuration) {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for the migration of keyspace "
+                    + configuration.getKeyspace().getKeyspaceName(), exception);
+        } catch (ExecutionException exception) {
+            return KeyspaceMigrationResult.failed(configuration.getKeyspace().getKeyspaceName(),
+                    new MigrationException("Unexpected error during migration", exception.getCause()));
+        }
+    }
+
+    private static void logSummary(List<KeyspaceMigrationResult> results) {
+        int[] counts = new int[KeyspaceMigrationResult.Status.values().length];
+        results.forEach(result -> counts[result.getStatus().ordinal()]++);
+        LOGGER.info(format("Migration of %d keyspaces finished: %d migrated, %d up to date, " +
+                        "%d migrated by another instance, %d failed", results.size(),
+                counts[KeyspaceMigrationResult.Status.MIGRATED.ordinal()],
+                counts[KeyspaceMigrationResult.Status.UP_TO_DATE.ordinal()],
+                counts[KeyspaceMigrationResult.Status.MIGRATED_BY_OTHER_INSTANCE.ordinal()],
+                counts[KeyspaceMigrationResult.Status.FAILED.ordinal()]));
+    }
+
+    private static final class MigrationThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cassandra-migration-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
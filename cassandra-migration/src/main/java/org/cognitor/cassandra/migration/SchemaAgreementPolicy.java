@@ -0,0 +1,37 @@
+package org.cognitor.cassandra.migration;
+
+/**
+ * Defines when the migration waits for all nodes of the cluster to agree on the schema.
+ * Waiting for schema agreement can take a considerable amount of time on large clusters,
+ * so depending on the migration scripts it might be desirable to wait less often.
+ *
+ * Be aware that the Datastax driver already waits for schema agreement after every statement that
+ * changes the schema, as long as <code>advanced.control-connection.schema-agreement.timeout</code>
+ * is not set to zero. The policies that defer the agreement only save time if this wait of the
+ * driver is disabled for the session that is used for migrations.
+ *
+ * @see MigrationConfiguration#withSchemaAgreementPolicy(SchemaAgreementPolicy)
+ */
+public enum SchemaAgreementPolicy {
+    /**
+     * Checks the schema agreement after every statement and fails immediately if the driver reports that
+     * no agreement was reached. This was the behavior before the policy was introduced.
+     */
+    AFTER_EVERY_STATEMENT,
+    /**
+     * Waits for schema agreement after every statement that changes the schema. Data manipulation and
+     * <code>TRUNCATE</code> statements never wait. This is the default.
+     */
+    AFTER_SCHEMA_CHANGE,
+    /**
+     * Waits for schema agreement once after every script that changed the schema. Only use this if
+     * the statements inside a script do not depend on schema changes of previous statements of the same script,
+     * e.g. an index created on a table created in the same script.
+     */
+    AFTER_SCRIPT,
+    /**
+     * Waits for schema agreement once after all scripts are executed. Only use this if the scripts
+     * do not depend on schema changes of previous statements.
+     */
+    AFTER_MIGRATION
+}
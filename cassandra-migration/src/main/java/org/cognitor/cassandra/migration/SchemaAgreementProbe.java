@@ -0,0 +1,197 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DriverException;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Checks if all nodes of the cluster agree on the schema by comparing the schema versions found in
+ * <code>system.local</code> and <code>system.peers</code> of one coordinator. Both tables are read concurrently
+ * from the same coordinator, so a check takes a single round trip. Only peers that are known to the driver and
+ * are up are considered, the same way the driver does it. The check can be limited to the nodes of one datacenter.
+ *
+ * This is used instead of the driver's own check as that one is disabled once the schema agreement
+ * timeout of the driver is set to zero. If the agreement is not reached in time, the nodes that lag behind
+ * are available from <code>getDisagreement()</code>.
+ */
+class SchemaAgreementProbe {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaAgreementProbe.class);
+    private static final String LOCAL_SCHEMA_QUERY = "SELECT host_id, schema_version FROM system.local WHERE key = 'local'";
+    private static final String PEERS_SCHEMA_QUERY = "SELECT host_id, schema_version FROM system.peers";
+
+    private final CqlSession session;
+    private final Duration timeout;
+    private final Duration pollInterval;
+    private final String datacenter;
+    private int coordinatorIndex = 0;
+    private String disagreement;
+
+    /**
+     * @param session      the session used to read the schema versions. Must not be null.
+     * @param timeout      the maximum time to wait for the agreement. Must not be null.
+     * @param pollInterval the time between two checks. Must not be null.
+     * @param datacenter   the datacenter whose nodes have to agree or null if all nodes have to agree
+     */
+    SchemaAgreementProbe(CqlSession session, Duration timeout, Duration pollInterval, @Nullable String datacenter) {
+        this.session = notNull(session, "session");
+        this.timeout = notNull(timeout, "timeout");
+        this.pollInterval = notNull(pollInterval, "pollInterval");
+        this.datacenter = datacenter;
+    }
+
+    /**
+     * Polls the schema versions of the cluster until all nodes agree or the timeout is reached.
+     *
+     * @return true if the schema is in agreement, false if the timeout passed before
+     */
+    boolean awaitAgreement() {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            if (isInAgreement()) {
+                disagreement = null;
+                return true;
+            }
+            if (System.nanoTime() >= deadline) {
+                LOGGER.warn("Schema agreement was not reached within {}: {}", timeout, disagreement);
+                return false;
+            }
+            sleep();
+        }
+    }
+
+    /**
+     * @return a description of the nodes that did not agree on the schema in the last check or null if the
+     * schema was in agreement
+     */
+    @Nullable
+    String getDisagreement() {
+        return disagreement;
+    }
+
+    private boolean isInAgreement() {
+        Node coordinator = selectCoordinator();
+        if (coordinator == null) {
+            disagreement = "no node" + (datacenter == null ? "" : " of datacenter " + datacenter) + " is up";
+            return false;
+        }
+        try {
+            CompletionStage<AsyncResultSet> local = session.executeAsync(
+                    SimpleStatement.newInstance(LOCAL_SCHEMA_QUERY).setNode(coordinator));
+            CompletionStage<AsyncResultSet> peers = session.executeAsync(
+                    SimpleStatement.newInstance(PEERS_SCHEMA_QUERY).setNode(coordinator));
+            Map<Node, UUID> schemaVersions = new LinkedHashMap<>();
+            collectSchemaVersions(local.toCompletableFuture().get(), schemaVersions);
+            collectSchemaVersions(peers.toCompletableFuture().get(), schemaVersions);
+            LOGGER.debug("Found schema versions {}", schemaVersions);
+            if (schemaVersions.isEmpty()) {
+                disagreement = "no schema version was found";
+                return false;
+            }
+            disagreement = describeLaggingNodes(schemaVersions);
+            return disagreement == null;
+        } catch (ExecutionException exception) {
+            if (!(exception.getCause() instanceof DriverException)) {
+                throw new MigrationException("Unexpected error while checking schema agreement", exception.getCause());
+            }
+            LOGGER.debug("Error while checking schema agreement. Retrying.", exception.getCause());
+            disagreement = "checking the schema versions on " + coordinator.getEndPoint() + " failed: "
+                    + exception.getCause().getMessage();
+            coordinatorIndex++;
+            return false;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Selects one of the nodes in scope that are up. The next node is used after a check failed.
+     */
+    @Nullable
+    private Node selectCoordinator() {
+        List<Node> candidates = new ArrayList<>();
+        for (Node node : session.getMetadata().getNodes().values()) {
+            if (node.getState() == NodeState.UP && isInScope(node)) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(Math.floorMod(coordinatorIndex, candidates.size()));
+    }
+
+    private void collectSchemaVersions(AsyncResultSet resultSet, Map<Node, UUID> schemaVersions) {
+        Map<UUID, Node> nodes = session.getMetadata().getNodes();
+        for (Row row : resultSet.currentPage()) {
+            Node node = row.isNull("host_id") ? null : nodes.get(row.getUuid("host_id"));
+            if (node != null && node.getState() == NodeState.UP && isInScope(node)
+                    && !row.isNull("schema_version")) {
+                schemaVersions.put(node, row.getUuid("schema_version"));
+            }
+        }
+    }
+
+    private boolean isInScope(Node node) {
+        return datacenter == null || datacenter.equals(node.getDatacenter());
+    }
+
+    /**
+     * Treats the schema version most nodes have as the agreed one and describes all other nodes.
+     *
+     * @return the description of the lagging nodes or null if all nodes have the same schema version
+     */
+    @Nullable
+    static String describeLaggingNodes(Map<Node, UUID> schemaVersions) {
+        Map<UUID, Integer> nodeCounts = new HashMap<>();
+        schemaVersions.values().forEach(version -> nodeCounts.merge(version, 1, Integer::sum));
+        if (nodeCounts.size() == 1) {
+            return null;
+        }
+        UUID majorityVersion = null;
+        for (Map.Entry<UUID, Integer> nodeCount : nodeCounts.entrySet()) {
+            if (majorityVersion == null || nodeCount.getValue() > nodeCounts.get(majorityVersion)) {
+                majorityVersion = nodeCount.getKey();
+            }
+        }
+        StringJoiner laggingNodes = new StringJoiner(", ", "nodes with a schema version other than "
+                + majorityVersion + ": ", "");
+        for (Map.Entry<Node, UUID> schemaVersion : schemaVersions.entrySet()) {
+            if (!schemaVersion.getValue().equals(majorityVersion)) {
+                Node node = schemaVersion.getKey();
+                laggingNodes.add(node.getEndPoint() + " (" + node.getDatacenter() + ", " + schemaVersion.getValue() + ")");
+            }
+        }
+        return laggingNodes.toString();
+    }
+
+    private void sleep() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(pollInterval.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.cognitor.cassandra.migration;
+
+import org.cognitor.cassandra.migration.cql.StatementType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Keeps track of schema changes the cluster might not have agreed on yet and decides, according to the
+ * {@link SchemaAgreementPolicy}, when the migration waits for the agreement. The wait itself is done by the
+ * {@link SchemaAgreementProbe}.
+ */
+class SchemaAgreementTracker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaAgreementTracker.class);
+
+    private final SchemaAgreementPolicy policy;
+    private final SchemaAgreementProbe probe;
+    private boolean pending = false;
+
+    /**
+     * @param policy the policy that defines when to wait. Must not be null.
+     * @param probe  the probe used to wait for the agreement. Must not be null.
+     */
+    SchemaAgreementTracker(SchemaAgreementPolicy policy, SchemaAgreementProbe probe) {
+        this.policy = notNull(policy, "policy");
+        this.probe = notNull(probe, "probe");
+    }
+
+    /**
+     * Called after a statement of a script was executed.
+     *
+     * @param statementType  the type of the executed statement. Must not be null.
+     * @param agreedByDriver true or false if the driver checked the schema agreement after the statement,
+     *                       null if the driver did not check it, e.g. because the schema metadata is disabled
+     * @param scriptName     the name of the script the statement belongs to
+     * @throws MigrationException if the schema agreement could not be reached in time
+     */
+    void statementExecuted(StatementType statementType, @Nullable Boolean agreedByDriver, String scriptName) {
+        if (Boolean.TRUE.equals(agreedByDriver)) {
+            return;
+        }
+        boolean schemaChange = notNull(statementType, "statementType").mayChangeSchema();
+        switch (policy) {
+            case AFTER_EVERY_STATEMENT:
+                if (agreedByDriver != null) {
+                    throw new MigrationException("Schema agreement could not be reached. " +
+                            "You might consider increasing 'maxSchemaAgreementWaitSeconds'.", scriptName);
+                }
+                // not checked by the driver, so the agreement is awaited like after a schema change
+            case AFTER_SCHEMA_CHANGE:
+                if (schemaChange) {
+                    pending = true;
+                    awaitPending(scriptName);
+                }
+                break;
+            default:
+                pending = pending || schemaChange;
+        }
+    }
+
+    /**
+     * Called after all statements of a script were executed.
+     *
+     * @param scriptName the name of the script
+     * @throws MigrationException if the schema agreement could not be reached in time
+     */
+    void scriptExecuted(String scriptName) {
+        if (policy == SchemaAgreementPolicy.AFTER_SCRIPT) {
+            awaitPending(scriptName);
+        }
+    }
+
+    /**
+     * Waits for schema agreement if a statement executed before has changed the schema and
+     * the agreement was not awaited yet.
+     *
+     * @param scriptName the name of the script that is currently executed or null after the migration
+     * @throws MigrationException if the schema agreement could not be reached in time
+     */
+    void awaitPending(@Nullable String scriptName) {
+        if (!pending) {
+            return;
+        }
+        LOGGER.debug("Waiting for schema agreement");
+        if (!probe.awaitAgreement()) {
+            throw new MigrationException("Schema agreement could not be reached (" +
+                    probe.getDisagreement() + "). " +
+                    "You might consider increasing the schema agreement timeout.", scriptName);
+        }
+        pending = false;
+    }
+
+    /**
+     * @return true if a schema change was not yet agreed on
+     */
+    boolean isPending() {
+        return pending;
+    }
+}
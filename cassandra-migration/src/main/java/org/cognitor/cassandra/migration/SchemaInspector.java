@@ -0,0 +1,111 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+
+/**
+ * Looks up the keyspace, tables and columns the migration depends on. If schema metadata is enabled on the
+ * session, the metadata of the driver is used. Otherwise, e.g. for sessions in clusters with thousands of tables
+ * where the metadata is turned off to save heap, only the required objects are read from
+ * <code>system_schema</code> (Cassandra 3.0 and later). Whether schema metadata is enabled is checked on every
+ * lookup, as it might be switched at runtime.
+ *
+ * Names are given the way they are written in CQL, so unquoted names are case insensitive.
+ */
+class SchemaInspector {
+    private static final String KEYSPACE_QUERY =
+            "SELECT keyspace_name FROM system_schema.keyspaces WHERE keyspace_name = ?";
+    private static final String TABLES_QUERY =
+            "SELECT table_name FROM system_schema.tables WHERE keyspace_name = ? AND table_name IN ?";
+    private static final String COLUMNS_QUERY =
+            "SELECT column_name FROM system_schema.columns WHERE keyspace_name = ? AND table_name = ?";
+
+    private final CqlSession session;
+    private final CqlIdentifier keyspace;
+
+    SchemaInspector(CqlSession session, String keyspaceName) {
+        this.session = notNull(session, "session");
+        this.keyspace = CqlIdentifier.fromCql(notNullOrEmpty(keyspaceName, "keyspaceName"));
+    }
+
+    /**
+     * @return true if the keyspace exists
+     */
+    boolean keyspaceExists() {
+        if (session.isSchemaMetadataEnabled()) {
+            return getKeyspaceMetadata().isPresent();
+        }
+        return session.execute(SimpleStatement.newInstance(KEYSPACE_QUERY, keyspace.asInternal())).one() != null;
+    }
+
+    /**
+     * @param tableNames the names of the tables inside the keyspace. Must not be null.
+     * @return true if all of the tables exist
+     */
+    boolean tablesExist(String... tableNames) {
+        if (session.isSchemaMetadataEnabled()) {
+            Optional<KeyspaceMetadata> keyspaceMetadata = getKeyspaceMetadata();
+            for (String tableName : notNull(tableNames, "tableNames")) {
+                if (!keyspaceMetadata.flatMap(metadata -> metadata.getTable(tableName)).isPresent()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Set<String> requiredTables = new HashSet<>();
+        for (String tableName : notNull(tableNames, "tableNames")) {
+            requiredTables.add(CqlIdentifier.fromCql(tableName).asInternal());
+        }
+        Set<String> existingTables = new HashSet<>();
+        for (Row row : session.execute(SimpleStatement.newInstance(TABLES_QUERY, keyspace.asInternal(),
+                new ArrayList<>(requiredTables)))) {
+            existingTables.add(row.getString("table_name"));
+        }
+        return existingTables.containsAll(requiredTables);
+    }
+
+    /**
+     * @param tableName the name of the table inside the keyspace. Must not be null or empty.
+     * @return the internal names of the columns of the table or null if the table does not exist
+     */
+    @Nullable
+    Set<String> findColumnNames(String tableName) {
+        notNullOrEmpty(tableName, "tableName");
+        Set<String> columnNames = new HashSet<>();
+        if (session.isSchemaMetadataEnabled()) {
+            Optional<TableMetadata> table = getKeyspaceMetadata().flatMap(metadata -> metadata.getTable(tableName));
+            if (!table.isPresent()) {
+                return null;
+            }
+            for (ColumnMetadata column : table.get().getColumns().values()) {
+                columnNames.add(column.getName().asInternal());
+            }
+            return columnNames;
+        }
+        List<Row> rows = session.execute(SimpleStatement.newInstance(COLUMNS_QUERY, keyspace.asInternal(),
+                CqlIdentifier.fromCql(tableName).asInternal())).all();
+        for (Row row : rows) {
+            columnNames.add(row.getString("column_name"));
+        }
+        return columnNames.isEmpty() ? null : columnNames;
+    }
+
+    private Optional<KeyspaceMetadata> getKeyspaceMetadata() {
+        return session.getMetadata().getKeyspace(keyspace);
+    }
+}
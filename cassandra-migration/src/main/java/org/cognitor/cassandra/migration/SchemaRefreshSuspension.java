@@ -0,0 +1,77 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Disables the schema metadata of sessions while migrations are executed, so the driver does not refresh the schema
+ * after every schema change. Suspensions of the same session are counted, e.g. if several keyspaces are migrated
+ * concurrently on a shared session, and the schema metadata is enabled again, which triggers a single refresh,
+ * once the last suspension ends. A session whose schema metadata is already disabled is left alone.
+ */
+final class SchemaRefreshSuspension {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaRefreshSuspension.class);
+    private static final Map<CqlSession, Integer> SUSPENSIONS = new IdentityHashMap<>();
+
+    private SchemaRefreshSuspension() {
+    }
+
+    /**
+     * Disables the schema metadata of the session unless it is disabled already.
+     *
+     * @param session the session. Must not be null.
+     * @return true if the suspension was registered and <code>resume</code> has to be called, false if the
+     * schema metadata of the session was disabled before
+     */
+    static synchronized boolean suspend(CqlSession session) {
+        Integer suspensions = SUSPENSIONS.get(notNull(session, "session"));
+        if (suspensions == null) {
+            if (!session.isSchemaMetadataEnabled()) {
+                return false;
+            }
+            LOGGER.debug("Disabling schema metadata until the migration is done");
+            session.setSchemaMetadataEnabled(false);
+            suspensions = 0;
+        }
+        SUSPENSIONS.put(session, suspensions + 1);
+        return true;
+    }
+
+    /**
+     * Ends a suspension registered by <code>suspend</code>. If it was the last one, the schema metadata is enabled
+     * again and this waits until the schema was refreshed.
+     *
+     * @param session the session. Must not be null.
+     */
+    static void resume(CqlSession session) {
+        CompletionStage<Metadata> refresh;
+        synchronized (SchemaRefreshSuspension.class) {
+            int suspensions = SUSPENSIONS.getOrDefault(notNull(session, "session"), 0) - 1;
+            if (suspensions > 0) {
+                SUSPENSIONS.put(session, suspensions);
+                return;
+            }
+            if (SUSPENSIONS.remove(session) == null) {
+                return;
+            }
+            LOGGER.debug("Enabling schema metadata and refreshing the schema");
+            refresh = session.setSchemaMetadataEnabled(true);
+        }
+        try {
+            refresh.toCompletableFuture().get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            LOGGER.warn("Refreshing the schema after the migration failed: {}", exception.getCause().getMessage());
+        }
+    }
+}
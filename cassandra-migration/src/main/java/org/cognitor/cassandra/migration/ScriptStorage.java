@@ -0,0 +1,26 @@
+package org.cognitor.cassandra.migration;
+
+/**
+ * Defines how the content of a migration script is stored in the migration table. Independent of the
+ * storage, every entry of the migration table contains the checksum of the script, the time the execution
+ * took and the number of statements that were executed.
+ *
+ * @see MigrationConfiguration#withScriptStorage(ScriptStorage)
+ */
+public enum ScriptStorage {
+    /**
+     * Stores the whole script in the <code>script</code> column of the migration table. Large data scripts
+     * result in large cells that put pressure on the heap of the Cassandra nodes. This is the default.
+     */
+    FULL,
+    /**
+     * Stores the script compressed and split into chunks in a separate table, addressed by the checksum
+     * of the script, so a script that is logged several times is only stored once. The
+     * <code>script</code> column of the migration table stays empty.
+     */
+    COMPRESSED,
+    /**
+     * Does not store the script at all. Only the checksum identifies the content that was executed.
+     */
+    NONE
+}
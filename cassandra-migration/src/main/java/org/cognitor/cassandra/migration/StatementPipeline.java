@@ -0,0 +1,149 @@
+package org.cognitor.cassandra.migration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Keeps track of statements that were executed asynchronously and limits the number of
+ * statements that are in flight at the same time. Statements are awaited in the order
+ * they were submitted, so the statement reported as failed is always the first failing
+ * statement in the order of the script.
+ *
+ * Instances are not thread safe and are meant to be used for the execution of a single script.
+ */
+class StatementPipeline {
+    private final int maxInFlight;
+    private final Deque<PendingStatement> inFlight = new ArrayDeque<>();
+    private String failedStatement;
+    private int completedStatements = 0;
+    private String lastCompletedStatement;
+
+    /**
+     * @param maxInFlight the maximum number of statements that are executed concurrently. Must be at least one.
+     */
+    StatementPipeline(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Argument maxInFlight must be at least 1.");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Adds a statement that has already been sent to the database. If the maximum number of statements in
+     * flight is reached, this method blocks until the oldest statement has completed.
+     *
+     * @param statement the statement that was executed. Must not be null.
+     * @param result    the pending result of the execution. Must not be null.
+     * @throws Exception the cause of the failure if one of the awaited statements failed
+     */
+    void submit(String statement, CompletionStage<?> result) throws Exception {
+        inFlight.addLast(new PendingStatement(notNull(statement, "statement"), notNull(result, "result")));
+        while (inFlight.size() > maxInFlight) {
+            awaitOldest();
+        }
+    }
+
+    /**
+     * Waits for all statements that are currently in flight. If one of them fails, the remaining
+     * ones are still awaited so that no statement is running anymore once this method returns.
+     *
+     * @throws Exception the cause of the first failing statement
+     */
+    void awaitAll() throws Exception {
+        try {
+            while (!inFlight.isEmpty()) {
+                awaitOldest();
+            }
+        } finally {
+            awaitQuietly();
+        }
+    }
+
+    /**
+     * Waits for all statements that are currently in flight and ignores any failure. This is used
+     * to make sure nothing is running anymore after an error occurred.
+     */
+    void awaitQuietly() {
+        while (!inFlight.isEmpty()) {
+            try {
+                inFlight.removeFirst().result.toCompletableFuture().join();
+            } catch (CompletionException ignored) {
+                // the first failure has already been reported
+            }
+        }
+    }
+
+    /**
+     * @return the statement that failed first or null if no statement failed
+     */
+    String getFailedStatement() {
+        return failedStatement;
+    }
+
+    /**
+     * Records a statement that was executed synchronously after all statements in flight were awaited,
+     * so that it is counted in the order of the script.
+     *
+     * @param statement the statement that completed successfully. Must not be null.
+     */
+    void completed(String statement) {
+        if (!inFlight.isEmpty()) {
+            throw new IllegalStateException("Statements are still in flight.");
+        }
+        if (failedStatement == null) {
+            completedStatements++;
+            lastCompletedStatement = notNull(statement, "statement");
+        }
+    }
+
+    /**
+     * @return the number of statements that completed successfully without any failing statement before them
+     */
+    int getCompletedStatements() {
+        return completedStatements;
+    }
+
+    /**
+     * @return the last statement that was counted by <code>getCompletedStatements</code> or null if none
+     */
+    String getLastCompletedStatement() {
+        return lastCompletedStatement;
+    }
+
+    private void awaitOldest() throws Exception {
+        PendingStatement pending = inFlight.removeFirst();
+        try {
+            pending.result.toCompletableFuture().get();
+            if (failedStatement == null) {
+                completedStatements++;
+                lastCompletedStatement = pending.statement;
+            }
+        } catch (ExecutionException exception) {
+            failedStatement = pending.statement;
+            Throwable cause = exception.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw exception;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            failedStatement = pending.statement;
+            throw exception;
+        }
+    }
+
+    private static final class PendingStatement {
+        private final String statement;
+        private final CompletionStage<?> result;
+
+        private PendingStatement(String statement, CompletionStage<?> result) {
+            this.statement = statement;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.cognitor.cassandra.migration;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Keeps the claim on a token range while its rows are processed. Before every row the claim is renewed if a
+ * third of the claim TTL has passed since the last renewal. Like the lead on migrations, the claim is considered
+ * lost if a renewal is rejected or if no renewal was sent within the TTL minus one renewal interval, e.g. because
+ * a single row took too long. The time of a renewal is taken before it is sent, as its TTL starts when Cassandra
+ * applies it.
+ *
+ * Instances are not thread safe, every range is processed by a single worker.
+ */
+final class TokenRangeClaim {
+    private final BooleanSupplier renewal;
+    private final LongSupplier nanoClock;
+    private final long intervalNanos;
+    private final long validityNanos;
+    private long lastRenewal;
+    private boolean lost = false;
+
+    /**
+     * @param renewal        renews the claim and returns true if the renewal was applied. Must not be null.
+     * @param claimTtl       the TTL of the claim. Must not be null.
+     * @param claimedAtNanos the time of the nano clock before the claim was requested
+     * @param nanoClock      the clock used to measure the time since the last renewal. Must not be null.
+     */
+    TokenRangeClaim(BooleanSupplier renewal, Duration claimTtl, long claimedAtNanos, LongSupplier nanoClock) {
+        this.renewal = notNull(renewal, "renewal");
+        this.nanoClock = notNull(nanoClock, "nanoClock");
+        long claimTtlNanos = notNull(claimTtl, "claimTtl").toNanos();
+        this.intervalNanos = Math.max(1, claimTtlNanos / 3);
+        this.validityNanos = claimTtlNanos - intervalNanos;
+        this.lastRenewal = claimedAtNanos;
+    }
+
+    /**
+     * Renews the claim if a renewal is due.
+     *
+     * @return true if the claim is still held, false if it was lost and the range must not be processed further
+     */
+    boolean keep() {
+        if (lost) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        if (now - lastRenewal >= validityNanos) {
+            lost = true;
+        } else if (now - lastRenewal >= intervalNanos) {
+            if (renewal.getAsBoolean()) {
+                lastRenewal = now;
+            } else {
+                lost = true;
+            }
+        }
+        return !lost;
+    }
+}
@@ -0,0 +1,400 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import org.cognitor.cassandra.migration.util.ExponentialBackoff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import static java.lang.String.format;
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+
+/**
+ * Processes all rows of a table by splitting the token ring into ranges that are read in parallel.
+ * The ranges of the token map of the session are split evenly into <code>splitsPerRange</code>
+ * ranges, so every range is owned by the same replicas. Every range is read with async paging: the next
+ * page is requested before the rows of the current page are handed to the {@link RowHandler}.
+ *
+ * Every completed range is recorded in the progress table of the keyspace. If the migration is
+ * executed again after a failure, the completed ranges are skipped. A range that was not completed is
+ * processed again from its beginning, so the row handler must be idempotent. The ranges only match the
+ * recorded ranges if the token ring and the number of splits did not change in between.
+ *
+ * If work sharing is enabled in the {@link MigrationConfiguration}, instances waiting for the lead on
+ * migrations process the ranges together with the instance holding the lead. Every range is claimed with
+ * a lightweight transaction before it is processed and recorded as completed with another one, which only
+ * succeeds as long as the range is still claimed by the instance. The claim is renewed while the rows are
+ * handled and the range is abandoned as soon as the claim is lost, see {@link TokenRangeClaim}.
+ *
+ * Instances are created with {@link MigrationContext#tokenRangeMigration(String, String...)}.
+ */
+public class TokenRangeMigration {
+    /**
+     * The default number of ranges that are processed at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+    /**
+     * The default number of ranges every range of the token map is split into.
+     */
+    public static final int DEFAULT_SPLITS_PER_RANGE = 1;
+    /**
+     * The default number of rows read with one page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRangeMigration.class);
+    private static final String RANGE_QUERY = "SELECT %s FROM %s.%s WHERE token(%s) > ? AND token(%s) <= ?";
+    private static final String RANGE_TO_END_QUERY = "SELECT %s FROM %s.%s WHERE token(%s) > ?";
+    private static final Duration CLAIMED_RANGES_INITIAL_DELAY = Duration.ofMillis(200);
+    private static final Duration CLAIMED_RANGES_MAX_DELAY = Duration.ofSeconds(5);
+    private static final double CLAIMED_RANGES_JITTER = 0.5;
+
+    private final MigrationContext context;
+    private final String tableName;
+    private final String partitionKey;
+    private String columns = "*";
+    private String taskName;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int splitsPerRange = DEFAULT_SPLITS_PER_RANGE;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    TokenRangeMigration(MigrationContext context, String tableName, List<String> partitionKeyColumns) {
+        this.context = notNull(context, "context");
+        this.tableName = notNullOrEmpty(tableName, "tableName");
+        this.partitionKey = String.join(", ", notNullOrEmpty(partitionKeyColumns, "partitionKeyColumns"));
+        this.taskName = tableName;
+    }
+
+    /**
+     * Sets the columns that are read. The default is all columns.
+     *
+     * @param columns the columns to read. Must not be empty.
+     * @return the current instance
+     */
+    public TokenRangeMigration withColumns(String... columns) {
+        if (notNull(columns, "columns").length == 0) {
+            throw new IllegalArgumentException("At least one column is required");
+        }
+        this.columns = String.join(", ", columns);
+        return this;
+    }
+
+    /**
+     * Sets the name the completed ranges are recorded with. The default is the name of the table.
+     * A different name is required if a migration processes the same table more than once.
+     *
+     * @param taskName the name of the task. Must not be null or empty.
+     * @return the current instance
+     */
+    public TokenRangeMigration withTaskName(String taskName) {
+        this.taskName = notNullOrEmpty(taskName, "taskName");
+        return this;
+    }
+
+    /**
+     * Sets the number of ranges that are processed at the same time. The default is
+     * <code>DEFAULT_PARALLELISM</code>.
+     *
+     * @param parallelism the number of ranges processed at the same time. Must be greater than zero.
+     * @return the current instance
+     */
+    public TokenRangeMigration withParallelism(int parallelism) {
+        this.parallelism = requirePositive(parallelism, "parallelism");
+        return this;
+    }
+
+    /**
+     * Sets the number of ranges every range of the token map is split into. More splits result in
+     * smaller units of work that need to be repeated after a failure. The default is
+     * <code>DEFAULT_SPLITS_PER_RANGE</code>.
+     *
+     * @param splitsPerRange the number of splits per range. Must be greater than zero.
+     * @return the current instance
+     */
+    public TokenRangeMigration withSplitsPerRange(int splitsPerRange) {
+        this.splitsPerRange = requirePositive(splitsPerRange, "splitsPerRange");
+        return this;
+    }
+
+    /**
+     * Sets the number of rows read with one page. The default is <code>DEFAULT_PAGE_SIZE</code>.
+     *
+     * @param pageSize the page size. Must be greater than zero.
+     * @return the current instance
+     */
+    public TokenRangeMigration withPageSize(int pageSize) {
+        this.pageSize = requirePositive(pageSize, "pageSize");
+        return this;
+    }
+
+    /**
+     * Hands every row of the table to the given handler. The handler is called from several threads at
+     * the same time but only from one thread for the rows of a range. It may use the synchronous API
+     * of the session.
+     *
+     * If work sharing is enabled in the <code>MigrationConfiguration</code>, the ranges are published as
+     * work units and every range is claimed before it is processed. The instance holding the lead returns
+     * once all ranges are completed, including the ranges processed by other instances. An assisting
+     * instance returns as soon as there is no range left it could claim.
+     *
+     * @param handler the handler processing the rows. Must not be null.
+     * @return the number of rows processed by this instance, not including the rows of ranges completed before
+     * @throws MigrationException if a row could not be read or processed or the lead on migrations was lost
+     */
+    public long forEachRow(RowHandler handler) {
+        notNull(handler, "handler");
+        CqlSession session = context.getSession();
+        TokenMap tokenMap = session.getMetadata().getTokenMap().orElseThrow(() -> new MigrationException(
+                "The token map is not available. Token range migrations require token metadata to be enabled.",
+                context.getMigrationName()));
+        RangeProcessor processor = new RangeProcessor(session, tokenMap, handler);
+        List<TokenRange> ranges = splitTokenRing(tokenMap.getTokenRanges(), splitsPerRange);
+        long processedRows;
+        if (context.isWorkSharing()) {
+            processedRows = processSharedRanges(processor, tokenMap, ranges);
+        } else {
+            List<TokenRange> pendingRanges =
+                    findPendingRanges(ranges, context.readCompletedTokenRanges(taskName), tokenMap);
+            LOGGER.info(format("Processing %d of %d token ranges of table %s.%s in migration %s",
+                    pendingRanges.size(), ranges.size(), context.getKeyspaceName(), tableName,
+                    context.getMigrationName()));
+            processedRows = processor.processAll(pendingRanges, false);
+        }
+        LOGGER.info(format("Processed %d rows of table %s.%s in migration %s", processedRows,
+                context.getKeyspaceName(), tableName, context.getMigrationName()));
+        return processedRows;
+    }
+
+    /**
+     * Processes the ranges that are published as work units and can be claimed by this instance. The
+     * instance holding the lead publishes the ranges first and waits for the ranges claimed by other
+     * instances, taking over ranges whose claim expired.
+     */
+    private long processSharedRanges(RangeProcessor processor, TokenMap tokenMap, List<TokenRange> ranges) {
+        Map<String, TokenRange> rangesByStart = new HashMap<>();
+        for (TokenRange range : ranges) {
+            rangesByStart.put(tokenMap.format(range.getStart()), range);
+        }
+        if (!context.isAssisting()) {
+            publishMissingRanges(tokenMap, rangesByStart);
+        }
+        ExponentialBackoff backoff = new ExponentialBackoff(CLAIMED_RANGES_INITIAL_DELAY,
+                CLAIMED_RANGES_MAX_DELAY, CLAIMED_RANGES_JITTER);
+        long processedRows = 0;
+        while (true) {
+            int pendingRanges = 0;
+            List<TokenRange> claimableRanges = new ArrayList<>();
+            for (TokenRangeWorkUnit workUnit : context.readTokenRangeWorkUnits(taskName)) {
+                TokenRange range = rangesByStart.get(workUnit.getRangeStart());
+                if (workUnit.isCompleted() || range == null
+                        || !tokenMap.format(range.getEnd()).equals(workUnit.getRangeEnd())) {
+                    continue;
+                }
+                pendingRanges++;
+                if (workUnit.getOwner() == null) {
+                    claimableRanges.add(range);
+                }
+            }
+            if (pendingRanges == 0 || (claimableRanges.isEmpty() && context.isAssisting())) {
+                return processedRows;
+            }
+            if (claimableRanges.isEmpty()) {
+                LOGGER.debug(format("Waiting for %d token ranges of table %s.%s claimed by other instances",
+                        pendingRanges, context.getKeyspaceName(), tableName));
+                context.ensureLead();
+                sleep(backoff.nextDelayMillis());
+                continue;
+            }
+            backoff.reset();
+            LOGGER.info(format("Claiming %d of %d pending token ranges of table %s.%s in migration %s",
+                    claimableRanges.size(), pendingRanges, context.getKeyspaceName(), tableName,
+                    context.getMigrationName()));
+            processedRows += processor.processAll(claimableRanges, true);
+        }
+    }
+
+    private void publishMissingRanges(TokenMap tokenMap, Map<String, TokenRange> rangesByStart) {
+        Map<String, String> publishedRanges = new HashMap<>();
+        for (TokenRangeWorkUnit workUnit : context.readTokenRangeWorkUnits(taskName)) {
+            publishedRanges.put(workUnit.getRangeStart(), workUnit.getRangeEnd());
+        }
+        List<String[]> missingRanges = new ArrayList<>();
+        for (Map.Entry<String, TokenRange> range : rangesByStart.entrySet()) {
+            String end = tokenMap.format(range.getValue().getEnd());
+            if (!end.equals(publishedRanges.get(range.getKey()))) {
+                missingRanges.add(new String[]{range.getKey(), end});
+            }
+        }
+        LOGGER.info(format("Publishing %d token ranges of table %s.%s in migration %s", missingRanges.size(),
+                context.getKeyspaceName(), tableName, context.getMigrationName()));
+        context.publishTokenRanges(taskName, missingRanges);
+    }
+
+    /**
+     * Splits the ranges of the token map and unwraps the ranges that wrap around the end of the ring.
+     * A range that ends with the minimum token after unwrapping is read to the end of the ring.
+     *
+     * @param tokenRanges    the ranges of the token map
+     * @param splitsPerRange the number of ranges every range is split into
+     * @return the sorted ranges that cover the whole ring without wrapping around
+     */
+    static List<TokenRange> splitTokenRing(Collection<TokenRange> tokenRanges, int splitsPerRange) {
+        List<TokenRange> ranges = new ArrayList<>();
+        for (TokenRange range : tokenRanges) {
+            for (TokenRange split : splitsPerRange > 1 ? range.splitEvenly(splitsPerRange)
+                    : Collections.singletonList(range)) {
+                ranges.addAll(split.unwrap());
+            }
+        }
+        Collections.sort(ranges);
+        return ranges;
+    }
+
+    /**
+     * @param ranges          the ranges of the token ring
+     * @param completedRanges the end of every completed range by the start of the range, both formatted
+     *                        with the token map
+     * @param tokenMap        the token map used to format the tokens
+     * @return the ranges that are not recorded as completed with the same start and end
+     */
+    static List<TokenRange> findPendingRanges(List<TokenRange> ranges, Map<String, String> completedRanges,
+                                              TokenMap tokenMap) {
+        List<TokenRange> pendingRanges = new ArrayList<>();
+        for (TokenRange range : ranges) {
+            if (!tokenMap.format(range.getEnd()).equals(completedRanges.get(tokenMap.format(range.getStart())))) {
+                pendingRanges.add(range);
+            }
+        }
+        return pendingRanges;
+    }
+
+    private static AsyncResultSet await(CompletionStage<AsyncResultSet> stage) throws Exception {
+        try {
+            return stage.toCompletableFuture().get();
+        } catch (ExecutionException exception) {
+            throw exception.getCause() instanceof Exception ? (Exception) exception.getCause() : exception;
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for token ranges", exception,
+                    context.getMigrationName());
+        }
+    }
+
+    private static int requirePositive(int value, String argumentName) {
+        if (value < 1) {
+            throw new IllegalArgumentException(format("The %s must be greater than zero", argumentName));
+        }
+        return value;
+    }
+
+    /**
+     * Reads ranges with a bounded number of worker threads and records every completed range.
+     */
+    private final class RangeProcessor {
+        private final CqlSession session;
+        private final TokenMap tokenMap;
+        private final RowHandler handler;
+        private final PreparedStatement rangeQuery;
+        private final PreparedStatement rangeToEndQuery;
+
+        private RangeProcessor(CqlSession session, TokenMap tokenMap, RowHandler handler) {
+            this.session = session;
+            this.tokenMap = tokenMap;
+            this.handler = handler;
+            this.rangeQuery = session.prepare(format(RANGE_QUERY, columns, context.getKeyspaceName(),
+                    tableName, partitionKey, partitionKey));
+            this.rangeToEndQuery = session.prepare(format(RANGE_TO_END_QUERY, columns,
+                    context.getKeyspaceName(), tableName, partitionKey));
+        }
+
+        /**
+         * @param ranges the ranges to process. Must not be null.
+         * @param claim  true if every range has to be claimed before it is processed
+         * @return the number of rows processed
+         */
+        private long processAll(List<TokenRange> ranges, boolean claim) {
+            return TokenRangeWorkers.processAll(ranges, parallelism, range -> {
+                context.ensureLead();
+                return process(range, claim);
+            }, format("Error while processing token ranges of table %s.%s", context.getKeyspaceName(), tableName),
+                    context.getMigrationName());
+        }
+
+        private long process(TokenRange range, boolean claim) throws Exception {
+            String start = tokenMap.format(range.getStart());
+            String end = tokenMap.format(range.getEnd());
+            long claimedAt = System.nanoTime();
+            if (claim && !context.claimTokenRange(taskName, start, end)) {
+                return 0;
+            }
+            TokenRangeClaim rangeClaim = claim ? new TokenRangeClaim(
+                    () -> context.renewTokenRangeClaim(taskName, start, end), context.getTokenRangeClaimTtl(),
+                    claimedAt, System::nanoTime) : null;
+            BoundStatement statement = (range.getStart().compareTo(range.getEnd()) < 0
+                    ? rangeQuery.bind().setToken(0, range.getStart()).setToken(1, range.getEnd())
+                    : rangeToEndQuery.bind().setToken(0, range.getStart()))
+                    .setPageSize(pageSize)
+                    .setRoutingToken(range.getEnd())
+                    .setExecutionProfileName(context.getExecutionProfileName())
+                    .setConsistencyLevel(context.getConsistencyLevel());
+            AsyncResultSet page = await(session.executeAsync(statement));
+            long rows = 0;
+            while (true) {
+                CompletionStage<AsyncResultSet> nextPage = page.hasMorePages() ? page.fetchNextPage() : null;
+                for (Row row : page.currentPage()) {
+                    if (rangeClaim != null && !rangeClaim.keep()) {
+                        LOGGER.info(format("Lost claim on token range (%s, %s] of table %s.%s. Another instance"
+                                + " processes it.", start, end, context.getKeyspaceName(), tableName));
+                        return rows;
+                    }
+                    handler.handle(row);
+                    rows++;
+                }
+                if (nextPage == null) {
+                    break;
+                }
+                page = await(nextPage);
+            }
+            if (!context.logCompletedTokenRange(taskName, start, end, rows)) {
+                LOGGER.info(format("Lost claim on token range (%s, %s] of table %s.%s before it was recorded as"
+                        + " completed. It is processed again.", start, end, context.getKeyspaceName(), tableName));
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Processes a single row read by a {@link TokenRangeMigration}.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * @param row the row to process. Never null.
+         * @throws Exception if the row cannot be processed. This stops the migration.
+         */
+        void handle(Row row) throws Exception;
+    }
+}
@@ -0,0 +1,45 @@
+package org.cognitor.cassandra.migration;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * A token range of a {@link TokenRangeMigration} as recorded in the progress table. If the ranges are
+ * shared between instances, the instance processing the range is stored as owner until the range is
+ * completed or the claim expires.
+ */
+final class TokenRangeWorkUnit {
+    private final String rangeStart;
+    private final String rangeEnd;
+    private final UUID owner;
+    private final boolean completed;
+
+    TokenRangeWorkUnit(String rangeStart, String rangeEnd, @Nullable UUID owner, boolean completed) {
+        this.rangeStart = notNull(rangeStart, "rangeStart");
+        this.rangeEnd = notNull(rangeEnd, "rangeEnd");
+        this.owner = owner;
+        this.completed = completed;
+    }
+
+    String getRangeStart() {
+        return rangeStart;
+    }
+
+    String getRangeEnd() {
+        return rangeEnd;
+    }
+
+    /**
+     * @return the instance that claimed the range or null if the range is not claimed
+     */
+    @Nullable
+    UUID getOwner() {
+        return owner;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+}
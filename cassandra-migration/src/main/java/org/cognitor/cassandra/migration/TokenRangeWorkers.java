@@ -0,0 +1,104 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Processes token ranges with a bounded number of worker threads. As soon as one range fails, the workers
+ * stop taking new ranges and the failure is thrown once all workers are done.
+ */
+final class TokenRangeWorkers {
+    private static final String THREAD_NAME = "cassandra-migration-token-range";
+
+    private TokenRangeWorkers() {
+    }
+
+    /**
+     * @param ranges        the ranges to process. Must not be null.
+     * @param parallelism   the maximum number of ranges processed at the same time
+     * @param work          processes a single range and returns the number of processed rows. Must not be null.
+     * @param errorMessage  the message of the exception thrown if a range failed with an exception other than a
+     *                      <code>MigrationException</code>
+     * @param migrationName the name of the migration the ranges belong to
+     * @return the number of rows processed
+     * @throws MigrationException if a range could not be processed
+     */
+    static long processAll(List<TokenRange> ranges, int parallelism, RangeWork work, String errorMessage,
+                           String migrationName) {
+        notNull(work, "work");
+        Queue<TokenRange> pendingRanges = new ConcurrentLinkedQueue<>(notNull(ranges, "ranges"));
+        AtomicLong processedRows = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        int workerCount = Math.min(parallelism, Math.max(pendingRanges.size(), 1));
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < workerCount; worker++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        TokenRange range;
+                        while (!failed.get() && (range = pendingRanges.poll()) != null) {
+                            processedRows.addAndGet(work.process(range));
+                        }
+                        return null;
+                    } catch (Exception exception) {
+                        failed.set(true);
+                        throw exception;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                awaitWorker(worker, errorMessage, migrationName);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return processedRows.get();
+    }
+
+    private static void awaitWorker(Future<?> worker, String errorMessage, String migrationName) {
+        try {
+            worker.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while processing token ranges", exception, migrationName);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof MigrationException) {
+                throw (MigrationException) exception.getCause();
+            }
+            throw new MigrationException(errorMessage, exception.getCause(), migrationName);
+        }
+    }
+
+    /**
+     * Processes a single token range.
+     */
+    @FunctionalInterface
+    interface RangeWork {
+
+        /**
+         * @param range the range to process. Never null.
+         * @return the number of processed rows
+         * @throws Exception if the range could not be processed. This stops all workers.
+         */
+        long process(TokenRange range) throws Exception;
+    }
+}
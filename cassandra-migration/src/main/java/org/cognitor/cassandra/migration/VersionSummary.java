@@ -0,0 +1,32 @@
+package org.cognitor.cassandra.migration;
+
+import java.time.Instant;
+
+/**
+ * The summary of the migration state of a keyspace as it is stored in a single row
+ * of the version table. It allows to check if a keyspace is up to date with one
+ * small read instead of querying the migration history.
+ */
+class VersionSummary {
+    private final int version;
+    private final Instant updatedAt;
+
+    VersionSummary(int version, Instant updatedAt) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * @return the latest version that was applied successfully
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time of the last update of the summary or null if it is unknown
+     */
+    Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,44 @@
+package org.cognitor.cassandra.migration.collector;
+
+import java.util.Collection;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Passes only the scripts with a version newer than the current version of the database to
+ * another {@link ScriptCollector}. Scripts that were already applied are dropped while scanning,
+ * so they are neither kept in memory nor checked by the other collector, e.g. for duplicates.
+ */
+public class PendingVersionsCollector implements ScriptCollector {
+    private final ScriptCollector delegate;
+    private final int currentVersion;
+
+    /**
+     * @param delegate       the collector that receives the pending scripts. Must not be null.
+     * @param currentVersion the current version of the database. Scripts with this or an older version are dropped.
+     */
+    public PendingVersionsCollector(ScriptCollector delegate, int currentVersion) {
+        this.delegate = notNull(delegate, "delegate");
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Passes the script to the other collector if its version is newer than the current version.
+     */
+    @Override
+    public void collect(ScriptFile scriptFile) {
+        if (scriptFile.getVersion() > currentVersion) {
+            delegate.collect(scriptFile);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<ScriptFile> getScriptFiles() {
+        return delegate.getScriptFiles();
+    }
+}
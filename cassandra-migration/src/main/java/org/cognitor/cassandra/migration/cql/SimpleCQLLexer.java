@@ -1,7 +1,15 @@
 package org.cognitor.cassandra.migration.cql;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
 
 /**
  * The original code was written and published by Steve Nicolai in his
@@ -17,8 +25,17 @@ import java.util.List;
  *
  * This parser a series of lines, removes comments and breaks the lines into statements
  * at semicolon boundaries.
+ *
+ * The script is read from a <code>Reader</code> through a small buffer and the statements can be
+ * consumed one at a time through <code>getCqlQueryIterator()</code>, so only the statement that is
+ * currently built has to be kept in memory, no matter how large the script is. Every instance can
+ * only be used to read the script once. Line breaks are read as <code>\n</code>, no matter if the
+ * script uses <code>\n</code>, <code>\r\n</code> or <code>\r</code>.
  */
 public class SimpleCQLLexer {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int END_OF_SCRIPT = -1;
+
     private enum LexState {
         DEFAULT,
         IN_SINGLE_LINE_COMMENT,
@@ -27,22 +44,75 @@ public class SimpleCQLLexer {
         IN_SQUOTE_STRING
     }
 
-    private final String text;
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder statementUnderConstruction = new StringBuilder();
     private LexState state;
     private int pos;
+    private int limit;
 
     public SimpleCQLLexer(String scriptText) {
+        this(new StringReader(notNull(scriptText, "scriptText")));
+    }
+
+    /**
+     * @param scriptReader the reader providing the script. Must not be null. The reader is not closed by the lexer.
+     */
+    public SimpleCQLLexer(Reader scriptReader) {
         state = LexState.DEFAULT;
-        text = scriptText;
+        reader = notNull(scriptReader, "scriptReader");
         pos = 0;
+        limit = 0;
     }
 
+    /**
+     * Reads the whole script and returns all statements.
+     *
+     * @return the statements of the script in the order of the script. Never null.
+     */
     public List<String> getCqlQueries() {
         List<String> statements = new ArrayList<>();
-        StringBuilder statementUnderConstruction = new StringBuilder();
+        getCqlQueryIterator().forEachRemaining(statements::add);
+        return statements;
+    }
+
+    /**
+     * Returns the statements of the script one at a time. The script is only read as far as necessary
+     * to return the next statement.
+     *
+     * @return an iterator over the statements of the script. Never null.
+     * @throws UncheckedIOException from the iterator if the script cannot be read
+     */
+    public Iterator<String> getCqlQueryIterator() {
+        return new Iterator<String>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = nextStatement();
+                }
+                return next != null;
+            }
 
-        char c;
-        while ((c = getChar()) != 0) {
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String statement = next;
+                next = null;
+                return statement;
+            }
+        };
+    }
+
+    /**
+     * @return the next statement or null if the end of the script is reached
+     */
+    private String nextStatement() {
+        int c;
+        while ((c = getLineBreakNormalizedChar()) != END_OF_SCRIPT) {
             switch (state) {
                 case DEFAULT:
                     if (c == '/' && peekAhead() == '/') {
@@ -57,14 +127,15 @@ public class SimpleCQLLexer {
                     } else if (c == '\n') {
                         statementUnderConstruction.append(' ');
                     } else {
-                        statementUnderConstruction.append(c);
+                        statementUnderConstruction.append((char) c);
                         if (c == '\"') {
                             state = LexState.IN_QUOTE_STRING;
                         } else if (c == '\'') {
                             state = LexState.IN_SQUOTE_STRING;
                         } else if (c == ';') {
-                            statements.add(statementUnderConstruction.toString().trim());
+                            String statement = statementUnderConstruction.toString().trim();
                             statementUnderConstruction.setLength(0);
+                            return statement;
                         }
                     }
                     break;
@@ -83,10 +154,10 @@ public class SimpleCQLLexer {
                     break;
 
                 case IN_QUOTE_STRING:
-                    statementUnderConstruction.append(c);
+                    statementUnderConstruction.append((char) c);
                     if (c == '"') {
                         if (peekAhead() == '"') {
-                            statementUnderConstruction.append(getChar());
+                            statementUnderConstruction.append((char) getChar());
                         } else {
                             state = LexState.DEFAULT;
                         }
@@ -94,10 +165,10 @@ public class SimpleCQLLexer {
                     break;
 
                 case IN_SQUOTE_STRING:
-                    statementUnderConstruction.append(c);
+                    statementUnderConstruction.append((char) c);
                     if (c == '\'') {
                         if (peekAhead() == '\'') {
-                            statementUnderConstruction.append(getChar());
+                            statementUnderConstruction.append((char) getChar());
                         } else {
                             state = LexState.DEFAULT;
                         }
@@ -106,31 +177,72 @@ public class SimpleCQLLexer {
             }
         }
         String tmp = statementUnderConstruction.toString().trim();
+        statementUnderConstruction.setLength(0);
         if (tmp.length() > 0) {
-            statements.add(tmp);
+            return tmp;
         }
+        return null;
+    }
 
-        return statements;
+    /**
+     * @return the next character with <code>\r\n</code> and <code>\r</code> returned as <code>\n</code>
+     */
+    private int getLineBreakNormalizedChar() {
+        int c = getChar();
+        if (c != '\r') {
+            return c;
+        }
+        if (peekAhead() == '\n') {
+            advance();
+        }
+        return '\n';
     }
 
-    private char getChar() {
-        if (pos < text.length()) {
-            return text.charAt(pos++);
-        } else {
-            return 0;
+    private int getChar() {
+        if (!fillBuffer()) {
+            return END_OF_SCRIPT;
         }
+        return buffer[pos++];
     }
 
-    private char peekAhead() {
-        if (pos < text.length()) {
-            // don't advance
-            return text.charAt(pos);
-        } else {
-            return 0;
+    private int peekAhead() {
+        if (!fillBuffer()) {
+            return END_OF_SCRIPT;
         }
+        // don't advance
+        return buffer[pos];
     }
 
     private void advance() {
-        pos++;
+        if (fillBuffer()) {
+            pos++;
+        }
+    }
+
+    /**
+     * Makes sure that there is at least one character left in the buffer.
+     *
+     * @return false if the end of the script is reached
+     */
+    private boolean fillBuffer() {
+        if (pos < limit) {
+            return true;
+        }
+        try {
+            int read;
+            do {
+                read = reader.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                limit = 0;
+                pos = 0;
+                return false;
+            }
+            pos = 0;
+            limit = read;
+            return true;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
     }
-}
\ No newline at end of file
+}
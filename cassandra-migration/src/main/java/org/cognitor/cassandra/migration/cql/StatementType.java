@@ -0,0 +1,89 @@
+package org.cognitor.cassandra.migration.cql;
+
+import java.util.Locale;
+
+/**
+ * Classifies a single CQL statement as it is returned by the {@link SimpleCQLLexer}.
+ * The classification only looks at the leading keyword of the statement and is used
+ * to decide how a statement can be executed, e.g. if it has to wait for all previous
+ * statements to finish because it changes the schema.
+ *
+ * Everything that cannot be identified as a schema change, a truncation or a data manipulation
+ * is considered to be <code>OTHER</code> and should be treated with the same care as a
+ * schema change.
+ */
+public enum StatementType {
+    /**
+     * Statements that change the schema, e.g. <code>CREATE</code>, <code>ALTER</code> or <code>DROP</code>.
+     */
+    SCHEMA_CHANGE,
+    /**
+     * <code>TRUNCATE</code> statements. They do not change the schema, so there is no need to wait for schema
+     * agreement. But unlike a data manipulation they remove all rows of a table, so they must not run
+     * concurrently with the statements before or after them.
+     */
+    TRUNCATION,
+    /**
+     * Statements that only modify data, e.g. <code>INSERT</code>, <code>UPDATE</code>, <code>DELETE</code>
+     * or a <code>BATCH</code>.
+     */
+    DATA_MANIPULATION,
+    /**
+     * Everything else, including empty statements.
+     */
+    OTHER;
+
+    /**
+     * Determines the type of the given statement.
+     *
+     * @param statement the statement to classify. Can be null.
+     * @return the type of the statement. Never null.
+     */
+    public static StatementType of(String statement) {
+        if (statement == null) {
+            return OTHER;
+        }
+        switch (leadingKeyword(statement)) {
+            case "CREATE":
+            case "ALTER":
+            case "DROP":
+                return SCHEMA_CHANGE;
+            case "TRUNCATE":
+                return TRUNCATION;
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "BEGIN":
+                return DATA_MANIPULATION;
+            default:
+                return OTHER;
+        }
+    }
+
+    /**
+     * @return true if this type of statement changes the schema, false otherwise
+     */
+    public boolean isSchemaChange() {
+        return this == SCHEMA_CHANGE;
+    }
+
+    /**
+     * @return true if this type of statement changes or might change the schema, which is the case for
+     * schema changes and for <code>OTHER</code> statements, false otherwise
+     */
+    public boolean mayChangeSchema() {
+        return this == SCHEMA_CHANGE || this == OTHER;
+    }
+
+    private static String leadingKeyword(String statement) {
+        int start = 0;
+        while (start < statement.length() && Character.isWhitespace(statement.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < statement.length() && Character.isLetter(statement.charAt(end))) {
+            end++;
+        }
+        return statement.substring(start, end).toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,53 @@
+package org.cognitor.cassandra.migration.index;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
+
+/**
+ * A single migration script inside a {@link MigrationIndex}.
+ */
+public final class IndexEntry {
+    private final int version;
+    private final String resourceName;
+    private final long size;
+    private final String checksum;
+
+    /**
+     * @param version      the version of the script
+     * @param resourceName the name of the resource that represents the script inside the classpath.
+     *                     Must not be null or empty.
+     * @param size         the size of the script in bytes
+     * @param checksum     the SHA-256 checksum of the script content. Must not be null or empty.
+     */
+    public IndexEntry(int version, String resourceName, long size, String checksum) {
+        this.version = version;
+        this.resourceName = notNullOrEmpty(resourceName, "resourceName");
+        this.size = size;
+        this.checksum = notNullOrEmpty(checksum, "checksum");
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexEntry{" +
+                "version=" + version +
+                ", resourceName='" + resourceName + '\'' +
+                ", size=" + size +
+                ", checksum='" + checksum + '\'' +
+                '}';
+    }
+}
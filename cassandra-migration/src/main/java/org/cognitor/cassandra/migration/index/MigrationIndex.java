@@ -0,0 +1,167 @@
+package org.cognitor.cassandra.migration.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import static java.lang.String.format;
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * An index of migration scripts that is created at build time, e.g. by the
+ * <code>cassandra-migration-maven-plugin</code>, and stored at <code>LOCATION</code> on the classpath.
+ * It allows the <code>MigrationRepository</code> to find the scripts without scanning the classpath.
+ *
+ * The index is a text file in UTF-8. Every line that is not empty and does not start with
+ * <code>#</code> describes a script with the version, the size in bytes, the SHA-256 checksum of the
+ * content and the resource name, separated by tabs.
+ */
+public final class MigrationIndex {
+    /**
+     * The location of the index on the classpath.
+     */
+    public static final String LOCATION = "META-INF/cassandra-migration/index";
+
+    private static final String HEADER = "# cassandra-migration index v1";
+    private static final String SEPARATOR = "\t";
+
+    private final List<IndexEntry> entries;
+
+    /**
+     * @param entries the scripts inside the index. Must not be null.
+     */
+    public MigrationIndex(List<IndexEntry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(notNull(entries, "entries")));
+    }
+
+    /**
+     * @return the scripts inside the index. Never null.
+     */
+    public List<IndexEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Loads and merges all indexes that can be found at <code>LOCATION</code> with the given class loader.
+     *
+     * @param classLoader the class loader to load the indexes with. Must not be null.
+     * @return the merged index or null if no index was found
+     * @throws IOException if an index cannot be read or is malformed
+     */
+    public static MigrationIndex load(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> indexes = notNull(classLoader, "classLoader").getResources(LOCATION);
+        if (!indexes.hasMoreElements()) {
+            return null;
+        }
+        List<IndexEntry> entries = new ArrayList<>();
+        while (indexes.hasMoreElements()) {
+            URL index = indexes.nextElement();
+            try (InputStream inputStream = index.openStream()) {
+                entries.addAll(read(inputStream).getEntries());
+            }
+        }
+        return new MigrationIndex(entries);
+    }
+
+    /**
+     * Checks that every entry below one of the given locations can be found with the given class loader and
+     * still has the size it had when the index was created, so an index that is out of date with the scripts
+     * on the classpath is not trusted. Scripts that were added after the index was created are not detected.
+     *
+     * @param classLoader the class loader to find the scripts with. Must not be null.
+     * @param locations   the normalized script locations whose entries are checked. Must not be null.
+     * @return the description of the first entry that does not match its script or null if all entries match
+     * @throws IOException if the size of a script cannot be read
+     */
+    public String findMismatch(ClassLoader classLoader, Collection<String> locations) throws IOException {
+        notNull(classLoader, "classLoader");
+        notNull(locations, "locations");
+        for (IndexEntry entry : entries) {
+            String resource = entry.getResourceName();
+            if (locations.stream().noneMatch(resource::startsWith)) {
+                continue;
+            }
+            URL script = classLoader.getResource(resource);
+            if (script == null) {
+                return format("%s does not exist", resource);
+            }
+            long size = readSize(script);
+            if (size != entry.getSize()) {
+                return format("%s has %d bytes instead of %d", resource, size, entry.getSize());
+            }
+        }
+        return null;
+    }
+
+    private static long readSize(URL script) throws IOException {
+        URLConnection connection = script.openConnection();
+        // file and jar connections open the script to find its size, so the stream has to be closed
+        try (InputStream ignored = connection.getInputStream()) {
+            return connection.getContentLengthLong();
+        }
+    }
+
+    /**
+     * Reads an index from the given stream. The stream is not closed.
+     *
+     * @param inputStream the stream containing the index. Must not be null.
+     * @return the index. Never null.
+     * @throws IOException if the index cannot be read or is malformed
+     */
+    public static MigrationIndex read(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(notNull(inputStream, "inputStream"), StandardCharsets.UTF_8));
+        List<IndexEntry> entries = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            entries.add(parseEntry(line, lineNumber));
+        }
+        return new MigrationIndex(entries);
+    }
+
+    private static IndexEntry parseEntry(String line, int lineNumber) throws IOException {
+        String[] fields = line.split(SEPARATOR, 4);
+        if (fields.length != 4) {
+            throw new IOException(format("Malformed migration index entry in line %d: %s", lineNumber, line));
+        }
+        try {
+            return new IndexEntry(Integer.parseInt(fields[0]), fields[3], Long.parseLong(fields[1]), fields[2]);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException(format("Malformed migration index entry in line %d: %s", lineNumber, line),
+                    exception);
+        }
+    }
+
+    /**
+     * Writes this index to the given writer. The writer is not closed.
+     *
+     * @param writer the writer to write the index to. Must not be null.
+     * @throws IOException if the index cannot be written
+     */
+    public void write(Writer writer) throws IOException {
+        notNull(writer, "writer");
+        writer.write(HEADER);
+        writer.write('\n');
+        for (IndexEntry entry : entries) {
+            writer.write(entry.getVersion() + SEPARATOR + entry.getSize() + SEPARATOR + entry.getChecksum()
+                    + SEPARATOR + entry.getResourceName());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
@@ -6,7 +6,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.*;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
 
 import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toSet;
@@ -16,10 +24,20 @@ import static org.cognitor.cassandra.migration.util.Ensure.notNullOrEmpty;
 /**
  * Scans a path within a compiled jar for resources that are inside this path.
  *
+ * The names of all entries of a jar file are read from its central directory the first time the jar
+ * is scanned and kept by this instance, so scanning several locations in the same jar reads the jar only
+ * once. Locations are looked up by their prefix in the sorted entry names. Jars nested inside other jars
+ * are scanned through a zip <code>FileSystem</code> instead. A file system that was already open is
+ * left open as it might be used by someone else.
+ *
  * @author Pavel Borsky
  */
 public class JarLocationScanner implements LocationScanner {
     private static final Logger LOGGER = LoggerFactory.getLogger(JarLocationScanner.class);
+    private static final String JAR_SEPARATOR = "!/";
+    private static final String FILE_SCHEME_PREFIX = "file:";
+
+    private final Map<Path, NavigableSet<String>> entryNamesByJar = new HashMap<>();
 
     /**
      * {@inheritDoc}
@@ -29,25 +47,108 @@ public class JarLocationScanner implements LocationScanner {
         notNullOrEmpty(location, "location");
         notNull(locationUri, "locationUri");
         LOGGER.debug("Scanning in jar {} in location {}", locationUri, location);
-        try(FileSystem fileSystem = getFileSystem(locationUri)) {
-            final Path systemPath = fileSystem.getPath(location);
-            return Files.walk(systemPath)
-                    .filter(Files::isRegularFile)
-                    .map(path -> normalizePath(path.toString()))
-                    .collect(toSet());
+        Path jarPath = toJarPath(locationUri);
+        if (jarPath == null) {
+            return findResourceNamesInFileSystem(location, locationUri);
+        }
+        return findResourceNames(location, getEntryNames(jarPath));
+    }
+
+    private static Set<String> findResourceNames(String location, NavigableSet<String> entryNames)
+            throws NoSuchFileException {
+        String prefix = toPrefix(location);
+        if (prefix.isEmpty()) {
+            return entryNames.stream().filter(name -> !isDirectory(name)).collect(toSet());
+        }
+        String locationWithoutSlash = prefix.substring(0, prefix.length() - 1);
+        if (entryNames.contains(locationWithoutSlash)) {
+            return singleton(locationWithoutSlash);
+        }
+        NavigableSet<String> entriesInLocation = entryNames.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (entriesInLocation.isEmpty()) {
+            throw new NoSuchFileException(location);
+        }
+        return entriesInLocation.stream().filter(name -> !isDirectory(name)).collect(toSet());
+    }
+
+    private synchronized NavigableSet<String> getEntryNames(Path jarPath) throws IOException {
+        NavigableSet<String> entryNames = entryNamesByJar.get(jarPath);
+        if (entryNames != null) {
+            return entryNames;
+        }
+        LOGGER.debug("Reading entries of jar {}", jarPath);
+        entryNames = new TreeSet<>();
+        try (JarFile jarFile = new JarFile(jarPath.toFile())) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                entryNames.add(entries.nextElement().getName());
+            }
+        }
+        entryNamesByJar.put(jarPath, entryNames);
+        return entryNames;
+    }
+
+    /**
+     * Extracts the path of the jar file from the given URI if the jar is located directly on the file system.
+     *
+     * @return the path of the jar or null if the jar is nested inside another jar or not located on the file system
+     */
+    private static Path toJarPath(URI locationUri) {
+        String schemeSpecificPart = locationUri.getRawSchemeSpecificPart();
+        int separatorIndex = schemeSpecificPart.indexOf(JAR_SEPARATOR);
+        String jarPart = separatorIndex < 0 ? schemeSpecificPart : schemeSpecificPart.substring(0, separatorIndex);
+        if (!jarPart.startsWith(FILE_SCHEME_PREFIX)
+                || (separatorIndex >= 0 && schemeSpecificPart.indexOf(JAR_SEPARATOR, separatorIndex + 1) >= 0)) {
+            return null;
+        }
+        try {
+            return Paths.get(URI.create(jarPart));
+        } catch (IllegalArgumentException | FileSystemNotFoundException exception) {
+            LOGGER.debug("Unable to get path of jar {}: {}", jarPart, exception.getMessage());
+            return null;
         }
     }
 
-    private FileSystem getFileSystem(URI location) throws IOException {
+    private Set<String> findResourceNamesInFileSystem(String location, URI locationUri) throws IOException {
+        FileSystem fileSystem;
+        boolean createdFileSystem = false;
         try {
-            LOGGER.debug("Trying to get existing filesystem for {}", location.toString());
-            return FileSystems.getFileSystem(location);
+            LOGGER.debug("Trying to get existing filesystem for {}", locationUri.toString());
+            fileSystem = FileSystems.getFileSystem(locationUri);
         } catch (FileSystemNotFoundException exception) {
-            LOGGER.debug("Creating new filesystem for {}", location);
-            return FileSystems.newFileSystem(location, emptyMap());
+            LOGGER.debug("Creating new filesystem for {}", locationUri);
+            fileSystem = FileSystems.newFileSystem(locationUri, emptyMap());
+            createdFileSystem = true;
+        }
+        try (Stream<Path> paths = Files.walk(fileSystem.getPath(location))) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> normalizePath(path.toString()))
+                    .collect(toSet());
+        } finally {
+            if (createdFileSystem) {
+                fileSystem.close();
+            }
         }
     }
 
+    private static String toPrefix(String location) {
+        String prefix = normalizePath(location);
+        if (prefix.isEmpty() || prefix.endsWith("/")) {
+            return prefix;
+        }
+        return prefix + "/";
+    }
+
+    private static boolean isDirectory(String entryName) {
+        return entryName.endsWith("/");
+    }
+
+    private static Set<String> singleton(String entryName) {
+        Set<String> result = new TreeSet<>();
+        result.add(entryName);
+        return result;
+    }
+
     private static String normalizePath(String pathName) {
         if (pathName.startsWith("/")) {
             return pathName.substring(1);
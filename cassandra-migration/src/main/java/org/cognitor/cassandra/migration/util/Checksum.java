@@ -0,0 +1,61 @@
+package org.cognitor.cassandra.migration.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Creates checksums that are used to identify the content of scripts and repositories.
+ * The checksum is the lowercase hex representation of the SHA-256 digest of the UTF-8
+ * encoded content.
+ */
+public final class Checksum {
+    private static final String ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Checksum() {
+    }
+
+    /**
+     * Calculates the checksum of the given content.
+     *
+     * @param content the content to calculate the checksum for. Must not be null.
+     * @return the checksum as hex string. Never null.
+     */
+    public static String of(String content) {
+        MessageDigest digest = newDigest();
+        digest.update(notNull(content, "content").getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Creates a new instance of the digest used for checksums. This can be used to calculate
+     * a checksum incrementally and convert it with <code>toHex</code> afterwards.
+     *
+     * @return a new digest instance. Never null.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(ALGORITHM + " is not supported by this JVM", exception);
+        }
+    }
+
+    /**
+     * Converts the given digest into its hex representation.
+     *
+     * @param digest the digest bytes. Must not be null.
+     * @return the lowercase hex representation. Never null.
+     */
+    public static String toHex(byte[] digest) {
+        char[] hex = new char[notNull(digest, "digest").length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,86 @@
+package org.cognitor.cassandra.migration.util;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Calculates wait times that double with every attempt up to a maximum. A random part of
+ * each wait time, defined by the jitter, is removed so that many instances starting at the
+ * same time spread their attempts instead of retrying in lockstep.
+ *
+ * Instances are not thread safe.
+ */
+public final class ExponentialBackoff {
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double jitter;
+    private final Random random;
+    private long nextDelayMillis;
+
+    /**
+     * @param initialDelay the wait time of the first attempt. Must not be null or negative.
+     * @param maxDelay     the maximum wait time. Must not be null or smaller than the initial delay.
+     * @param jitter       the fraction of each wait time that is randomized. Must be between 0 and 1.
+     */
+    public ExponentialBackoff(Duration initialDelay, Duration maxDelay, double jitter) {
+        this(initialDelay, maxDelay, jitter, null);
+    }
+
+    /**
+     * @param random the source of the jitter or null to use the <code>ThreadLocalRandom</code> of the thread
+     *               calculating the delay. It is looked up on every call, as a <code>ThreadLocalRandom</code>
+     *               used by another thread than the one that obtained it is not seeded for that thread.
+     */
+    ExponentialBackoff(Duration initialDelay, Duration maxDelay, double jitter, @Nullable Random random) {
+        validate(initialDelay, maxDelay, jitter);
+        this.initialDelayMillis = initialDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.jitter = jitter;
+        this.random = random;
+        this.nextDelayMillis = initialDelayMillis;
+    }
+
+    /**
+     * Checks if the given values can be used to create an <code>ExponentialBackoff</code>.
+     *
+     * @param initialDelay the wait time of the first attempt
+     * @param maxDelay     the maximum wait time
+     * @param jitter       the fraction of each wait time that is randomized
+     * @throws IllegalArgumentException if one of the values is invalid
+     */
+    public static void validate(Duration initialDelay, Duration maxDelay, double jitter) {
+        if (notNull(initialDelay, "initialDelay").isNegative()) {
+            throw new IllegalArgumentException("Argument initialDelay must not be negative.");
+        }
+        if (notNull(maxDelay, "maxDelay").compareTo(initialDelay) < 0) {
+            throw new IllegalArgumentException("Argument maxDelay must not be smaller than initialDelay.");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Argument jitter must be between 0 and 1.");
+        }
+    }
+
+    /**
+     * Returns the wait time for the next attempt and doubles the wait time for the attempt after it.
+     *
+     * @return the wait time in milliseconds
+     */
+    public long nextDelayMillis() {
+        long delay = nextDelayMillis;
+        nextDelayMillis = Math.min(maxDelayMillis, Math.max(1, nextDelayMillis * 2));
+        Random source = random == null ? ThreadLocalRandom.current() : random;
+        long randomPart = (long) (delay * jitter * source.nextDouble());
+        return delay - randomPart;
+    }
+
+    /**
+     * Starts again with the initial delay.
+     */
+    public void reset() {
+        nextDelayMillis = initialDelayMillis;
+    }
+}
@@ -0,0 +1,148 @@
+package org.cognitor.cassandra.migration.util;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Limits the number of operations per second by spacing the operations evenly.
+ *
+ * In adaptive mode the rate is adjusted with additive increase and multiplicative decrease: every operation
+ * that completes within the latency threshold raises the rate a little, so the rate grows by a tenth of
+ * the maximum rate per second, until the maximum is reached again. An operation that is slower than the
+ * threshold or fails because the cluster is overloaded halves the rate, but not more often than once per
+ * latency threshold so that a burst of slow operations started at the same rate only counts once.
+ * The rate never drops below a hundredth of the maximum rate.
+ *
+ * Instances are thread safe.
+ */
+public final class RateLimiter {
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_PER_SECOND = 0.1;
+    private static final double MIN_RATE_FRACTION = 0.01;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double maxRate;
+    private final double minRate;
+    private final long latencyThresholdNanos;
+    private final LongSupplier nanoClock;
+    private double rate;
+    private long nextFreeNanos;
+    private long lastDecreaseNanos;
+
+    /**
+     * @param maxOperationsPerSecond the maximum number of operations per second. Must be greater than zero.
+     * @param latencyThreshold       the latency above which the rate is decreased or null to always use
+     *                               the maximum rate. Must not be negative or zero.
+     */
+    public RateLimiter(double maxOperationsPerSecond, @Nullable Duration latencyThreshold) {
+        this(maxOperationsPerSecond, latencyThreshold, System::nanoTime);
+    }
+
+    RateLimiter(double maxOperationsPerSecond, @Nullable Duration latencyThreshold, LongSupplier nanoClock) {
+        validate(maxOperationsPerSecond, latencyThreshold);
+        this.maxRate = maxOperationsPerSecond;
+        this.minRate = maxOperationsPerSecond * MIN_RATE_FRACTION;
+        this.latencyThresholdNanos = latencyThreshold == null ? 0 : latencyThreshold.toNanos();
+        this.nanoClock = notNull(nanoClock, "nanoClock");
+        this.rate = maxOperationsPerSecond;
+        this.nextFreeNanos = nanoClock.getAsLong();
+        this.lastDecreaseNanos = nextFreeNanos - this.latencyThresholdNanos;
+    }
+
+    /**
+     * Checks if the given values can be used to create a <code>RateLimiter</code>.
+     *
+     * @param maxOperationsPerSecond the maximum number of operations per second
+     * @param latencyThreshold       the latency above which the rate is decreased or null
+     * @throws IllegalArgumentException if one of the values is invalid
+     */
+    public static void validate(double maxOperationsPerSecond, @Nullable Duration latencyThreshold) {
+        if (!(maxOperationsPerSecond > 0) || Double.isInfinite(maxOperationsPerSecond)) {
+            throw new IllegalArgumentException("Argument maxOperationsPerSecond must be greater than zero.");
+        }
+        if (latencyThreshold != null && (latencyThreshold.isNegative() || latencyThreshold.isZero())) {
+            throw new IllegalArgumentException("Argument latencyThreshold must be greater than zero.");
+        }
+    }
+
+    /**
+     * Waits until the next operation may be executed.
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves the next free slot for an operation.
+     *
+     * @return the time in nanoseconds to wait before the operation may be executed
+     */
+    synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        if (nextFreeNanos < now) {
+            nextFreeNanos = now;
+        }
+        long waitNanos = nextFreeNanos - now;
+        nextFreeNanos += (long) (NANOS_PER_SECOND / rate);
+        return waitNanos;
+    }
+
+    /**
+     * Reports a completed operation. In adaptive mode the rate is decreased if the latency exceeds the
+     * threshold and increased otherwise.
+     *
+     * @param latencyNanos the time it took to complete the operation in nanoseconds
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        if (!isAdaptive()) {
+            return;
+        }
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else {
+            rate = Math.min(maxRate, rate + maxRate * INCREASE_PER_SECOND / rate);
+        }
+    }
+
+    /**
+     * Reports an operation that failed because the cluster is overloaded, e.g. with a timeout.
+     * In adaptive mode the rate is decreased.
+     */
+    public synchronized void onOverload() {
+        if (isAdaptive()) {
+            decrease();
+        }
+    }
+
+    /**
+     * @return the current number of operations per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return true if the rate is adjusted to the latency of the operations
+     */
+    public boolean isAdaptive() {
+        return latencyThresholdNanos > 0;
+    }
+
+    private void decrease() {
+        long now = nanoClock.getAsLong();
+        if (now - lastDecreaseNanos < latencyThresholdNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        rate = Math.max(minRate, rate * DECREASE_FACTOR);
+    }
+}
@@ -0,0 +1,89 @@
+package org.cognitor.cassandra.migration.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.cognitor.cassandra.migration.util.Ensure.notNull;
+
+/**
+ * Compresses the content of scripts with the deflate algorithm into chunks of a limited size, so
+ * that the content can be stored in several rows instead of a single large cell.
+ */
+public final class ScriptCompression {
+    private static final int BUFFER_SIZE = 8192;
+
+    private ScriptCompression() {
+    }
+
+    /**
+     * Compresses the UTF-8 encoded content and splits the result into chunks.
+     *
+     * @param content   the content to compress. Must not be null.
+     * @param chunkSize the maximum number of bytes of a chunk. Must be greater than zero.
+     * @return the compressed chunks in their order. Never null and contains at least one chunk.
+     */
+    public static List<ByteBuffer> compress(String content, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Argument chunkSize must be greater than zero.");
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(notNull(content, "content").getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            List<ByteBuffer> chunks = new ArrayList<>();
+            byte[] chunk = new byte[chunkSize];
+            int length = 0;
+            while (!deflater.finished()) {
+                length += deflater.deflate(chunk, length, chunkSize - length);
+                if (length == chunkSize) {
+                    chunks.add(ByteBuffer.wrap(chunk));
+                    chunk = new byte[chunkSize];
+                    length = 0;
+                }
+            }
+            if (length > 0 || chunks.isEmpty()) {
+                chunks.add(ByteBuffer.wrap(chunk, 0, length).slice());
+            }
+            return chunks;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses content that was compressed with <code>compress</code>.
+     *
+     * @param chunks the compressed chunks in their order. Must not be null.
+     * @return the decompressed content. Never null.
+     * @throws IllegalArgumentException if the chunks are not valid compressed content
+     */
+    public static String decompress(List<ByteBuffer> chunks) {
+        Inflater inflater = new Inflater();
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (ByteBuffer chunk : notNull(chunks, "chunks")) {
+                byte[] input = new byte[chunk.remaining()];
+                chunk.duplicate().get(input);
+                inflater.setInput(input);
+                while (!inflater.needsInput() && !inflater.finished()) {
+                    content.write(buffer, 0, inflater.inflate(buffer));
+                }
+            }
+            if (!inflater.finished()) {
+                throw new IllegalArgumentException("The compressed content is incomplete.");
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException exception) {
+            throw new IllegalArgumentException("The compressed content is invalid.", exception);
+        } finally {
+            inflater.end();
+        }
+    }
+}
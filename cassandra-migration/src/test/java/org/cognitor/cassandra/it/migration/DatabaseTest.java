@@ -4,31 +4,48 @@ import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.CqlSessionBuilder;
 import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
 import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.cql.SimpleStatement;
 import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
 import com.github.nosan.embedded.cassandra.Cassandra;
 import com.github.nosan.embedded.cassandra.CassandraBuilder;
 import org.cognitor.cassandra.migration.Database;
+import org.cognitor.cassandra.migration.JavaMigration;
+import org.cognitor.cassandra.migration.KeyspaceMigrationResult;
+import org.cognitor.cassandra.migration.MigrationConfiguration;
+import org.cognitor.cassandra.migration.MigrationContext;
 import org.cognitor.cassandra.migration.MigrationException;
 import org.cognitor.cassandra.migration.MigrationRepository;
+import org.cognitor.cassandra.migration.MigrationSessionFactory;
 import org.cognitor.cassandra.migration.MigrationTask;
+import org.cognitor.cassandra.migration.MultiKeyspaceMigrationTask;
+import org.cognitor.cassandra.migration.ScriptStorage;
+import org.cognitor.cassandra.migration.collector.FailOnDuplicatesCollector;
 import org.cognitor.cassandra.migration.keyspace.Keyspace;
 import org.cognitor.cassandra.migration.keyspace.NetworkStrategy;
+import org.cognitor.cassandra.migration.scanner.ScannerRegistry;
+import org.cognitor.cassandra.migration.util.Checksum;
+import org.cognitor.cassandra.migration.util.ScriptCompression;
 import org.junit.jupiter.api.*;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author Patrick Kranz
@@ -80,9 +97,14 @@ public class DatabaseTest {
     }
 
     private CqlSession createSession() {
+        return createSession(true);
+    }
+
+    private CqlSession createSession(boolean schemaMetadataEnabled) {
         DriverConfigLoader loader = DriverConfigLoader.programmaticBuilder()
                 .withDuration(DefaultDriverOption.REQUEST_TIMEOUT, Duration.ofSeconds(REQUEST_TIMEOUT_IN_SECONDS))
                 .withBoolean(DefaultDriverOption.REQUEST_WARN_IF_SET_KEYSPACE, false)
+                .withBoolean(DefaultDriverOption.METADATA_SCHEMA_ENABLED, schemaMetadataEnabled)
                 .build();
         return new CqlSessionBuilder()
                 .addContactPoint(new InetSocketAddress(CASSANDRA_HOST, CASSANDRA_PORT))
@@ -196,6 +218,53 @@ public class DatabaseTest {
                 is(equalTo("CREATE TABLE THINGS (thing_id uuid primary key, thing_name varchar);")));
     }
 
+    @Test
+    public void shouldMigrateAllKeyspacesWhenMultipleKeyspaceConfigurationsGiven() {
+        List<MigrationConfiguration> configurations = asList(
+                new MigrationConfiguration().withKeyspaceName(KEYSPACE),
+                new MigrationConfiguration().withKeyspaceName(NEW_KEYSPACE));
+        MultiKeyspaceMigrationTask migrationTask = new MultiKeyspaceMigrationTask(session, configurations,
+                new MigrationRepository("cassandra/migrationtest/successful"), 2, false);
+
+        List<KeyspaceMigrationResult> results = migrationTask.migrate();
+
+        assertThat(session.isClosed(), is(false));
+        assertThat(results.size(), is(equalTo(2)));
+        for (KeyspaceMigrationResult result : results) {
+            assertThat(result.getStatus(), is(equalTo(KeyspaceMigrationResult.Status.MIGRATED)));
+            assertThat(result.getPreviousVersion(), is(equalTo(0)));
+            assertThat(result.getVersion(), is(equalTo(3)));
+        }
+        assertThat(results.get(0).getKeyspaceName(), is(equalTo(KEYSPACE)));
+        assertThat(results.get(1).getKeyspaceName(), is(equalTo(NEW_KEYSPACE)));
+        assertThat(session.execute("SELECT * FROM " + NEW_KEYSPACE + ".schema_migration").all().size(),
+                is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldScanPendingScriptsOnceWhenKeyspacesAreAtDifferentVersions() {
+        new MigrationTask(new Database(session, KEYSPACE),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+        session = createSession();
+        AtomicInteger scans = new AtomicInteger();
+        MigrationRepository repository = new MigrationRepository(
+                singletonList("cassandra/migrationtest/successful"), () -> {
+                    scans.incrementAndGet();
+                    return new FailOnDuplicatesCollector();
+                }, new ScannerRegistry(), false);
+        List<MigrationConfiguration> configurations = asList(
+                new MigrationConfiguration().withKeyspaceName(KEYSPACE),
+                new MigrationConfiguration().withKeyspaceName(NEW_KEYSPACE));
+
+        List<KeyspaceMigrationResult> results =
+                new MultiKeyspaceMigrationTask(session, configurations, repository, 1, false).migrate();
+
+        assertThat(scans.get(), is(equalTo(1)));
+        assertThat(results.get(0).getStatus(), is(equalTo(KeyspaceMigrationResult.Status.UP_TO_DATE)));
+        assertThat(results.get(1).getStatus(), is(equalTo(KeyspaceMigrationResult.Status.MIGRATED)));
+        assertThat(results.get(1).getVersion(), is(equalTo(3)));
+    }
+
     private Callable<Boolean> databaseMigrationTask(MigrationTask migrationTask) {
         return () -> {
             migrationTask.migrate();
@@ -239,6 +308,66 @@ public class DatabaseTest {
         assertThat(results.get(0).getInstant("executed_at"), is(not(nullValue())));
     }
 
+    @Test
+    public void shouldKeepEveryAttemptInHistoryWhenScriptFailsRepeatedly() {
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/failing/brokenstatement");
+        assertThrows(MigrationException.class,
+                () -> new MigrationTask(new Database(session, KEYSPACE), repository).migrate());
+        session = createSession();
+        assertThrows(MigrationException.class,
+                () -> new MigrationTask(new Database(session, KEYSPACE), repository).migrate());
+
+        session = createSession();
+        List<Row> attempts = session.execute(SimpleStatement.newInstance("SELECT * FROM " + KEYSPACE
+                + ".schema_migration_history WHERE bucket = 0 AND version = 1")).all();
+        assertThat(attempts.size(), is(equalTo(2)));
+        assertThat(attempts.get(0).getBoolean("applied_successful"), is(false));
+        assertThat(attempts.get(1).getBoolean("applied_successful"), is(false));
+        assertThat(attempts.get(0).getUuid("attempt"), is(not(equalTo(attempts.get(1).getUuid("attempt")))));
+    }
+
+    @Test
+    public void shouldCopyMigrationTableIntoHistoryWhenKeyspaceMigratedWithOldLayout() {
+        new MigrationTask(new Database(session, KEYSPACE),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+        session = createSession();
+        // simulate a keyspace that was migrated before the history table existed
+        session.execute("TRUNCATE " + KEYSPACE + ".schema_migration_history");
+        session.execute(SimpleStatement.newInstance("UPDATE " + KEYSPACE + ".schema_migration_version"
+                + " SET history_buckets = null, history_layout = null WHERE keyspace_name = ?", KEYSPACE));
+
+        Database database = new Database(session, KEYSPACE);
+        assertThat(database.getVersion(), is(equalTo(3)));
+        new Database(session, KEYSPACE);
+        List<Row> history = session.execute(
+                SimpleStatement.newInstance("SELECT * FROM " + KEYSPACE + ".schema_migration_history")).all();
+        assertThat(history.size(), is(equalTo(3)));
+        assertThat(history.get(0).getInt("version"), is(equalTo(3)));
+        assertThat(history.get(0).getBoolean("applied_successful"), is(true));
+    }
+
+    @Test
+    public void shouldCopyEntriesWrittenByOlderVersionIntoHistoryWhenMigrationTableChangedAfterCopy() {
+        new MigrationTask(new Database(session, KEYSPACE),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+        // an instance of an older version applies the next script during a rolling upgrade
+        session.execute("INSERT INTO " + KEYSPACE + ".schema_migration"
+                + " (applied_successful, version, script_name, script, executed_at)"
+                + " VALUES (true, 4, '004_add_column.cql', 'ALTER TABLE person ADD age int;', toTimestamp(now()))");
+
+        Database database = new Database(session, KEYSPACE);
+        assertThat(database.getVersion(), is(equalTo(4)));
+        List<Row> history = session.execute(SimpleStatement.newInstance("SELECT * FROM " + KEYSPACE
+                + ".schema_migration_history WHERE bucket = 0 AND version = 4")).all();
+        assertThat(history.size(), is(equalTo(1)));
+        assertThat(history.get(0).getBoolean("applied_successful"), is(true));
+        assertThat(history.get(0).getString("script_name"), is(equalTo("004_add_column.cql")));
+
+        assertThat(new Database(session, KEYSPACE).getVersion(), is(equalTo(4)));
+        assertThat(session.execute(SimpleStatement.newInstance("SELECT * FROM " + KEYSPACE
+                + ".schema_migration_history WHERE bucket = 0 AND version = 4")).all().size(), is(equalTo(1)));
+    }
+
     @Test
     public void shouldCreateKeyspaceWhenDatabaseWithoutKeyspaceAndKeyspaceDefinitionGiven() {
         Database database = new Database(session, KEYSPACE);
@@ -281,6 +410,291 @@ public class DatabaseTest {
                 .getKeyspace(KEYSPACE).get().getFunctions().size(), is(equalTo(1)));
     }
 
+    @Test
+    public void shouldWriteVersionSummaryWhenMigrationsApplied() {
+        Database database = new Database(session, KEYSPACE);
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/successful");
+        new MigrationTask(database, repository, false).migrate();
+
+        session = createSession();
+        Row summary = session.execute(SimpleStatement.newInstance(
+                "SELECT * FROM " + KEYSPACE + ".schema_migration_version WHERE keyspace_name = ?", KEYSPACE)).one();
+        assertThat(summary, is(notNullValue()));
+        assertThat(summary.getInt("version"), is(equalTo(3)));
+        assertThat(summary.getInstant("updated_at"), is(not(nullValue())));
+    }
+
+    @Test
+    public void shouldCreateKeyspaceOnlyWhenRequiredWhenLazyInitializationEnabled() {
+        Database database = new Database(session, new MigrationConfiguration()
+                .withKeyspace(new Keyspace(NEW_KEYSPACE)).withLazyInitialization(true));
+        assertThat(session.getMetadata().getKeyspace(NEW_KEYSPACE).isPresent(), is(false));
+
+        assertThat(database.getVersion(), is(equalTo(0)));
+        assertThat(session.getMetadata().getKeyspace(NEW_KEYSPACE).isPresent(), is(true));
+    }
+
+    @Test
+    public void shouldMigrateAndDetectUpToDateKeyspaceWhenLazyInitializationEnabled() {
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE).withLazyInitialization(true);
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/successful");
+        new MigrationTask(new Database(session, configuration), repository).migrate();
+
+        session = createSession();
+        new MigrationTask(new Database(session, configuration), repository).migrate();
+
+        session = createSession();
+        assertThat(new Database(session, KEYSPACE).getVersion(), is(equalTo(3)));
+        assertThat(loadMigrations("").size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldNotCloseSessionWhenBorrowedSessionMigrated() {
+        session.execute("USE " + KEYSPACE);
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE).withBorrowedSession(true);
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/successful");
+        new MigrationTask(new Database(session, configuration), repository).migrate();
+
+        assertThat(session.isClosed(), is(false));
+        assertThat(new Database(session, configuration).getVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenBorrowedSessionNeitherSupportsKeyspacePerRequestNorUsesKeyspace() {
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE).withBorrowedSession(true);
+        assertThrows(IllegalArgumentException.class, () -> new Database(session, configuration));
+    }
+
+    @Test
+    public void shouldAddMissingColumnsAndMigrateWhenSchemaMetadataDisabled() {
+        session.execute("CREATE TABLE " + KEYSPACE + ".leanApp_schema_migration (applied_successful boolean, "
+                + "version int, script_name varchar, script text, executed_at timestamp, "
+                + "PRIMARY KEY (applied_successful, version))");
+        session.close();
+        session = createSession(false);
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE).withTablePrefix("leanApp");
+        new MigrationTask(new Database(session, configuration),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+
+        session = createSession();
+        assertThat(session.getMetadata().getKeyspace(KEYSPACE).get().getTable("leanapp_schema_migration").get()
+                .getColumn("script_checksum").isPresent(), is(true));
+        assertThat(new Database(session, configuration).getVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldRefreshSchemaOnceAfterMigrationWhenDeferredSchemaRefreshConfigured() {
+        MigrationConfiguration configuration = new MigrationConfiguration().withKeyspaceName(KEYSPACE)
+                .withDeferredSchemaRefresh(true);
+        new MigrationTask(new Database(session, configuration),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+
+        assertThat(session.isSchemaMetadataEnabled(), is(true));
+        assertThat(session.getMetadata().getKeyspace(KEYSPACE).get().getTable("events").isPresent(), is(true));
+        assertThat(new Database(session, configuration).getVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldAwaitSchemaAgreementOfDatacenterWhenMigrationSessionCreatedByFactory() {
+        MigrationConfiguration configuration = new MigrationConfiguration().withKeyspaceName(KEYSPACE)
+                .withSchemaAgreementPollInterval(Duration.ofMillis(10))
+                .withSchemaAgreementDatacenter("datacenter1");
+        CqlSession migrationSession = new MigrationSessionFactory(configuration)
+                .withContactPoints(asList(new InetSocketAddress(CASSANDRA_HOST, CASSANDRA_PORT)))
+                .withLocalDatacenter("datacenter1")
+                .createSession();
+        new MigrationTask(new Database(migrationSession, configuration),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+
+        assertThat(new Database(session, configuration).getVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenNoNodeOfSchemaAgreementDatacenterIsUp() {
+        MigrationConfiguration configuration = new MigrationConfiguration().withKeyspaceName(KEYSPACE)
+                .withSchemaAgreementTimeout(Duration.ofMillis(200))
+                .withSchemaAgreementDatacenter("unknown_dc");
+        CqlSession migrationSession = new MigrationSessionFactory(configuration)
+                .withContactPoints(asList(new InetSocketAddress(CASSANDRA_HOST, CASSANDRA_PORT)))
+                .withLocalDatacenter("datacenter1")
+                .createSession();
+        MigrationTask migrationTask = new MigrationTask(new Database(migrationSession, configuration),
+                new MigrationRepository("cassandra/migrationtest/successful"));
+
+        MigrationException exception = assertThrows(MigrationException.class, migrationTask::migrate);
+        assertThat(exception.getMessage(), containsString("unknown_dc"));
+    }
+
+    @Test
+    public void shouldStoreScriptsCompressedWhenCompressedScriptStorageConfigured() {
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE)
+                .withScriptStorage(ScriptStorage.COMPRESSED);
+        new MigrationTask(new Database(session, configuration),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+
+        session = createSession();
+        session.execute("USE " + KEYSPACE);
+        List<Row> migrations = loadMigrations("");
+        assertThat(migrations.size(), is(equalTo(3)));
+        for (Row migration : migrations) {
+            assertThat(migration.getString("script"), is(nullValue()));
+            assertThat(migration.getString("script_storage"), is(equalTo("COMPRESSED")));
+            assertThat(migration.getInt("statement_count"), is(greaterThan(0)));
+            assertThat(migration.isNull("duration_ms"), is(false));
+            List<ByteBuffer> chunks = session.execute(SimpleStatement.newInstance(
+                    "SELECT data FROM schema_migration_script WHERE script_checksum = ?",
+                    migration.getString("script_checksum"))).all().stream()
+                    .map(row -> row.getByteBuffer("data")).collect(Collectors.toList());
+            assertThat(Checksum.of(ScriptCompression.decompress(chunks)),
+                    is(equalTo(migration.getString("script_checksum"))));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenAppliedScriptWasChangedAndValidated() {
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/successful");
+        new MigrationTask(new Database(session, KEYSPACE), repository).migrate();
+        session = createSession();
+        new MigrationTask(new Database(session, KEYSPACE), repository).validate();
+
+        session.execute("INSERT INTO " + KEYSPACE + ".schema_migration_history"
+                + " (bucket, version, attempt, applied_successful, script_name, script_checksum)"
+                + " VALUES (0, 2, now(), True, '002_add_events_table.cql', 'changed')");
+        MigrationException exception = assertThrows(MigrationException.class,
+                () -> new MigrationTask(new Database(session, KEYSPACE), repository).validate());
+        assertThat(exception.getScriptName(), is(equalTo("002_add_events_table.cql")));
+
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE)
+                .withValidateOnMigrate(true);
+        assertThrows(MigrationException.class,
+                () -> new MigrationTask(new Database(session, configuration), repository).migrate());
+    }
+
+    @Test
+    public void shouldResumeFailedScriptWithFailedStatementWhenScriptUnchanged() {
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE)
+                .withResumeFailedScripts(true);
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/resume");
+        assertThrows(MigrationException.class,
+                () -> new MigrationTask(new Database(session, configuration), repository).migrate());
+
+        session = createSession();
+        session.execute("USE " + KEYSPACE);
+        Row failedExecution = loadMigrations("").get(0);
+        assertThat(failedExecution.getBoolean("applied_successful"), is(false));
+        assertThat(failedExecution.getInt("last_statement_index"), is(equalTo(2)));
+        session.execute("CREATE TABLE ADDRESS (id uuid primary key, street varchar);");
+
+        // the script creates the table PERSON without IF NOT EXISTS and would fail if executed from the beginning
+        new MigrationTask(new Database(session, configuration), repository).migrate();
+        session = createSession();
+        Database database = new Database(session, configuration);
+        assertThat(database.getVersion(), is(equalTo(1)));
+        assertThat(session.execute("SELECT * FROM " + KEYSPACE + ".PERSON").all().size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void shouldSkipCompletedTokenRangesWhenFailedJavaMigrationExecutedAgain() {
+        new MigrationTask(new Database(session, KEYSPACE),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+        session = createSession();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            session.execute(SimpleStatement.newInstance(
+                    "INSERT INTO " + KEYSPACE + ".EVENTS (event_id, event_name) VALUES (?, ?)", id, "event" + i));
+        }
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/successful");
+        repository.addJavaMigration(new CopyEventsMigration(ids.get(42)));
+        assertThrows(MigrationException.class,
+                () -> new MigrationTask(new Database(session, KEYSPACE), repository).migrate());
+
+        session = createSession();
+        long rowsOfCompletedRanges = sumOfProcessedRows();
+        CopyEventsMigration migration = new CopyEventsMigration(null);
+        MigrationRepository secondRepository = new MigrationRepository("cassandra/migrationtest/successful");
+        secondRepository.addJavaMigration(migration);
+        new MigrationTask(new Database(session, KEYSPACE), secondRepository).migrate();
+
+        session = createSession();
+        assertThat(new Database(session, KEYSPACE).getVersion(), is(equalTo(4)));
+        assertThat(session.execute("SELECT * FROM " + KEYSPACE + ".EVENTS_COPY").all().size(), is(equalTo(100)));
+        assertThat(sumOfProcessedRows(), is(equalTo(100L)));
+        assertThat((long) migration.handledRows.get(), is(equalTo(100L - rowsOfCompletedRanges)));
+    }
+
+    private long sumOfProcessedRows() {
+        return session.execute("SELECT processed_rows FROM " + KEYSPACE + ".schema_migration_progress").all()
+                .stream().mapToLong(row -> row.getLong("processed_rows")).sum();
+    }
+
+    @Test
+    public void shouldCompleteAllTokenRangesWhenWorkSharingEnabled() {
+        MigrationConfiguration configuration = new MigrationConfiguration()
+                .withKeyspaceName(KEYSPACE)
+                .withWorkSharing(true);
+        new MigrationTask(new Database(session, configuration),
+                new MigrationRepository("cassandra/migrationtest/successful")).migrate();
+        session = createSession();
+        for (int i = 0; i < 50; i++) {
+            session.execute(SimpleStatement.newInstance("INSERT INTO " + KEYSPACE
+                    + ".EVENTS (event_id, event_name) VALUES (?, ?)", UUID.randomUUID(), "event" + i));
+        }
+        MigrationRepository repository = new MigrationRepository("cassandra/migrationtest/successful");
+        repository.addJavaMigration(new CopyEventsMigration(null));
+        new MigrationTask(new Database(session, configuration), repository, true).migrate();
+
+        session = createSession();
+        assertThat(new Database(session, KEYSPACE).getVersion(), is(equalTo(4)));
+        assertThat(session.execute("SELECT * FROM " + KEYSPACE + ".EVENTS_COPY").all().size(), is(equalTo(50)));
+        List<Row> workUnits = session.execute("SELECT * FROM " + KEYSPACE + ".schema_migration_progress").all();
+        assertThat(workUnits.isEmpty(), is(false));
+        assertThat(workUnits.stream().allMatch(row -> !row.isNull("completed_at")), is(true));
+        assertThat(sumOfProcessedRows(), is(equalTo(50L)));
+    }
+
+    private static class CopyEventsMigration implements JavaMigration {
+        private final UUID failingEventId;
+        private final AtomicInteger handledRows = new AtomicInteger();
+
+        private CopyEventsMigration(UUID failingEventId) {
+            this.failingEventId = failingEventId;
+        }
+
+        @Override
+        public int getVersion() {
+            return 4;
+        }
+
+        @Override
+        public void migrate(MigrationContext context) {
+            CqlSession session = context.getSession();
+            session.execute("CREATE TABLE IF NOT EXISTS " + context.getKeyspaceName()
+                    + ".EVENTS_COPY (event_id uuid primary key, event_name varchar)");
+            PreparedStatement insert = session.prepare("INSERT INTO " + context.getKeyspaceName()
+                    + ".EVENTS_COPY (event_id, event_name) VALUES (?, ?)");
+            context.tokenRangeMigration("EVENTS", "event_id")
+                    .withColumns("event_id", "event_name")
+                    .withSplitsPerRange(2)
+                    .withPageSize(10)
+                    .forEachRow(row -> {
+                        handledRows.incrementAndGet();
+                        if (row.getUuid("event_id").equals(failingEventId)) {
+                            throw new IllegalStateException("Failing on purpose");
+                        }
+                        session.execute(insert.bind(row.getUuid("event_id"), row.getString("event_name")));
+                    });
+        }
+    }
+
     private List<Row> loadMigrations(String tablePrefix) {
         if (tablePrefix == null || tablePrefix.isEmpty()) {
             return session.execute(
@@ -0,0 +1,146 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.EndPoint;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A cluster that answers the schema version queries of the {@link SchemaAgreementProbe} without Cassandra.
+ * The driver types are created as dynamic proxies that only implement the methods the probe uses.
+ */
+class FakeCluster {
+    private final Map<UUID, Node> nodes = new LinkedHashMap<>();
+    private final Map<UUID, NodeState> states = new HashMap<>();
+    private final Map<UUID, UUID> schemaVersions = new HashMap<>();
+    private final Set<Node> failingNodes = new HashSet<>();
+    private final List<Node> coordinators = new ArrayList<>();
+    private final Map<Integer, Runnable> actionsBeforeChecks = new HashMap<>();
+    private final CqlSession session = fake(CqlSession.class, new Answers()
+            .on("getMetadata", args -> fake(Metadata.class, new Answers()
+                    .on("getNodes", metadataArgs -> Collections.unmodifiableMap(new LinkedHashMap<>(nodes)))))
+            .on("executeAsync", args -> execute((SimpleStatement) args[0])));
+
+    Node addNode(String datacenter, NodeState state, UUID schemaVersion) {
+        UUID hostId = UUID.randomUUID();
+        String address = "10.0.0." + (nodes.size() + 1) + ":9042";
+        Node node = fake(Node.class, new Answers()
+                .on("getHostId", args -> hostId)
+                .on("getDatacenter", args -> datacenter)
+                .on("getState", args -> states.get(hostId))
+                .on("getEndPoint", args -> fake(EndPoint.class, new Answers().on("toString", endPointArgs -> address)))
+                .on("toString", args -> address));
+        nodes.put(hostId, node);
+        states.put(hostId, state);
+        schemaVersions.put(hostId, schemaVersion);
+        return node;
+    }
+
+    void setSchemaVersion(Node node, UUID schemaVersion) {
+        schemaVersions.put(node.getHostId(), schemaVersion);
+    }
+
+    void failQueriesOn(Node node) {
+        failingNodes.add(node);
+    }
+
+    /**
+     * Runs the action right before the schema versions are read for the given check, starting with 1.
+     */
+    void beforeCheck(int check, Runnable action) {
+        actionsBeforeChecks.put(check, action);
+    }
+
+    /**
+     * @return the nodes the schema versions were read from, one entry per check
+     */
+    List<Node> getCoordinators() {
+        return coordinators;
+    }
+
+    CqlSession getSession() {
+        return session;
+    }
+
+    private CompletableFuture<AsyncResultSet> execute(SimpleStatement statement) {
+        Node coordinator = statement.getNode();
+        boolean local = statement.getQuery().contains("system.local");
+        if (local) {
+            coordinators.add(coordinator);
+            actionsBeforeChecks.getOrDefault(coordinators.size(), () -> { }).run();
+        }
+        CompletableFuture<AsyncResultSet> result = new CompletableFuture<>();
+        if (failingNodes.contains(coordinator)) {
+            result.completeExceptionally(new DriverTimeoutException("Query timed out on " + coordinator));
+            return result;
+        }
+        List<Row> rows = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (local == (node == coordinator)) {
+                rows.add(row(node.getHostId(), schemaVersions.get(node.getHostId())));
+            }
+        }
+        result.complete(fake(AsyncResultSet.class, new Answers().on("currentPage", args -> rows)));
+        return result;
+    }
+
+    private static Row row(UUID hostId, UUID schemaVersion) {
+        Map<String, UUID> values = new HashMap<>();
+        values.put("host_id", hostId);
+        values.put("schema_version", schemaVersion);
+        return fake(Row.class, new Answers()
+                .on("isNull", args -> values.get((String) args[0]) == null)
+                .on("getUuid", args -> values.get((String) args[0])));
+    }
+
+    /**
+     * Creates a proxy of the given interface. Methods without an answer throw an
+     * <code>UnsupportedOperationException</code>, except for the methods of <code>Object</code>.
+     */
+    static <T> T fake(Class<T> type, Answers answers) {
+        Object fake = Proxy.newProxyInstance(FakeCluster.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object[] arguments = args == null ? new Object[0] : args;
+                    Function<Object[], Object> answer = answers.get(method.getName());
+                    if (answer != null) {
+                        return answer.apply(arguments);
+                    }
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == arguments[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return type.getSimpleName();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return type.cast(fake);
+    }
+
+    static class Answers extends HashMap<String, Function<Object[], Object>> {
+        Answers on(String methodName, Function<Object[], Object> answer) {
+            put(methodName, answer);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.cognitor.cassandra.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+public class LeadHeartbeatTest {
+
+    @Test
+    public void shouldKeepLeadWhenRenewalsSucceed() throws InterruptedException {
+        AtomicInteger renewals = new AtomicInteger();
+        LeadHeartbeat heartbeat = new LeadHeartbeat(() -> renewals.incrementAndGet() > 0, Duration.ofMillis(150));
+        heartbeat.start(System.nanoTime());
+        Thread.sleep(400);
+        heartbeat.stop();
+        assertThat(renewals.get(), is(greaterThan(1)));
+        assertThat(heartbeat.isLost(), is(false));
+    }
+
+    @Test
+    public void shouldLoseLeadWhenRenewalIsRejected() throws InterruptedException {
+        LeadHeartbeat heartbeat = new LeadHeartbeat(() -> false, Duration.ofMillis(60));
+        heartbeat.start(System.nanoTime());
+        Thread.sleep(200);
+        assertThat(heartbeat.isLost(), is(true));
+        heartbeat.stop();
+    }
+
+    @Test
+    public void shouldLoseLeadWhenNoRenewalSucceedsWithinTtl() throws InterruptedException {
+        LeadHeartbeat heartbeat = new LeadHeartbeat(() -> {
+            throw new IllegalStateException("timeout");
+        }, Duration.ofMillis(60));
+        heartbeat.start(System.nanoTime());
+        Thread.sleep(200);
+        assertThat(heartbeat.isLost(), is(true));
+        heartbeat.stop();
+    }
+
+    @Test
+    public void shouldLoseLeadBeforeTtlExpiresWhenRenewalIsSlow() throws InterruptedException {
+        Duration leadTtl = Duration.ofMillis(600);
+        LeadHeartbeat heartbeat = new LeadHeartbeat(() -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, leadTtl);
+        long leadTakenAt = System.nanoTime();
+        heartbeat.start(leadTakenAt);
+        while (!heartbeat.isLost() && System.nanoTime() - leadTakenAt < 2 * leadTtl.toNanos()) {
+            Thread.sleep(5);
+        }
+        Duration lostAfter = Duration.ofNanos(System.nanoTime() - leadTakenAt);
+        heartbeat.stop();
+
+        assertThat(heartbeat.isLost(), is(true));
+        assertThat(lostAfter, is(lessThan(leadTtl)));
+    }
+
+    @Test
+    public void shouldNotLoseLeadWhenNotStarted() {
+        LeadHeartbeat heartbeat = new LeadHeartbeat(() -> false, Duration.ofMillis(1));
+        assertThat(heartbeat.isLost(), is(false));
+    }
+}
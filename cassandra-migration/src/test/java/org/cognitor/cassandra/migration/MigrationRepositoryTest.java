@@ -1,10 +1,18 @@
 package org.cognitor.cassandra.migration;
 
+import org.cognitor.cassandra.migration.collector.FailOnDuplicatesCollector;
+import org.cognitor.cassandra.migration.cql.SimpleCQLLexer;
+import org.cognitor.cassandra.migration.scanner.ScannerRegistry;
+import org.cognitor.cassandra.migration.util.Checksum;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -44,6 +52,17 @@ public class MigrationRepositoryTest {
         assertThat(scripts.get(1).getMigrationScript().isEmpty(), is(false));
     }
 
+    @Test
+    public void shouldReturnPendingMigrationsInOrderWhenIteratorRequested() {
+        Iterator<DbMigration> migrations = migrationRepository.getPendingMigrations(1);
+        assertThat(migrations.hasNext(), is(true));
+        assertThat(migrations.next().getVersion(), is(equalTo(2)));
+        DbMigration last = migrations.next();
+        assertThat(last.getVersion(), is(equalTo(3)));
+        assertThat(last.getMigrationScript().isEmpty(), is(false));
+        assertThat(migrations.hasNext(), is(false));
+    }
+
     @Test
     public void shouldThrowExceptionWhenWrongScriptPathGiven() {
         assertThrows(MigrationException.class, () -> new MigrationRepository("cassandra"));
@@ -77,10 +96,164 @@ public class MigrationRepositoryTest {
     }
 
     @Test
-    public void shouldIgnoreComments() {
+    public void shouldTakeScriptsFromIndexWhenIndexUsed() {
+        MigrationRepository repository = new MigrationRepository(
+                Collections.singletonList("cassandra/migrationtest/successful"), new FailOnDuplicatesCollector(),
+                new ScannerRegistry(), true);
+        // the index on the test classpath was created before the third script was added
+        assertThat(repository.getLatestVersion(), is(equalTo(2)));
+        assertThat(repository.getMigrationsSinceVersion(1).get(0).getMigrationScript().isEmpty(), is(false));
+    }
+
+    @Test
+    public void shouldReturnChecksumOfScriptContentWhenVersionGiven() {
+        DbMigration script = migrationRepository.getMigrationsSinceVersion(1).get(0);
+        assertThat(migrationRepository.getChecksum(2), is(equalTo(Checksum.of(script.getMigrationScript()))));
+    }
+
+    @Test
+    public void shouldReturnChecksumFromIndexWhenIndexUsed() {
+        MigrationRepository repository = new MigrationRepository(
+                Collections.singletonList("cassandra/migrationtest/successful"), new FailOnDuplicatesCollector(),
+                new ScannerRegistry(), true);
+        assertThat(repository.getChecksum(2), is(equalTo(
+                "cc6674911edc52c8ac5bb5543dd285d54b059d8af27d486692e29b817e7f8c9e")));
+        assertThat(repository.getChecksum(2), is(equalTo(migrationRepository.getChecksum(2))));
+    }
+
+    @Test
+    public void shouldReturnChecksumOfClassNameWhenJavaMigrationVersionGiven() {
+        migrationRepository.addJavaMigration(new TestJavaMigration(5));
+        assertThat(migrationRepository.getChecksum(5), is(equalTo(Checksum.of(TestJavaMigration.class.getName()))));
+    }
+
+    @Test
+    public void shouldReturnNullChecksumWhenUnknownVersionGiven() {
+        assertThat(migrationRepository.getChecksum(42), is(nullValue()));
+    }
+
+    @Test
+    public void shouldKeepOnlyPendingScriptsWhenScannedAboveVersion() {
+        MigrationRepository repository = new MigrationRepository(
+                Collections.singletonList("cassandra/migrationtest/successful"), FailOnDuplicatesCollector::new,
+                new ScannerRegistry(), false);
+        repository.scanAboveVersion(2);
+        assertThat(repository.getLatestVersion(), is(equalTo(3)));
+        assertThat(repository.getChecksum(3), is(notNullValue()));
+        assertThat(repository.getMigrationsSinceVersion(2).size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void shouldScanAgainWhenOlderVersionRequestedAfterScanAboveVersion() {
+        MigrationRepository repository = new MigrationRepository(
+                Collections.singletonList("cassandra/migrationtest/successful"), FailOnDuplicatesCollector::new,
+                new ScannerRegistry(), false);
+        repository.scanAboveVersion(3);
+        assertThat(repository.getLatestVersion(), is(equalTo(0)));
+        assertThat(repository.getMigrationsSinceVersion(1).size(), is(equalTo(2)));
+        assertThat(repository.getLatestVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateVersionsWhenDuplicatesAreNotPending() {
+        List<String> scriptPaths = asList("cassandra/migrationtest/successful", "cassandra/migrationtest/resume");
+        assertThrows(MigrationException.class, () -> new MigrationRepository(scriptPaths));
+        MigrationRepository repository = new MigrationRepository(scriptPaths, FailOnDuplicatesCollector::new,
+                new ScannerRegistry(), false);
+        repository.scanAboveVersion(1);
+        assertThat(repository.getLatestVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldExecuteStatementsWithoutCarriageReturnsWhenScriptHasWindowsLineEndings() {
+        DbMigration migration = new MigrationRepository("cassandra/migrationtest/crlf")
+                .getMigrationsSinceVersion(0).get(0);
+
+        assertThat(migration.getMigrationScript(), startsWith("-- creates the table\r\nCREATE TABLE"));
+        assertThat(new SimpleCQLLexer(migration.getMigrationScript()).getCqlQueries(), is(equalTo(asList(
+                "CREATE TABLE PERSON (id uuid primary key,   name text);",
+                "INSERT INTO PERSON (id, name) VALUES (uuid(), 'crlf');"))));
+    }
+
+    @Test
+    public void shouldKeepScriptContentUnchangedWhenScriptLoaded() {
+        List<DbMigration> scripts = migrationRepository.getMigrationsSinceVersion(1);
+        assertThat(scripts.get(0).getMigrationScript(), is(equalTo("--This is a comment\n"
+                + "//This is also a comment\n"
+                + "  --This is a comment as well\n"
+                + "CREATE TABLE EVENTS (event_id uuid primary key, event_name varchar);")));
+    }
+
+    @Test
+    public void shouldPassScriptWithoutCommentLinesWhenScriptFilterGiven() {
+        List<String> filteredScripts = new ArrayList<>();
+        migrationRepository.setScriptFilter(content -> {
+            filteredScripts.add(content);
+            return content;
+        });
         List<DbMigration> scripts = migrationRepository.getMigrationsSinceVersion(1);
-        assertThat(scripts.get(0).getMigrationScript().contains("--"), is(false));
-        assertThat(scripts.get(0).getMigrationScript().contains("//"), is(false));
+        assertThat(filteredScripts.get(0),
+                is(equalTo("CREATE TABLE EVENTS (event_id uuid primary key, event_name varchar);")));
+        assertThat(scripts.get(0).getMigrationScript(), is(equalTo(filteredScripts.get(0))));
     }
 
+    @Test
+    public void shouldIgnoreCommentsWhenScriptLexed() {
+        List<DbMigration> scripts = migrationRepository.getMigrationsSinceVersion(1);
+        List<String> statements = new SimpleCQLLexer(scripts.get(0).getMigrationScript()).getCqlQueries();
+        assertThat(statements.size(), is(equalTo(1)));
+        assertThat(statements.get(0),
+                is(equalTo("CREATE TABLE EVENTS (event_id uuid primary key, event_name varchar);")));
+    }
+
+    @Test
+    public void shouldReturnJavaMigrationsOrderedByVersionWhenJavaMigrationsAdded() {
+        migrationRepository.addJavaMigration(new TestJavaMigration(5));
+        migrationRepository.addJavaMigration(new TestJavaMigration(4));
+        List<DbMigration> migrations = migrationRepository.getMigrationsSinceVersion(2);
+        assertThat(migrations.size(), is(equalTo(3)));
+        assertThat(migrations.get(0).getVersion(), is(equalTo(3)));
+        assertThat(migrations.get(0).getJavaMigration(), is(nullValue()));
+        assertThat(migrations.get(1).getVersion(), is(equalTo(4)));
+        assertThat(migrations.get(1).getJavaMigration(), is(notNullValue()));
+        assertThat(migrations.get(1).getScriptName(), is(equalTo("TestJavaMigration")));
+        assertThat(migrations.get(2).getVersion(), is(equalTo(5)));
+        assertThat(migrationRepository.getLatestVersion(), is(equalTo(5)));
+    }
+
+    @Test
+    public void shouldReturnNextJavaMigrationOnlyWhenNoScriptPrecedesIt() {
+        migrationRepository.addJavaMigration(new TestJavaMigration(5));
+        assertThat(migrationRepository.getNextJavaMigration(2), is(nullValue()));
+        assertThat(migrationRepository.getNextJavaMigration(3).getVersion(), is(equalTo(5)));
+        assertThat(migrationRepository.getNextJavaMigration(5), is(nullValue()));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenJavaMigrationWithVersionOfScriptGiven() {
+        assertThrows(MigrationException.class, () -> migrationRepository.addJavaMigration(new TestJavaMigration(3)));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenJavaMigrationsWithSameVersionGiven() {
+        migrationRepository.addJavaMigration(new TestJavaMigration(4));
+        assertThrows(MigrationException.class, () -> migrationRepository.addJavaMigration(new TestJavaMigration(4)));
+    }
+
+    private static class TestJavaMigration implements JavaMigration {
+        private final int version;
+
+        private TestJavaMigration(int version) {
+            this.version = version;
+        }
+
+        @Override
+        public int getVersion() {
+            return version;
+        }
+
+        @Override
+        public void migrate(MigrationContext context) {
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MigrationSessionFactoryTest {
+
+    @Test
+    public void shouldUseSingleConnectionAndKeyspaceMetadataOnlyWhenDefaultsGiven() {
+        DriverExecutionProfile profile = new MigrationSessionFactory(
+                new MigrationConfiguration().withKeyspaceName("test_keyspace"))
+                .createConfigLoader().getInitialConfig().getDefaultProfile();
+
+        assertThat(profile.getInt(DefaultDriverOption.CONNECTION_POOL_LOCAL_SIZE), is(equalTo(1)));
+        assertThat(profile.getInt(DefaultDriverOption.CONNECTION_POOL_REMOTE_SIZE), is(equalTo(1)));
+        assertThat(profile.getStringList(DefaultDriverOption.METADATA_SCHEMA_REFRESHED_KEYSPACES),
+                is(equalTo(singletonList("test_keyspace"))));
+        assertThat(profile.getBoolean(DefaultDriverOption.METADATA_TOKEN_MAP_ENABLED), is(false));
+        assertThat(profile.getDuration(DefaultDriverOption.REQUEST_TIMEOUT),
+                is(equalTo(MigrationSessionFactory.DEFAULT_REQUEST_TIMEOUT)));
+        assertThat(profile.getDuration(DefaultDriverOption.CONTROL_CONNECTION_AGREEMENT_TIMEOUT),
+                is(equalTo(Duration.ZERO)));
+    }
+
+    @Test
+    public void shouldWaitForSchemaAgreementInDriverWhenAfterEveryStatementPolicyGiven() {
+        DriverExecutionProfile profile = new MigrationSessionFactory(new MigrationConfiguration()
+                .withKeyspaceName("test_keyspace")
+                .withSchemaAgreementPolicy(SchemaAgreementPolicy.AFTER_EVERY_STATEMENT)
+                .withSchemaAgreementTimeout(Duration.ofSeconds(20)))
+                .withTokenMap(true)
+                .withRequestTimeout(Duration.ofMinutes(1))
+                .createConfigLoader().getInitialConfig().getDefaultProfile();
+
+        assertThat(profile.getDuration(DefaultDriverOption.CONTROL_CONNECTION_AGREEMENT_TIMEOUT),
+                is(equalTo(Duration.ofSeconds(20))));
+        assertThat(profile.getBoolean(DefaultDriverOption.METADATA_TOKEN_MAP_ENABLED), is(true));
+        assertThat(profile.getDuration(DefaultDriverOption.REQUEST_TIMEOUT), is(equalTo(Duration.ofMinutes(1))));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenConfigurationWithoutKeyspaceGiven() {
+        assertThrows(IllegalArgumentException.class, () -> new MigrationSessionFactory(new MigrationConfiguration()));
+    }
+}
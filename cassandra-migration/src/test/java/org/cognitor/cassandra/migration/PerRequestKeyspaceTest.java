@@ -0,0 +1,47 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.dse.driver.api.core.DseProtocolVersion;
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class PerRequestKeyspaceTest {
+
+    @Test
+    public void shouldSupportKeyspacePerRequestWhenProtocolVersionFiveOrLaterGiven() {
+        assertThat(Database.supportsPerRequestKeyspace(DefaultProtocolVersion.V5), is(true));
+        assertThat(Database.supportsPerRequestKeyspace(DefaultProtocolVersion.V6), is(true));
+        assertThat(Database.supportsPerRequestKeyspace(DseProtocolVersion.DSE_V2), is(true));
+    }
+
+    @Test
+    public void shouldFallBackToSessionKeyspaceWhenOlderProtocolVersionGiven() {
+        assertThat(Database.supportsPerRequestKeyspace(DefaultProtocolVersion.V3), is(false));
+        assertThat(Database.supportsPerRequestKeyspace(DefaultProtocolVersion.V4), is(false));
+        assertThat(Database.supportsPerRequestKeyspace(DseProtocolVersion.DSE_V1), is(false));
+    }
+
+    @Test
+    public void shouldFallBackToSessionKeyspaceWhenUnknownProtocolVersionGiven() {
+        ProtocolVersion unknown = new ProtocolVersion() {
+            @Override
+            public int getCode() {
+                return 99;
+            }
+
+            @Override
+            public String name() {
+                return "CUSTOM";
+            }
+
+            @Override
+            public boolean isBeta() {
+                return false;
+            }
+        };
+        assertThat(Database.supportsPerRequestKeyspace(unknown), is(false));
+    }
+}
@@ -0,0 +1,143 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+
+public class SchemaAgreementProbeTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(100);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(1);
+    private static final UUID VERSION = UUID.randomUUID();
+    private static final UUID OTHER_VERSION = UUID.randomUUID();
+
+    private final FakeCluster cluster = new FakeCluster();
+
+    @Test
+    public void shouldReachAgreementWhenAllNodesHaveSameSchemaVersion() {
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, null);
+
+        assertThat(probe.awaitAgreement(), is(true));
+        assertThat(probe.getDisagreement(), is(nullValue()));
+        assertThat(cluster.getCoordinators().size(), is(1));
+    }
+
+    @Test
+    public void shouldReachAgreementWhenLaggingNodeCatchesUpBeforeTimeout() {
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        Node laggingNode = cluster.addNode("dc1", NodeState.UP, OTHER_VERSION);
+        cluster.beforeCheck(3, () -> cluster.setSchemaVersion(laggingNode, VERSION));
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, null);
+
+        assertThat(probe.awaitAgreement(), is(true));
+        assertThat(probe.getDisagreement(), is(nullValue()));
+        assertThat(cluster.getCoordinators().size(), is(3));
+    }
+
+    @Test
+    public void shouldDescribeLaggingNodeWhenNoAgreementWithinTimeout() {
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        Node laggingNode = cluster.addNode("dc1", NodeState.UP, OTHER_VERSION);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, null);
+
+        long start = System.nanoTime();
+        assertThat(probe.awaitAgreement(), is(false));
+        assertThat(Duration.ofNanos(System.nanoTime() - start), is(greaterThanOrEqualTo(TIMEOUT)));
+        assertThat(cluster.getCoordinators().size(), is(greaterThan(1)));
+        assertThat(probe.getDisagreement(), containsString(laggingNode.getEndPoint() + " (dc1, " + OTHER_VERSION + ")"));
+        assertThat(probe.getDisagreement(), not(containsString(VERSION + ")")));
+    }
+
+    @Test
+    public void shouldIgnoreNodesThatAreDown() {
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.DOWN, OTHER_VERSION);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, null);
+
+        assertThat(probe.awaitAgreement(), is(true));
+    }
+
+    @Test
+    public void shouldFailWhenNoNodeIsUp() {
+        cluster.addNode("dc1", NodeState.DOWN, VERSION);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, null);
+
+        assertThat(probe.awaitAgreement(), is(false));
+        assertThat(probe.getDisagreement(), is("no node is up"));
+    }
+
+    @Test
+    public void shouldOnlyCheckNodesOfDatacenterWhenDatacenterGiven() {
+        Node remoteNode = cluster.addNode("dc2", NodeState.UP, OTHER_VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, "dc1");
+
+        assertThat(probe.awaitAgreement(), is(true));
+        assertThat(cluster.getCoordinators(), not(hasItem(remoteNode)));
+    }
+
+    @Test
+    public void shouldFailWhenNoNodeOfDatacenterIsUp() {
+        cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.addNode("dc2", NodeState.DOWN, VERSION);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, "dc2");
+
+        assertThat(probe.awaitAgreement(), is(false));
+        assertThat(probe.getDisagreement(), is("no node of datacenter dc2 is up"));
+        assertThat(cluster.getCoordinators().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldUseNextCoordinatorWhenCheckFailed() {
+        Node failingNode = cluster.addNode("dc1", NodeState.UP, VERSION);
+        Node nextNode = cluster.addNode("dc1", NodeState.UP, VERSION);
+        cluster.failQueriesOn(failingNode);
+        SchemaAgreementProbe probe = new SchemaAgreementProbe(cluster.getSession(), TIMEOUT, POLL_INTERVAL, null);
+
+        assertThat(probe.awaitAgreement(), is(true));
+        assertThat(cluster.getCoordinators(), contains(failingNode, nextNode));
+    }
+
+    @Test
+    public void shouldDescribeNodesOtherThanMajorityWhenSchemaVersionsDiffer() {
+        Map<Node, UUID> schemaVersions = new LinkedHashMap<>();
+        Node laggingNode = cluster.addNode("dc1", NodeState.UP, VERSION);
+        schemaVersions.put(laggingNode, VERSION);
+        schemaVersions.put(cluster.addNode("dc1", NodeState.UP, OTHER_VERSION), OTHER_VERSION);
+        schemaVersions.put(cluster.addNode("dc2", NodeState.UP, OTHER_VERSION), OTHER_VERSION);
+
+        assertThat(SchemaAgreementProbe.describeLaggingNodes(schemaVersions),
+                is("nodes with a schema version other than " + OTHER_VERSION + ": "
+                        + laggingNode.getEndPoint() + " (dc1, " + VERSION + ")"));
+    }
+
+    @Test
+    public void shouldNotDescribeAnyNodeWhenAllSchemaVersionsAreSame() {
+        Map<Node, UUID> schemaVersions = new LinkedHashMap<>();
+        schemaVersions.put(cluster.addNode("dc1", NodeState.UP, VERSION), VERSION);
+        schemaVersions.put(cluster.addNode("dc2", NodeState.UP, VERSION), VERSION);
+
+        assertThat(SchemaAgreementProbe.describeLaggingNodes(schemaVersions), is(nullValue()));
+    }
+}
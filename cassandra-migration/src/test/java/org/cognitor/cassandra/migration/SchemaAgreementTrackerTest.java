@@ -0,0 +1,152 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.cognitor.cassandra.migration.cql.StatementType.DATA_MANIPULATION;
+import static org.cognitor.cassandra.migration.cql.StatementType.SCHEMA_CHANGE;
+import static org.cognitor.cassandra.migration.cql.StatementType.TRUNCATION;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SchemaAgreementTrackerTest {
+    private static final String SCRIPT = "001_init.cql";
+
+    private final CountingProbe probe = new CountingProbe();
+
+    @Test
+    public void shouldNeverWaitForDataManipulationStatements() {
+        for (SchemaAgreementPolicy policy : SchemaAgreementPolicy.values()) {
+            SchemaAgreementTracker tracker = new SchemaAgreementTracker(policy, probe);
+            tracker.statementExecuted(DATA_MANIPULATION, null, SCRIPT);
+            tracker.statementExecuted(DATA_MANIPULATION, null, SCRIPT);
+            tracker.scriptExecuted(SCRIPT);
+            tracker.awaitPending(null);
+
+            assertThat(policy.name(), probe.awaits, is(0));
+            assertThat(tracker.isPending(), is(false));
+        }
+    }
+
+    @Test
+    public void shouldNeverWaitForTruncateStatements() {
+        for (SchemaAgreementPolicy policy : SchemaAgreementPolicy.values()) {
+            SchemaAgreementTracker tracker = new SchemaAgreementTracker(policy, probe);
+            tracker.statementExecuted(TRUNCATION, null, SCRIPT);
+            tracker.scriptExecuted(SCRIPT);
+            tracker.awaitPending(null);
+
+            assertThat(policy.name(), probe.awaits, is(0));
+            assertThat(tracker.isPending(), is(false));
+        }
+    }
+
+    @Test
+    public void shouldWaitAfterEverySchemaChangeWhenAfterSchemaChangePolicyGiven() {
+        SchemaAgreementTracker tracker = new SchemaAgreementTracker(SchemaAgreementPolicy.AFTER_SCHEMA_CHANGE, probe);
+        tracker.statementExecuted(SCHEMA_CHANGE, false, SCRIPT);
+        tracker.statementExecuted(DATA_MANIPULATION, false, SCRIPT);
+        tracker.statementExecuted(SCHEMA_CHANGE, null, SCRIPT);
+
+        assertThat(probe.awaits, is(2));
+        assertThat(tracker.isPending(), is(false));
+    }
+
+    @Test
+    public void shouldNotWaitWhenDriverReportedAgreement() {
+        for (SchemaAgreementPolicy policy : SchemaAgreementPolicy.values()) {
+            SchemaAgreementTracker tracker = new SchemaAgreementTracker(policy, probe);
+            tracker.statementExecuted(SCHEMA_CHANGE, true, SCRIPT);
+            tracker.scriptExecuted(SCRIPT);
+            tracker.awaitPending(null);
+
+            assertThat(policy.name(), probe.awaits, is(0));
+        }
+    }
+
+    @Test
+    public void shouldWaitOncePerScriptWhenAfterScriptPolicyGiven() {
+        SchemaAgreementTracker tracker = new SchemaAgreementTracker(SchemaAgreementPolicy.AFTER_SCRIPT, probe);
+        tracker.statementExecuted(SCHEMA_CHANGE, false, SCRIPT);
+        tracker.statementExecuted(SCHEMA_CHANGE, false, SCRIPT);
+        assertThat(probe.awaits, is(0));
+        assertThat(tracker.isPending(), is(true));
+
+        tracker.scriptExecuted(SCRIPT);
+        assertThat(probe.awaits, is(1));
+
+        tracker.statementExecuted(DATA_MANIPULATION, false, "002_data.cql");
+        tracker.scriptExecuted("002_data.cql");
+        tracker.awaitPending(null);
+        assertThat(probe.awaits, is(1));
+    }
+
+    @Test
+    public void shouldWaitOnceAfterMigrationWhenAfterMigrationPolicyGiven() {
+        SchemaAgreementTracker tracker = new SchemaAgreementTracker(SchemaAgreementPolicy.AFTER_MIGRATION, probe);
+        tracker.statementExecuted(SCHEMA_CHANGE, false, SCRIPT);
+        tracker.scriptExecuted(SCRIPT);
+        tracker.statementExecuted(SCHEMA_CHANGE, null, "002_index.cql");
+        tracker.scriptExecuted("002_index.cql");
+        assertThat(probe.awaits, is(0));
+
+        tracker.awaitPending(null);
+        assertThat(probe.awaits, is(1));
+        assertThat(tracker.isPending(), is(false));
+    }
+
+    @Test
+    public void shouldFailImmediatelyWhenAfterEveryStatementPolicyGivenAndDriverReportedDisagreement() {
+        SchemaAgreementTracker tracker = new SchemaAgreementTracker(SchemaAgreementPolicy.AFTER_EVERY_STATEMENT, probe);
+
+        MigrationException exception = assertThrows(MigrationException.class,
+                () -> tracker.statementExecuted(DATA_MANIPULATION, false, SCRIPT));
+        assertThat(exception.getScriptName(), is(SCRIPT));
+        assertThat(probe.awaits, is(0));
+    }
+
+    @Test
+    public void shouldWaitAfterSchemaChangeWhenAfterEveryStatementPolicyGivenAndDriverDidNotCheck() {
+        SchemaAgreementTracker tracker = new SchemaAgreementTracker(SchemaAgreementPolicy.AFTER_EVERY_STATEMENT, probe);
+        tracker.statementExecuted(SCHEMA_CHANGE, null, SCRIPT);
+        tracker.statementExecuted(DATA_MANIPULATION, null, SCRIPT);
+
+        assertThat(probe.awaits, is(1));
+    }
+
+    @Test
+    public void shouldThrowExceptionWithDisagreementWhenAgreementNotReached() {
+        probe.agreement = false;
+        SchemaAgreementTracker tracker = new SchemaAgreementTracker(SchemaAgreementPolicy.AFTER_SCHEMA_CHANGE, probe);
+
+        MigrationException exception = assertThrows(MigrationException.class,
+                () -> tracker.statementExecuted(SCHEMA_CHANGE, false, SCRIPT));
+        assertThat(exception.getMessage(), containsString("lagging nodes"));
+        assertThat(exception.getScriptName(), is(SCRIPT));
+        assertThat(tracker.isPending(), is(true));
+    }
+
+    private static class CountingProbe extends SchemaAgreementProbe {
+        private int awaits = 0;
+        private boolean agreement = true;
+
+        CountingProbe() {
+            super(FakeCluster.fake(CqlSession.class, new FakeCluster.Answers()), Duration.ZERO, Duration.ZERO, null);
+        }
+
+        @Override
+        boolean awaitAgreement() {
+            awaits++;
+            return agreement;
+        }
+
+        @Override
+        String getDisagreement() {
+            return agreement ? null : "lagging nodes";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SchemaRefreshSuspensionTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void shouldDisableSchemaMetadataUntilSuspensionEnds() {
+        FakeSession session = new FakeSession(true);
+
+        assertThat(SchemaRefreshSuspension.suspend(session.cqlSession), is(true));
+        assertThat(session.enabled.get(), is(false));
+
+        SchemaRefreshSuspension.resume(session.cqlSession);
+        assertThat(session.enabled.get(), is(true));
+        assertThat(session.changes.get(), is(2));
+    }
+
+    @Test
+    public void shouldEnableSchemaMetadataOnceWhenLastNestedSuspensionEnds() {
+        FakeSession session = new FakeSession(true);
+        SchemaRefreshSuspension.suspend(session.cqlSession);
+        SchemaRefreshSuspension.suspend(session.cqlSession);
+
+        SchemaRefreshSuspension.resume(session.cqlSession);
+        assertThat(session.enabled.get(), is(false));
+
+        SchemaRefreshSuspension.resume(session.cqlSession);
+        assertThat(session.enabled.get(), is(true));
+        assertThat(session.changes.get(), is(2));
+    }
+
+    @Test
+    public void shouldLeaveSessionAloneWhenSchemaMetadataAlreadyDisabled() {
+        FakeSession session = new FakeSession(false);
+
+        assertThat(SchemaRefreshSuspension.suspend(session.cqlSession), is(false));
+        SchemaRefreshSuspension.resume(session.cqlSession);
+
+        assertThat(session.enabled.get(), is(false));
+        assertThat(session.changes.get(), is(0));
+    }
+
+    @Test
+    public void shouldSuspendSessionsIndependently() {
+        FakeSession session = new FakeSession(true);
+        FakeSession otherSession = new FakeSession(true);
+        SchemaRefreshSuspension.suspend(session.cqlSession);
+        SchemaRefreshSuspension.suspend(otherSession.cqlSession);
+
+        SchemaRefreshSuspension.resume(otherSession.cqlSession);
+        assertThat(otherSession.enabled.get(), is(true));
+        assertThat(session.enabled.get(), is(false));
+
+        SchemaRefreshSuspension.resume(session.cqlSession);
+        assertThat(session.enabled.get(), is(true));
+    }
+
+    @Test
+    public void shouldRefreshOnceWhenConcurrentSuspensionsEnd() throws Exception {
+        FakeSession session = new FakeSession(true);
+        CyclicBarrier allSuspended = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> suspensions = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                suspensions.add(executor.submit(() -> {
+                    boolean suspended = SchemaRefreshSuspension.suspend(session.cqlSession);
+                    allSuspended.await();
+                    SchemaRefreshSuspension.resume(session.cqlSession);
+                    return suspended;
+                }));
+            }
+            for (Future<Boolean> suspension : suspensions) {
+                assertThat(suspension.get(), is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(session.enabled.get(), is(true));
+        assertThat(session.changes.get(), is(2));
+    }
+
+    private static class FakeSession {
+        private final AtomicBoolean enabled;
+        private final AtomicInteger changes = new AtomicInteger();
+        private final CqlSession cqlSession;
+
+        FakeSession(boolean schemaMetadataEnabled) {
+            enabled = new AtomicBoolean(schemaMetadataEnabled);
+            cqlSession = FakeCluster.fake(CqlSession.class, new FakeCluster.Answers()
+                    .on("isSchemaMetadataEnabled", args -> enabled.get())
+                    .on("setSchemaMetadataEnabled", args -> {
+                        changes.incrementAndGet();
+                        enabled.set((Boolean) args[0]);
+                        return CompletableFuture.completedFuture(null);
+                    }));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.cognitor.cassandra.migration;
+
+import org.cognitor.cassandra.migration.cql.SimpleCQLLexer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.lang.String.format;
+
+/**
+ * Compares loading and lexing a large script in a single pass with the per-line comment filter that was
+ * applied to every script before and is now only applied if a script filter is set. The script has 200k
+ * statements, each preceded by a comment line, and is generated into the test classes directory.
+ *
+ * This is not a test. Run the main method with the test classpath, e.g. from the IDE or with
+ * <code>java -cp target/test-classes:target/classes:&lt;dependencies&gt;
+ * org.cognitor.cassandra.migration.ScriptLoadingBenchmark</code>. The best time and the lowest allocation of
+ * ten runs are reported for both variants.
+ */
+public final class ScriptLoadingBenchmark {
+    private static final String LOCATION = "cassandra/benchmark";
+    private static final int STATEMENTS = 200_000;
+    private static final int RUNS = 10;
+
+    private ScriptLoadingBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, URISyntaxException {
+        writeScript();
+        MigrationRepository singlePass = new MigrationRepository(LOCATION);
+        MigrationRepository lineFilter = new MigrationRepository(LOCATION);
+        lineFilter.setScriptFilter(script -> script);
+        // alternate both variants, so neither profits from a warmer JVM
+        Result singlePassResult = new Result();
+        Result lineFilterResult = new Result();
+        for (int run = 0; run < RUNS; run++) {
+            measure(singlePass, singlePassResult);
+            measure(lineFilter, lineFilterResult);
+        }
+        System.out.println(format("single pass:             %s", singlePassResult));
+        System.out.println(format("per-line comment filter: %s", lineFilterResult));
+    }
+
+    private static void writeScript() throws IOException, URISyntaxException {
+        Path testClasses = Paths.get(ScriptLoadingBenchmark.class.getProtectionDomain().getCodeSource()
+                .getLocation().toURI());
+        Path directory = Files.createDirectories(testClasses.resolve(LOCATION));
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("001_large_script.cql"),
+                StandardCharsets.UTF_8)) {
+            for (int statement = 0; statement < STATEMENTS; statement++) {
+                writer.write(format("-- inserts event %d%n", statement));
+                writer.write(format("INSERT INTO events (event_id, event_name) VALUES (%d, 'event %d');%n",
+                        statement, statement));
+            }
+        }
+    }
+
+    private static void measure(MigrationRepository repository, Result result) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int statements = 0;
+        for (DbMigration migration : repository.getMigrationsSinceVersion(0)) {
+            statements += new SimpleCQLLexer(migration.getMigrationScript()).getCqlQueries().size();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (statements != STATEMENTS) {
+            throw new IllegalStateException(format("Expected %d statements but found %d", STATEMENTS, statements));
+        }
+        result.nanos = Math.min(result.nanos, nanos);
+        result.allocatedBytes = Math.min(result.allocatedBytes, allocated);
+    }
+
+    private static final class Result {
+        private long nanos = Long.MAX_VALUE;
+        private long allocatedBytes = Long.MAX_VALUE;
+
+        @Override
+        public String toString() {
+            return format("%d ms, %d MB allocated", nanos / 1_000_000, allocatedBytes / (1024 * 1024));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.cognitor.cassandra.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StatementPipelineTest {
+
+    @Test
+    public void shouldThrowExceptionWhenMaxInFlightBelowOneGiven() {
+        assertThrows(IllegalArgumentException.class, () -> new StatementPipeline(0));
+    }
+
+    @Test
+    public void shouldCompleteWithoutFailedStatementWhenAllStatementsSucceed() throws Exception {
+        StatementPipeline pipeline = new StatementPipeline(2);
+        pipeline.submit("INSERT 1", CompletableFuture.completedFuture(null));
+        pipeline.submit("INSERT 2", CompletableFuture.completedFuture(null));
+        pipeline.submit("INSERT 3", CompletableFuture.completedFuture(null));
+        pipeline.awaitAll();
+        assertThat(pipeline.getFailedStatement(), is(nullValue()));
+        assertThat(pipeline.getCompletedStatements(), is(equalTo(3)));
+    }
+
+    @Test
+    public void shouldReportFirstFailingStatementInScriptOrderWhenSeveralStatementsFail() {
+        StatementPipeline pipeline = new StatementPipeline(5);
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        second.completeExceptionally(new IllegalStateException("second"));
+        first.completeExceptionally(new IllegalStateException("first"));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            pipeline.submit("INSERT 1", first);
+            pipeline.submit("INSERT 2", second);
+            pipeline.awaitAll();
+        });
+        assertThat(exception.getMessage(), is(equalTo("first")));
+        assertThat(pipeline.getFailedStatement(), is(equalTo("INSERT 1")));
+        assertThat(pipeline.getCompletedStatements(), is(equalTo(0)));
+    }
+
+    @Test
+    public void shouldCountOnlyStatementsBeforeFirstFailureWhenStatementFails() {
+        StatementPipeline pipeline = new StatementPipeline(5);
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("failed"));
+
+        assertThrows(IllegalStateException.class, () -> {
+            pipeline.submit("INSERT 1", CompletableFuture.completedFuture(null));
+            pipeline.submit("INSERT 2", failed);
+            pipeline.submit("INSERT 3", CompletableFuture.completedFuture(null));
+            pipeline.awaitAll();
+        });
+        assertThat(pipeline.getCompletedStatements(), is(equalTo(1)));
+    }
+
+    @Test
+    public void shouldFailOnSubmitWhenOldestStatementFailedAndWindowIsFull() {
+        StatementPipeline pipeline = new StatementPipeline(1);
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("failed"));
+
+        assertThrows(IllegalStateException.class, () -> {
+            pipeline.submit("INSERT 1", failed);
+            pipeline.submit("INSERT 2", CompletableFuture.completedFuture(null));
+        });
+        assertThat(pipeline.getFailedStatement(), is(equalTo("INSERT 1")));
+    }
+}
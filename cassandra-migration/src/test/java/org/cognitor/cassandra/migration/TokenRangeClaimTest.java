@@ -0,0 +1,63 @@
+package org.cognitor.cassandra.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TokenRangeClaimTest {
+    private static final Duration CLAIM_TTL = Duration.ofSeconds(30);
+
+    private final AtomicLong clock = new AtomicLong(1_000L);
+    private final AtomicInteger renewals = new AtomicInteger();
+    private final AtomicBoolean renewalApplied = new AtomicBoolean(true);
+    private final TokenRangeClaim claim = new TokenRangeClaim(() -> {
+        renewals.incrementAndGet();
+        return renewalApplied.get();
+    }, CLAIM_TTL, clock.get(), clock::get);
+
+    @Test
+    public void shouldNotRenewClaimBeforeThirdOfTtlPassed() {
+        advance(Duration.ofSeconds(9));
+
+        assertThat(claim.keep(), is(true));
+        assertThat(renewals.get(), is(0));
+    }
+
+    @Test
+    public void shouldRenewClaimWhileRowsAreHandled() {
+        for (int row = 0; row < 100; row++) {
+            advance(Duration.ofSeconds(1));
+            assertThat(claim.keep(), is(true));
+        }
+        assertThat(renewals.get(), is(10));
+    }
+
+    @Test
+    public void shouldLoseClaimWhenRenewalRejected() {
+        advance(Duration.ofSeconds(10));
+        renewalApplied.set(false);
+
+        assertThat(claim.keep(), is(false));
+        renewalApplied.set(true);
+        assertThat(claim.keep(), is(false));
+        assertThat(renewals.get(), is(1));
+    }
+
+    @Test
+    public void shouldLoseClaimWithoutRenewalWhenSingleRowTookTooLong() {
+        advance(Duration.ofSeconds(20));
+
+        assertThat(claim.keep(), is(false));
+        assertThat(renewals.get(), is(0));
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+}
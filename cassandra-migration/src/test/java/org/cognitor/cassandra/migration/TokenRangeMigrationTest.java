@@ -0,0 +1,82 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3TokenFactory;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3TokenRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+
+public class TokenRangeMigrationTest {
+    private static final Murmur3TokenFactory TOKEN_FACTORY = new Murmur3TokenFactory();
+    private static final TokenMap TOKEN_MAP = FakeCluster.fake(TokenMap.class, new FakeCluster.Answers()
+            .on("format", args -> TOKEN_FACTORY.format((Token) args[0])));
+    // the ring of three nodes owning the tokens -100, 0 and 100, the first range wraps around the end of the ring
+    private static final List<TokenRange> RING = Arrays.asList(range(100, -100), range(-100, 0), range(0, 100));
+
+    @Test
+    public void shouldUnwrapRangeWrappingAroundEndOfRingWhenNotSplit() {
+        List<TokenRange> ranges = TokenRangeMigration.splitTokenRing(RING, 1);
+
+        assertThat(ranges, contains(
+                new Murmur3TokenRange(Murmur3TokenFactory.MIN_TOKEN, token(-100)),
+                range(-100, 0),
+                range(0, 100),
+                new Murmur3TokenRange(token(100), Murmur3TokenFactory.MIN_TOKEN)));
+    }
+
+    @Test
+    public void shouldCoverWholeRingWithoutGapsWhenSplit() {
+        List<TokenRange> ranges = TokenRangeMigration.splitTokenRing(RING, 4);
+
+        assertThat(ranges.size(), is(greaterThan(12)));
+        assertThat(ranges.get(0).getStart(), is(equalTo(Murmur3TokenFactory.MIN_TOKEN)));
+        for (int i = 1; i < ranges.size(); i++) {
+            assertThat(ranges.get(i).getStart(), is(equalTo(ranges.get(i - 1).getEnd())));
+            assertThat(ranges.get(i - 1).isWrappedAround(), is(false));
+        }
+        assertThat(ranges.get(ranges.size() - 1).getEnd(), is(equalTo(Murmur3TokenFactory.MIN_TOKEN)));
+    }
+
+    @Test
+    public void shouldSkipRangesRecordedAsCompletedWithSameStartAndEnd() {
+        List<TokenRange> ranges = TokenRangeMigration.splitTokenRing(RING, 1);
+        Map<String, String> completedRanges = new HashMap<>();
+        completedRanges.put(TOKEN_FACTORY.format(Murmur3TokenFactory.MIN_TOKEN), "-100");
+        completedRanges.put("0", "100");
+        // recorded before the token ring changed, so the range does not match anymore
+        completedRanges.put("-100", "50");
+
+        List<TokenRange> pendingRanges = TokenRangeMigration.findPendingRanges(ranges, completedRanges, TOKEN_MAP);
+
+        assertThat(pendingRanges, contains(range(-100, 0),
+                new Murmur3TokenRange(token(100), Murmur3TokenFactory.MIN_TOKEN)));
+    }
+
+    @Test
+    public void shouldProcessAllRangesWhenNothingCompleted() {
+        List<TokenRange> ranges = TokenRangeMigration.splitTokenRing(RING, 2);
+
+        assertThat(TokenRangeMigration.findPendingRanges(ranges, new HashMap<>(), TOKEN_MAP), is(equalTo(ranges)));
+    }
+
+    private static Murmur3Token token(long value) {
+        return new Murmur3Token(value);
+    }
+
+    private static TokenRange range(long start, long end) {
+        return new Murmur3TokenRange(token(start), token(end));
+    }
+}
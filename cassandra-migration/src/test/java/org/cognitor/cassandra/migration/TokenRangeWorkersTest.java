@@ -0,0 +1,80 @@
+package org.cognitor.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3TokenRange;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenRangeWorkersTest {
+    private static final String MIGRATION = "0002_java_migration";
+
+    @Test
+    public void shouldProcessEveryRangeOnceAndSumRowsWhenAllRangesSucceed() {
+        List<TokenRange> ranges = ranges(20);
+        Set<TokenRange> processedRanges = ConcurrentHashMap.newKeySet();
+
+        long rows = TokenRangeWorkers.processAll(ranges, 4, range -> {
+            processedRanges.add(range);
+            return 10;
+        }, "error", MIGRATION);
+
+        assertThat(rows, is(equalTo(200L)));
+        assertThat(processedRanges.size(), is(20));
+    }
+
+    @Test
+    public void shouldRethrowMigrationExceptionWhenRangeFails() {
+        MigrationException failure = new MigrationException("Lost lead", MIGRATION);
+
+        MigrationException exception = assertThrows(MigrationException.class,
+                () -> TokenRangeWorkers.processAll(ranges(5), 2, range -> {
+                    throw failure;
+                }, "error", MIGRATION));
+        assertThat(exception, is(sameInstance(failure)));
+    }
+
+    @Test
+    public void shouldWrapOtherExceptionsWhenRangeFails() {
+        MigrationException exception = assertThrows(MigrationException.class,
+                () -> TokenRangeWorkers.processAll(ranges(5), 2, range -> {
+                    throw new IOException("row handler failed");
+                }, "Error while processing token ranges of table ks.events", MIGRATION));
+
+        assertThat(exception.getMessage(), is(equalTo("Error while processing token ranges of table ks.events")));
+        assertThat(exception.getCause(), is(instanceOf(IOException.class)));
+        assertThat(exception.getScriptName(), is(equalTo(MIGRATION)));
+    }
+
+    @Test
+    public void shouldStopTakingRangesWhenRangeFails() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(MigrationException.class, () -> TokenRangeWorkers.processAll(ranges(10), 1, range -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("failed");
+        }, "error", MIGRATION));
+        assertThat(attempts.get(), is(1));
+    }
+
+    private static List<TokenRange> ranges(int count) {
+        List<TokenRange> ranges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ranges.add(new Murmur3TokenRange(new Murmur3Token(i * 100L), new Murmur3Token((i + 1) * 100L)));
+        }
+        return ranges;
+    }
+}
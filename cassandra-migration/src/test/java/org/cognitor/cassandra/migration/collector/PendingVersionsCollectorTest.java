@@ -0,0 +1,35 @@
+package org.cognitor.cassandra.migration.collector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class PendingVersionsCollectorTest {
+    private ScriptCollector scriptCollector;
+
+    @BeforeEach
+    public void before() {
+        this.scriptCollector = new PendingVersionsCollector(new FailOnDuplicatesCollector(), 1);
+    }
+
+    @Test
+    public void shouldReturnOnlyScriptsNewerThanCurrentVersionWhenScriptFilesGiven() {
+        scriptCollector.collect(new ScriptFile(0, "/0_init.cql", "init.cql"));
+        scriptCollector.collect(new ScriptFile(1, "/1_add-table.cql", "add_table.cql"));
+        scriptCollector.collect(new ScriptFile(2, "/2_add-column.cql", "add_column.cql"));
+
+        assertThat(scriptCollector.getScriptFiles().size(), is(equalTo(1)));
+        assertThat(scriptCollector.getScriptFiles().iterator().next().getVersion(), is(equalTo(2)));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicatesWhenDuplicateVersionsNotNewerThanCurrentVersionGiven() {
+        scriptCollector.collect(new ScriptFile(1, "/1_add-table.cql", "add_table.cql"));
+        scriptCollector.collect(new ScriptFile(1, "/1_another-table.cql", "another_table.cql"));
+
+        assertThat(scriptCollector.getScriptFiles().isEmpty(), is(true));
+    }
+}
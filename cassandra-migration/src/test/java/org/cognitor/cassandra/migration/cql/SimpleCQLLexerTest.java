@@ -0,0 +1,84 @@
+package org.cognitor.cassandra.migration.cql;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SimpleCQLLexerTest {
+    private static final String SCRIPT = "-- a comment\n"
+            + "CREATE TABLE PERSON (id uuid primary key, name text); // another comment\n"
+            + "/* multi\n line; comment */ INSERT INTO PERSON (id, name)\n VALUES (uuid(), 'it''s; fine');\n"
+            + "INSERT INTO PERSON (id, name) VALUES (uuid(), 'last')";
+
+    private static final List<String> EXPECTED = Arrays.asList(
+            "CREATE TABLE PERSON (id uuid primary key, name text);",
+            "INSERT INTO PERSON (id, name)  VALUES (uuid(), 'it''s; fine');",
+            "INSERT INTO PERSON (id, name) VALUES (uuid(), 'last')");
+
+    @Test
+    public void shouldReturnStatementsWithoutCommentsWhenScriptGiven() {
+        assertThat(new SimpleCQLLexer(SCRIPT).getCqlQueries(), is(equalTo(EXPECTED)));
+    }
+
+    @Test
+    public void shouldReturnSameStatementsWhenReaderReturnsSingleCharacters() {
+        Iterator<String> statements = new SimpleCQLLexer(new SingleCharacterReader(SCRIPT)).getCqlQueryIterator();
+        for (String expected : EXPECTED) {
+            assertThat(statements.hasNext(), is(true));
+            assertThat(statements.next(), is(equalTo(expected)));
+        }
+        assertThat(statements.hasNext(), is(false));
+    }
+
+    @Test
+    public void shouldReturnSameStatementsWhenScriptHasWindowsLineEndings() {
+        assertThat(new SimpleCQLLexer(SCRIPT.replace("\n", "\r\n")).getCqlQueries(), is(equalTo(EXPECTED)));
+    }
+
+    @Test
+    public void shouldReturnSameStatementsWhenScriptHasWindowsLineEndingsAndReaderReturnsSingleCharacters() {
+        List<String> statements = new SimpleCQLLexer(
+                new SingleCharacterReader(SCRIPT.replace("\n", "\r\n"))).getCqlQueries();
+        assertThat(statements, is(equalTo(EXPECTED)));
+    }
+
+    @Test
+    public void shouldKeepLineBreakInsideStringAsNewLineWhenScriptHasWindowsLineEndings() {
+        assertThat(new SimpleCQLLexer("INSERT INTO t (v) VALUES ('first\r\nsecond');\r\n").getCqlQueries(),
+                is(equalTo(Arrays.asList("INSERT INTO t (v) VALUES ('first\nsecond');"))));
+    }
+
+    @Test
+    public void shouldTreatCarriageReturnAsLineBreakWhenScriptHasOldMacLineEndings() {
+        assertThat(new SimpleCQLLexer(SCRIPT.replace("\n", "\r")).getCqlQueries(), is(equalTo(EXPECTED)));
+    }
+
+    /**
+     * Returns one character per read to make sure statements are found across buffer boundaries.
+     */
+    private static final class SingleCharacterReader extends Reader {
+        private final Reader delegate;
+
+        private SingleCharacterReader(String text) {
+            this.delegate = new StringReader(text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return delegate.read(buffer, offset, Math.min(1, length));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
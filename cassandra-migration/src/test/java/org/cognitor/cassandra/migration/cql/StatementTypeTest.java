@@ -0,0 +1,46 @@
+package org.cognitor.cassandra.migration.cql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class StatementTypeTest {
+
+    @Test
+    public void shouldReturnSchemaChangeWhenCreateTableStatementGiven() {
+        assertThat(StatementType.of("CREATE TABLE PERSON (id uuid primary key);"),
+                is(equalTo(StatementType.SCHEMA_CHANGE)));
+    }
+
+    @Test
+    public void shouldReturnSchemaChangeWhenLowerCaseAlterStatementWithLeadingWhitespaceGiven() {
+        assertThat(StatementType.of("  alter table person add name text;"), is(equalTo(StatementType.SCHEMA_CHANGE)));
+    }
+
+    @Test
+    public void shouldReturnTruncationWhenTruncateStatementGiven() {
+        assertThat(StatementType.of("truncate table person;"), is(equalTo(StatementType.TRUNCATION)));
+        assertThat(StatementType.TRUNCATION.mayChangeSchema(), is(false));
+    }
+
+    @Test
+    public void shouldReturnDataManipulationWhenInsertStatementGiven() {
+        assertThat(StatementType.of("INSERT INTO PERSON (id) VALUES (uuid());"),
+                is(equalTo(StatementType.DATA_MANIPULATION)));
+    }
+
+    @Test
+    public void shouldReturnDataManipulationWhenBatchStatementGiven() {
+        assertThat(StatementType.of("BEGIN BATCH INSERT INTO PERSON (id) VALUES (uuid()); APPLY BATCH;"),
+                is(equalTo(StatementType.DATA_MANIPULATION)));
+    }
+
+    @Test
+    public void shouldReturnOtherWhenUnknownOrEmptyStatementGiven() {
+        assertThat(StatementType.of("GRANT SELECT ON ALL KEYSPACES TO someone;"), is(equalTo(StatementType.OTHER)));
+        assertThat(StatementType.of(""), is(equalTo(StatementType.OTHER)));
+        assertThat(StatementType.of(null), is(equalTo(StatementType.OTHER)));
+    }
+}
@@ -0,0 +1,80 @@
+package org.cognitor.cassandra.migration.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MigrationIndexTest {
+    private static final List<String> LOCATIONS = Collections.singletonList("cassandra/migrationtest/successful/");
+
+    @Test
+    public void shouldReadSameEntriesWhenWrittenIndexGiven() throws IOException {
+        MigrationIndex index = new MigrationIndex(Arrays.asList(
+                new IndexEntry(1, "cassandra/migration/001_init.cql", 120, "abc"),
+                new IndexEntry(2, "cassandra/migration/with space/002_add table.cql", 68, "def")));
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+
+        MigrationIndex readIndex = MigrationIndex.read(
+                new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+        assertThat(readIndex.getEntries().size(), is(equalTo(2)));
+        IndexEntry entry = readIndex.getEntries().get(1);
+        assertThat(entry.getVersion(), is(equalTo(2)));
+        assertThat(entry.getResourceName(), is(equalTo("cassandra/migration/with space/002_add table.cql")));
+        assertThat(entry.getSize(), is(equalTo(68L)));
+        assertThat(entry.getChecksum(), is(equalTo("def")));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenMalformedEntryGiven() {
+        byte[] content = "# cassandra-migration index v1\n1\tabc\n".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> MigrationIndex.read(new ByteArrayInputStream(content)));
+    }
+
+    @Test
+    public void shouldLoadIndexFromClasspathWhenIndexAvailable() throws IOException {
+        MigrationIndex index = MigrationIndex.load(getClass().getClassLoader());
+        assertThat(index.getEntries().size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void shouldFindNoMismatchWhenIndexMatchesScriptsOnClasspath() throws IOException {
+        MigrationIndex index = MigrationIndex.load(getClass().getClassLoader());
+        assertThat(index.findMismatch(getClass().getClassLoader(), LOCATIONS), is(nullValue()));
+    }
+
+    @Test
+    public void shouldFindMismatchWhenIndexedScriptDoesNotExist() throws IOException {
+        MigrationIndex index = new MigrationIndex(Collections.singletonList(
+                new IndexEntry(4, "cassandra/migrationtest/successful/004_removed.cql", 10, "abc")));
+        assertThat(index.findMismatch(getClass().getClassLoader(), LOCATIONS),
+                is(equalTo("cassandra/migrationtest/successful/004_removed.cql does not exist")));
+    }
+
+    @Test
+    public void shouldFindMismatchWhenSizeOfScriptChanged() throws IOException {
+        MigrationIndex index = new MigrationIndex(Collections.singletonList(
+                new IndexEntry(1, "cassandra/migrationtest/successful/001_init.cql", 120, "abc")));
+        assertThat(index.findMismatch(getClass().getClassLoader(), LOCATIONS),
+                is(equalTo("cassandra/migrationtest/successful/001_init.cql has 99 bytes instead of 120")));
+    }
+
+    @Test
+    public void shouldIgnoreEntriesOutsideOfLocationsWhenLookingForMismatch() throws IOException {
+        MigrationIndex index = new MigrationIndex(Collections.singletonList(
+                new IndexEntry(1, "cassandra/other/001_init.cql", 120, "abc")));
+        assertThat(index.findMismatch(getClass().getClassLoader(), LOCATIONS), is(nullValue()));
+    }
+}
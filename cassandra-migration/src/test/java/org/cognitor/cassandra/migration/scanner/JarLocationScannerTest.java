@@ -61,6 +61,43 @@ public class JarLocationScannerTest {
         assertThrows(NoSuchFileException.class, () -> scanner.findResourceNames("/nonThere", jarUri));
     }
 
+    @Test
+    public void shouldReturnOnlyResourcesInLocationWhenJarWithSeveralLocationsGiven() throws Exception {
+        File multiLocationJar = createJar("cassandra/migration/1_init.cql", "cassandra/migration/sub/2_next.cql",
+                "cassandra/migrationother/3_other.cql");
+        try {
+            URI uri = new URI(format("jar:file:%s!/cassandra/migration/", multiLocationJar.toString().replace("\\", "/")));
+            Set<String> resourceNames = new JarLocationScanner().findResourceNames("cassandra/migration/", uri);
+            assertThat(resourceNames.size(), is(equalTo(2)));
+            assertThat(resourceNames.contains("cassandra/migration/1_init.cql"), is(true));
+            assertThat(resourceNames.contains("cassandra/migration/sub/2_next.cql"), is(true));
+        } finally {
+            multiLocationJar.delete();
+        }
+    }
+
+    @Test
+    public void shouldReadJarOnlyOnceWhenSeveralLocationsInSameJarScanned() throws Exception {
+        File multiLocationJar = createJar("cassandra/migration/1_init.cql", "cassandra/migrationother/3_other.cql");
+        URI uri = new URI(format("jar:file:%s", multiLocationJar.toString().replace("\\", "/")));
+        LocationScanner scanner = new JarLocationScanner();
+        assertThat(scanner.findResourceNames("cassandra/migration/", uri).size(), is(equalTo(1)));
+        // the entries are kept by the scanner, so the jar is not read again
+        multiLocationJar.delete();
+        assertThat(scanner.findResourceNames("cassandra/migrationother/", uri).size(), is(equalTo(1)));
+    }
+
+    private static File createJar(String... entryNames) throws IOException {
+        File jarFile = File.createTempFile("Test", ".jar");
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (String entryName : entryNames) {
+                InputStream inputStream = JarLocationScannerTest.class.getResourceAsStream("/cassandra/migrationtest/jarfile/1_init.cql");
+                add(entryName, inputStream, jarOutputStream);
+            }
+        }
+        return jarFile;
+    }
+
     private static File createJar() throws IOException {
         File jarFile = File.createTempFile("Test", ".jar");
         Manifest manifest = new Manifest();
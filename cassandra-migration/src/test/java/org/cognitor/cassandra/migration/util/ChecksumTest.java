@@ -0,0 +1,29 @@
+package org.cognitor.cassandra.migration.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChecksumTest {
+
+    @Test
+    public void shouldReturnSha256HexWhenContentGiven() {
+        assertThat(Checksum.of("abc"),
+                is(equalTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad")));
+    }
+
+    @Test
+    public void shouldReturnDifferentChecksumsWhenDifferentContentGiven() {
+        assertThat(Checksum.of("CREATE TABLE a (id int primary key);"),
+                is(not(equalTo(Checksum.of("CREATE TABLE b (id int primary key);")))));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenNullContentGiven() {
+        assertThrows(IllegalArgumentException.class, () -> Checksum.of(null));
+    }
+}
@@ -0,0 +1,77 @@
+package org.cognitor.cassandra.migration.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExponentialBackoffTest {
+
+    @Test
+    public void shouldDoubleDelayUpToMaximumWhenNoJitterGiven() {
+        ExponentialBackoff backoff = new ExponentialBackoff(Duration.ofMillis(100), Duration.ofMillis(500), 0);
+        assertThat(backoff.nextDelayMillis(), is(equalTo(100L)));
+        assertThat(backoff.nextDelayMillis(), is(equalTo(200L)));
+        assertThat(backoff.nextDelayMillis(), is(equalTo(400L)));
+        assertThat(backoff.nextDelayMillis(), is(equalTo(500L)));
+        assertThat(backoff.nextDelayMillis(), is(equalTo(500L)));
+    }
+
+    @Test
+    public void shouldStartWithInitialDelayWhenReset() {
+        ExponentialBackoff backoff = new ExponentialBackoff(Duration.ofMillis(100), Duration.ofMillis(500), 0);
+        backoff.nextDelayMillis();
+        backoff.nextDelayMillis();
+        backoff.reset();
+        assertThat(backoff.nextDelayMillis(), is(equalTo(100L)));
+    }
+
+    @Test
+    public void shouldKeepDelayWithinJitterRangeWhenJitterGiven() {
+        ExponentialBackoff backoff =
+                new ExponentialBackoff(Duration.ofMillis(1000), Duration.ofMillis(1000), 0.5, new Random(42));
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.nextDelayMillis(), is(allOf(greaterThanOrEqualTo(500L), lessThanOrEqualTo(1000L))));
+        }
+    }
+
+    @Test
+    public void shouldKeepDelayWithinJitterRangeWhenUsedOnAnotherThread() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(Duration.ofMillis(1000), Duration.ofMillis(1000), 0.5);
+        List<Long> delays = new CopyOnWriteArrayList<>();
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                delays.add(backoff.nextDelayMillis());
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(delays.size(), is(100));
+        assertThat(delays, everyItem(is(allOf(greaterThanOrEqualTo(500L), lessThanOrEqualTo(1000L)))));
+        assertThat(new HashSet<>(delays).size(), is(greaterThan(1)));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidArgumentsGiven() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoff(Duration.ofMillis(-1), Duration.ofMillis(10), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoff(Duration.ofMillis(100), Duration.ofMillis(10), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoff(Duration.ofMillis(1), Duration.ofMillis(10), 1.5));
+    }
+}
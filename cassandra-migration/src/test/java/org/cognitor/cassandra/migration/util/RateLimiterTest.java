@@ -0,0 +1,118 @@
+package org.cognitor.cassandra.migration.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RateLimiterTest {
+    private static final long MILLIS = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    @Test
+    public void shouldSpaceOperationsEvenlyWhenRateGiven() {
+        RateLimiter limiter = new RateLimiter(100, null, clock::get);
+        assertThat(limiter.reserve(), is(equalTo(0L)));
+        assertThat(limiter.reserve(), is(equalTo(10 * MILLIS)));
+        assertThat(limiter.reserve(), is(equalTo(20 * MILLIS)));
+    }
+
+    @Test
+    public void shouldNotAccumulateUnusedSlotsWhenIdle() {
+        RateLimiter limiter = new RateLimiter(100, null, clock::get);
+        limiter.reserve();
+        clock.set(1000 * MILLIS);
+        assertThat(limiter.reserve(), is(equalTo(0L)));
+        assertThat(limiter.reserve(), is(equalTo(10 * MILLIS)));
+    }
+
+    @Test
+    public void shouldKeepRateWhenNotAdaptive() {
+        RateLimiter limiter = new RateLimiter(100, null, clock::get);
+        limiter.onSuccess(10_000 * MILLIS);
+        limiter.onOverload();
+        assertThat(limiter.isAdaptive(), is(false));
+        assertThat(limiter.getRate(), is(equalTo(100.0)));
+    }
+
+    @Test
+    public void shouldHalveRateWhenLatencyExceedsThreshold() {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofMillis(50), clock::get);
+        limiter.onSuccess(80 * MILLIS);
+        assertThat(limiter.getRate(), is(equalTo(50.0)));
+        limiter.reserve();
+        assertThat(limiter.reserve(), is(equalTo(20 * MILLIS)));
+    }
+
+    @Test
+    public void shouldHalveRateWhenOverloaded() {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofMillis(50), clock::get);
+        limiter.onOverload();
+        assertThat(limiter.getRate(), is(equalTo(50.0)));
+    }
+
+    @Test
+    public void shouldDecreaseRateOnlyOncePerThresholdWhenSeveralOperationsAreSlow() {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofMillis(50), clock::get);
+        limiter.onSuccess(80 * MILLIS);
+        limiter.onOverload();
+        limiter.onSuccess(80 * MILLIS);
+        assertThat(limiter.getRate(), is(equalTo(50.0)));
+        clock.set(50 * MILLIS);
+        limiter.onSuccess(80 * MILLIS);
+        assertThat(limiter.getRate(), is(equalTo(25.0)));
+    }
+
+    @Test
+    public void shouldNotDecreaseRateBelowMinimumWhenOverloadedRepeatedly() {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofMillis(50), clock::get);
+        for (int i = 0; i < 20; i++) {
+            clock.addAndGet(50 * MILLIS);
+            limiter.onOverload();
+        }
+        assertThat(limiter.getRate(), is(equalTo(1.0)));
+    }
+
+    @Test
+    public void shouldIncreaseRateUpToMaximumWhenLatencyWithinThreshold() {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofMillis(50), clock::get);
+        limiter.onOverload();
+        // the operations of one second at the current rate raise the rate by a tenth of the maximum
+        limiter.onSuccess(MILLIS);
+        assertThat(limiter.getRate(), is(closeTo(50.2, 0.0001)));
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSuccess(MILLIS);
+        }
+        assertThat(limiter.getRate(), is(equalTo(100.0)));
+    }
+
+    @Test
+    public void shouldWaitForReservedSlotWhenAcquired() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(50, null);
+        long start = System.nanoTime();
+        limiter.acquire();
+        limiter.acquire();
+        assertThat(System.nanoTime() - start, is(greaterThan(15 * MILLIS)));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenRateIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.validate(0, null));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.validate(-1, null));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.validate(Double.NaN, null));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenLatencyThresholdIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.validate(10, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.validate(10, Duration.ofMillis(-1)));
+    }
+}
@@ -0,0 +1,63 @@
+package org.cognitor.cassandra.migration.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScriptCompressionTest {
+
+    @Test
+    public void shouldReturnOriginalContentWhenCompressedContentDecompressed() {
+        String script = "CREATE TABLE person (id uuid PRIMARY KEY, name text);\\nINSERT INTO person (id, name) "
+                + "VALUES (uuid(), 'Jürgen');";
+        assertThat(ScriptCompression.decompress(ScriptCompression.compress(script, 1024)), is(equalTo(script)));
+    }
+
+    @Test
+    public void shouldReturnSingleChunkWhenEmptyContentGiven() {
+        List<ByteBuffer> chunks = ScriptCompression.compress("", 1024);
+        assertThat(chunks.size(), is(equalTo(1)));
+        assertThat(ScriptCompression.decompress(chunks), is(equalTo("")));
+    }
+
+    @Test
+    public void shouldSplitIntoChunksOfMaximumSizeWhenLargeContentGiven() {
+        StringBuilder script = new StringBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            script.append("INSERT INTO events (id, value) VALUES (").append(i).append(", ")
+                    .append(random.nextLong()).append(");\\n");
+        }
+        List<ByteBuffer> chunks = ScriptCompression.compress(script.toString(), 1000);
+        assertThat(chunks.size(), is(greaterThan(1)));
+        int compressedSize = 0;
+        for (ByteBuffer chunk : chunks) {
+            assertThat(chunk.remaining(), is(lessThanOrEqualTo(1000)));
+            compressedSize += chunk.remaining();
+        }
+        assertThat(compressedSize, is(lessThan(script.length() / 2)));
+        assertThat(ScriptCompression.decompress(chunks), is(equalTo(script.toString())));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenIncompleteContentGiven() {
+        List<ByteBuffer> chunks = ScriptCompression.compress("CREATE TABLE person (id uuid PRIMARY KEY);", 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> ScriptCompression.decompress(chunks.subList(0, chunks.size() - 1)));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenChunkSizeIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> ScriptCompression.compress("", 0));
+    }
+}